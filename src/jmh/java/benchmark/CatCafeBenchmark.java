@@ -0,0 +1,110 @@
+package benchmark;
+
+import catcafe.CatCafe;
+import catcafe.FelineOverLord;
+import catcafe.OffHeapCatCafe;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks for the queries of a single-threaded {@link CatCafe}. */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CatCafeBenchmark {
+    /** Number of cats in the cafe. */
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    /** Distribution of the weights of the cats. */
+    @Param({"SORTED", "RANDOM", "SKEWED"})
+    public Distribution distribution;
+
+    /** Width of the weight band for range queries. */
+    @Param({"100"})
+    public int band;
+
+    /** Store of the cafe: a tree on the heap or columns off the heap. */
+    @Param({"HEAP", "OFF_HEAP"})
+    public String store;
+
+    private CatCafe cafe;
+    private int[] weights;
+    private int next;
+
+    /** Populate the cafe by adding the cats one by one in insertion order. */
+    @Setup
+    public void setUp() {
+        weights = distribution.weights(size, 42);
+        cafe = store.equals("OFF_HEAP") ? new OffHeapCatCafe() : new CatCafe();
+        for (int weight : weights) {
+            cafe.addCat(new FelineOverLord("cat" + weight, weight));
+        }
+    }
+
+    /** Add a new cat to the cafe. */
+    @Benchmark
+    public void addCat() {
+        // odd weights are never stored in the cafe
+        int weight = weights[next++ % size] + 1;
+        cafe.addCat(new FelineOverLord("kitten" + weight, weight));
+    }
+
+    /**
+     * Count the cats.
+     *
+     * @return number of cats
+     */
+    @Benchmark
+    public long getCatCount() {
+        return cafe.getCatCount();
+    }
+
+    /**
+     * Look up a cat by name.
+     *
+     * @return the cat
+     */
+    @Benchmark
+    public Optional<FelineOverLord> getCatByName() {
+        return cafe.getCatByName("cat" + weights[next++ % size]);
+    }
+
+    /**
+     * Look up the first cat in a weight band.
+     *
+     * @return the cat
+     */
+    @Benchmark
+    public Optional<FelineOverLord> getCatByWeight() {
+        int weight = weights[next++ % size];
+        return cafe.getCatByWeight(weight, weight + band);
+    }
+
+    /**
+     * Look up all cats with the same weight.
+     *
+     * @return the cats
+     */
+    @Benchmark
+    public List<FelineOverLord> getCatsWithWeight() {
+        return cafe.getCatsWithWeight(weights[next++ % size]);
+    }
+
+    /**
+     * Stream all cats in a weight band.
+     *
+     * @param blackhole sink for the cats
+     */
+    @Benchmark
+    public void getCatsByWeight(Blackhole blackhole) {
+        int weight = weights[next++ % size];
+        cafe.getCatsByWeight(weight, weight + band).forEach(blackhole::consume);
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import catcafe.ConcurrentCatCafe;
+import catcafe.FelineOverLord;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/** Multi-threaded benchmarks for a {@link ConcurrentCatCafe}. */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConcurrentCatCafeBenchmark {
+    /** Number of cats in the cafe. */
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    /** Distribution of the weights of the cats. */
+    @Param({"RANDOM", "SKEWED"})
+    public Distribution distribution;
+
+    private ConcurrentCatCafe cafe;
+    private int[] weights;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /** Populate the cafe with all cats in one batch. */
+    @Setup
+    public void setUp() {
+        weights = distribution.weights(size, 42);
+        cafe = new ConcurrentCatCafe();
+        cafe.addCats(
+                Arrays.stream(weights)
+                        .mapToObj(w -> new FelineOverLord("cat" + w, w))
+                        .toList());
+    }
+
+    /** Add new cats from several threads at once (contended compare-and-set). */
+    @Benchmark
+    @Threads(8)
+    public void addCatContended() {
+        // odd weights are never stored in the cafe
+        int weight = weights[Math.floorMod(next.getAndIncrement(), size)] + 1;
+        cafe.addCat(new FelineOverLord("kitten" + weight, weight));
+    }
+
+    /**
+     * Readers of a mixed workload: look up cats by name while writers add cats.
+     *
+     * @return the cat
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(7)
+    public Optional<FelineOverLord> mixedReader() {
+        return cafe.getCatByName("cat" + weights[Math.floorMod(next.getAndIncrement(), size)]);
+    }
+
+    /** Writer of a mixed workload: add cats while readers look up cats by name. */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedWriter() {
+        int weight = weights[Math.floorMod(next.getAndIncrement(), size)] + 1;
+        cafe.addCat(new FelineOverLord("kitten" + weight, weight));
+    }
+}
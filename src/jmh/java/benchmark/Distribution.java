@@ -0,0 +1,41 @@
+package benchmark;
+
+import java.util.Random;
+
+/** Weight distributions used to populate the trees and cafes under test. */
+public enum Distribution {
+    /** Distinct weights, inserted in ascending order (the worst case for an unbalanced tree). */
+    SORTED,
+    /** Distinct weights, evenly spread and inserted in random order. */
+    RANDOM,
+    /** Distinct weights, densely packed at the light end and sparse at the heavy end. */
+    SKEWED;
+
+    /**
+     * Create the even weights of {@code size} cats in insertion order.
+     *
+     * <p>Only even weights are used, so odd weights are guaranteed to be new to the tree.
+     *
+     * @param size number of weights
+     * @param seed seed for shuffling
+     * @return weights in insertion order
+     */
+    public int[] weights(int size, long seed) {
+        int[] weights = new int[size];
+        for (int i = 0; i < size; i++) {
+            long weight = this == SKEWED ? (long) i * i / size + i : i;
+            weights[i] = (int) (2 * weight);
+        }
+        if (this != SORTED) shuffle(weights, new Random(seed));
+        return weights;
+    }
+
+    private static void shuffle(int[] array, Random random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+}
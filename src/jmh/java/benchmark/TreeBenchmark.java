@@ -0,0 +1,159 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import tree.AvlEmpty;
+import tree.Empty;
+import tree.Node;
+import tree.Tree;
+import tree.TreeVisitor;
+
+/** Benchmarks for the hot paths of the balanced {@link Tree} implementation. */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TreeBenchmark {
+    /** Number of elements in the tree. */
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    /** Distribution of the elements. */
+    @Param({"SORTED", "RANDOM", "SKEWED"})
+    public Distribution distribution;
+
+    private Tree<Integer> tree;
+    private Tree<Integer> other;
+    private int[] weights;
+    private int next;
+
+    /** Populate the tree by adding the elements one by one in insertion order. */
+    @Setup
+    public void setUp() {
+        weights = distribution.weights(size, 42);
+        tree = new AvlEmpty<>();
+        for (int weight : weights) {
+            tree = tree.addData(weight);
+        }
+        // odd weights are never stored in the tree
+        other = Tree.of(Arrays.stream(weights).map(w -> w + 1).boxed().toList());
+    }
+
+    /**
+     * Add a new element (path copying and rebalancing).
+     *
+     * @return the new tree
+     */
+    @Benchmark
+    public Tree<Integer> addData() {
+        // odd weights are never stored in the tree
+        int weight = weights[next++ % size] + 1;
+        return tree.addData(weight);
+    }
+
+    /**
+     * Merge a tree of the same size by splitting and joining subtrees.
+     *
+     * @return the merged tree
+     */
+    @Benchmark
+    public Tree<Integer> union() {
+        return tree.union(other);
+    }
+
+    /**
+     * Merge a tree of the same size by adding its elements one by one.
+     *
+     * @return the merged tree
+     */
+    @Benchmark
+    public Tree<Integer> unionByAddData() {
+        Tree<Integer> merged = tree;
+        for (Integer weight : other) {
+            merged = merged.addData(weight);
+        }
+        return merged;
+    }
+
+    /**
+     * Traverse the whole tree with {@link tree.TreeIterator}.
+     *
+     * @param blackhole sink for the elements
+     */
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (Integer weight : tree) {
+            blackhole.consume(weight);
+        }
+    }
+
+    /**
+     * Traverse the whole tree with internal iteration.
+     *
+     * @param blackhole sink for the elements
+     */
+    @Benchmark
+    public void forEach(Blackhole blackhole) {
+        tree.forEach(blackhole::consume);
+    }
+
+    /**
+     * Sum up all elements with a parallel stream.
+     *
+     * @return the sum
+     */
+    @Benchmark
+    public long parallelStream() {
+        return tree.parallelStream().mapToLong(Integer::longValue).sum();
+    }
+
+    /**
+     * Count the elements of the tree.
+     *
+     * @return number of elements
+     */
+    @Benchmark
+    public long size() {
+        return tree.size();
+    }
+
+    /**
+     * Look up the median element.
+     *
+     * @return the median
+     */
+    @Benchmark
+    public Integer select() {
+        return tree.select(size / 2);
+    }
+
+    /**
+     * Render the whole tree with a recursive in-order visitor.
+     *
+     * @return string representation of the tree
+     */
+    @Benchmark
+    public String visitor() {
+        return tree.accept(
+                new TreeVisitor<>() {
+                    @Override
+                    public String visit(Empty<Integer> node) {
+                        return "";
+                    }
+
+                    @Override
+                    public String visit(Node<Integer> node) {
+                        return "("
+                                + node.leftChild().accept(this)
+                                + node.data()
+                                + node.rightChild().accept(this)
+                                + ")";
+                    }
+                });
+    }
+}
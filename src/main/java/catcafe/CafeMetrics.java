@@ -0,0 +1,214 @@
+package catcafe;
+
+import tree.TreeMetrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Opt-in telemetry of the cafes on the heap.
+ *
+ * <p>While {@link TreeMetrics} are enabled, every change of a cafe and every query with a single
+ * result measures the comparisons, allocated nodes and visited nodes of the trees it used, and
+ * records the height of the tree after each change. Each measurement is published as a JFR event
+ * ({@code catcafe.Update} or {@code catcafe.Query}) when a flight recording is running, and is
+ * added to the totals of the {@link CafeMetricsMBean}. While disabled, a cafe only checks a single
+ * flag per operation.
+ */
+public final class CafeMetrics implements CafeMetricsMBean {
+    /** Name of the MBean, see {@link #registerMBean()}. */
+    public static final String OBJECT_NAME = "catcafe:type=CafeMetrics";
+
+    private static final CafeMetrics INSTANCE = new CafeMetrics();
+    private static final LongAdder UPDATES = new LongAdder();
+    private static final LongAdder QUERIES = new LongAdder();
+    private static final LongAccumulator MAX_HEIGHT = new LongAccumulator(Math::max, 0);
+    private static volatile int currentHeight;
+
+    private CafeMetrics() {}
+
+    /**
+     * Register the metrics with the platform MBean server, so they can be watched e.g. with
+     * JConsole. Registering again does nothing.
+     *
+     * @throws IllegalStateException if the MBean cannot be registered
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // already registered
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Access the metrics of all cafes.
+     *
+     * @return the single instance
+     */
+    public static CafeMetrics get() {
+        return INSTANCE;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return TreeMetrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        TreeMetrics.setEnabled(enabled);
+    }
+
+    @Override
+    public long getComparisons() {
+        return TreeMetrics.comparisons();
+    }
+
+    @Override
+    public long getAllocatedNodes() {
+        return TreeMetrics.allocations();
+    }
+
+    @Override
+    public long getVisitedNodes() {
+        return TreeMetrics.visits();
+    }
+
+    @Override
+    public long getUpdates() {
+        return UPDATES.sum();
+    }
+
+    @Override
+    public long getQueries() {
+        return QUERIES.sum();
+    }
+
+    @Override
+    public int getCurrentHeight() {
+        return currentHeight;
+    }
+
+    @Override
+    public int getMaxHeight() {
+        return (int) MAX_HEIGHT.get();
+    }
+
+    @Override
+    public void reset() {
+        TreeMetrics.reset();
+        UPDATES.reset();
+        QUERIES.reset();
+        MAX_HEIGHT.reset();
+        currentHeight = 0;
+    }
+
+    /**
+     * Measure a change of a cafe.
+     *
+     * <p>The change is only recorded by {@link Update#commit()}, after the cafe has published it.
+     *
+     * @param operation name of the public method making the change
+     * @param change computes the new clowder from the current one
+     * @return measuring wrapper of the change
+     */
+    static Update update(String operation, UnaryOperator<Clowder> change) {
+        return new Update(operation, change, TreeMetrics.isEnabled());
+    }
+
+    /**
+     * Measure a query of a cafe.
+     *
+     * @param query name of the public method answering the query
+     * @param compute answers the query
+     * @param <R> type of the result
+     * @return result of the query
+     */
+    static <R> R query(String query, Supplier<R> compute) {
+        if (!TreeMetrics.isEnabled()) return compute.get();
+
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        TreeMetrics.Sample before = TreeMetrics.sample();
+        R result = compute.get();
+        TreeMetrics.Sample work = TreeMetrics.sample().minus(before);
+
+        QUERIES.increment();
+        if (event.shouldCommit()) {
+            event.query = query;
+            event.comparisons = work.comparisons();
+            event.visitedNodes = work.visits();
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * Measurement of a single change of a cafe.
+     *
+     * <p>A concurrent cafe may apply a change several times until it wins the race to publish it,
+     * so each attempt replaces the measurement of the previous one. Only the last attempt is
+     * recorded, and only if it changed the cats: retried attempts and changes which find nothing
+     * to do are not counted as updates.
+     */
+    static final class Update implements UnaryOperator<Clowder> {
+        private final String operation;
+        private final UnaryOperator<Clowder> change;
+        private final boolean enabled;
+        private UpdateEvent event;
+        private TreeMetrics.Sample work;
+        private boolean changed;
+        private Clowder next;
+
+        private Update(String operation, UnaryOperator<Clowder> change, boolean enabled) {
+            this.operation = operation;
+            this.change = change;
+            this.enabled = enabled;
+        }
+
+        @Override
+        public Clowder apply(Clowder current) {
+            if (!enabled) return change.apply(current);
+
+            if (event == null) {
+                // the event spans all attempts, including the time lost to retries
+                event = new UpdateEvent();
+                event.begin();
+            }
+            TreeMetrics.Sample before = TreeMetrics.sample();
+            next = change.apply(current);
+            work = TreeMetrics.sample().minus(before);
+            changed = next != current;
+            return next;
+        }
+
+        /** Record the last attempt, after the cafe has published its result. */
+        void commit() {
+            if (!enabled || !changed) return;
+
+            // balanced trees cache their height, so this does not visit the nodes
+            int height = next.cats().height();
+            UPDATES.increment();
+            currentHeight = height;
+            MAX_HEIGHT.accumulate(height);
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.comparisons = work.comparisons();
+                event.allocatedNodes = work.allocations();
+                event.height = height;
+                event.cats = next.size();
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package catcafe;
+
+/**
+ * Management interface of {@link CafeMetrics}, see {@link CafeMetrics#registerMBean()}.
+ *
+ * <p>All counts are totals over all cafes in this JVM since the last {@link #reset()}.
+ */
+public interface CafeMetricsMBean {
+    /**
+     * Are the metrics collected?
+     *
+     * @return {@code true} if trees and cafes count their work
+     */
+    boolean isEnabled();
+
+    /**
+     * Start or stop collecting the metrics.
+     *
+     * @param enabled {@code true} to start, {@code false} to stop
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * How often has {@code compareTo} been called by the trees?
+     *
+     * @return number of comparisons
+     */
+    long getComparisons();
+
+    /**
+     * How many tree nodes have been allocated?
+     *
+     * @return number of nodes
+     */
+    long getAllocatedNodes();
+
+    /**
+     * How many tree nodes have iterators, cursors and streams visited?
+     *
+     * @return number of nodes
+     */
+    long getVisitedNodes();
+
+    /**
+     * How many changes have been applied to cafes?
+     *
+     * @return number of updates
+     */
+    long getUpdates();
+
+    /**
+     * How many queries have been answered by cafes?
+     *
+     * @return number of queries
+     */
+    long getQueries();
+
+    /**
+     * What is the height of the tree after the latest change of any cafe?
+     *
+     * @return height of the tree
+     */
+    int getCurrentHeight();
+
+    /**
+     * What is the largest height of a tree after a change of any cafe?
+     *
+     * @return height of the tree
+     */
+    int getMaxHeight();
+
+    /** Set all counts back to zero. */
+    void reset();
+}
@@ -0,0 +1,112 @@
+package catcafe;
+
+import static java.util.Objects.requireNonNull;
+
+import tree.Bucket;
+import tree.TreeChange;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Immutable state of a {@link CatCafe} at some point in time, see {@link CatCafe#getState()}.
+ *
+ * <p>A state keeps the cats of the cafe as they were, no matter how the cafe changes afterwards.
+ * Two states of the same cafe share all unchanged parts of their trees, so the cats added and
+ * removed in between can be found without looking at the rest of the cafe.
+ *
+ * <p>States are equal if they hold the same cats, with the same weights in the same order. Their
+ * {@link #getDigest() digests} are cached in the trees, so states of replica cafes are compared
+ * in O(1) if they differ, and {@link #reconcile(CafeState)} finds the differences by descending
+ * only into the parts with different digests.
+ */
+public final class CafeState {
+    private final Clowder clowder;
+
+    CafeState(Clowder clowder) {
+        this.clowder = requireNonNull(clowder);
+    }
+
+    /**
+     * get the number of cats in this state
+     *
+     * @return number of cats
+     */
+    public long getCatCount() {
+        return clowder.size();
+    }
+
+    /**
+     * get the content hash of the cats in this state
+     *
+     * <p>States with the same cats have the same digest, no matter how the cats have been added.
+     * Different digests prove that two states differ.
+     *
+     * @return digest of the cats, computed in O(1)
+     */
+    public long getDigest() {
+        return clowder.cats().digest();
+    }
+
+    /**
+     * compute the cats added and removed from this state to a newer one
+     *
+     * <p>Only the weights whose cats have changed are visited: for {@code k} changes between two
+     * states of the same cafe this takes about O(k log n) steps. States of different cafes, or
+     * states before and after a large {@link CatCafe#addCats(Iterable)} which rebuilds the tree,
+     * share no nodes and are compared fully.
+     *
+     * @param newer state to compare with (must not be {@code null})
+     * @return stream of changes sorted by weight, each one {@link TreeChange#isAdded() added} or
+     *     {@link TreeChange#isRemoved() removed}
+     * @throws NullPointerException if newer is {@code null}
+     */
+    public Stream<TreeChange<FelineOverLord>> diff(CafeState newer) {
+        requireNonNull(newer);
+
+        return clowder.cats().diff(newer.clowder.cats()).flatMap(CafeState::catChanges);
+    }
+
+    /**
+     * compute the cats missing in this state or in a replica of it
+     *
+     * <p>Unlike {@link #diff(CafeState)}, this also skips parts of the trees with equal digests
+     * which are not shared, e.g. when the replica has been restored from a snapshot or has added
+     * the same cats by itself. Thus only the weights with different cats are visited. The digests
+     * are no cryptographic hashes, so this relies on different cats having different digests.
+     *
+     * @param replica state to compare with (must not be {@code null})
+     * @return stream of changes from this state to the replica, sorted by weight, each one {@link
+     *     TreeChange#isAdded() added} or {@link TreeChange#isRemoved() removed}
+     * @throws NullPointerException if replica is {@code null}
+     */
+    public Stream<TreeChange<FelineOverLord>> reconcile(CafeState replica) {
+        requireNonNull(replica);
+
+        return clowder.cats().reconcile(replica.clowder.cats()).flatMap(CafeState::catChanges);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CafeState other && clowder.cats().sameData(other.clowder.cats());
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(getDigest());
+    }
+
+    private static Stream<TreeChange<FelineOverLord>> catChanges(
+            TreeChange<Bucket<FelineOverLord>> change) {
+        if (change.isAdded()) return change.after().stream().map(TreeChange::added);
+        if (change.isRemoved()) return change.before().stream().map(TreeChange::removed);
+
+        // the cats of a single weight have changed: compare the buckets cat by cat
+        Set<FelineOverLord> before = new HashSet<>(change.before().toList());
+        Set<FelineOverLord> after = new HashSet<>(change.after().toList());
+        Stream<FelineOverLord> removed = change.before().stream().filter(c -> !after.contains(c));
+        Stream<FelineOverLord> added = change.after().stream().filter(c -> !before.contains(c));
+        return Stream.concat(removed.map(TreeChange::removed), added.map(TreeChange::added));
+    }
+}
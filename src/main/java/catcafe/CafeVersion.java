@@ -0,0 +1,12 @@
+package catcafe;
+
+import java.time.Instant;
+
+/**
+ * A retained version of a {@link CatCafe}, see {@link CatCafe#setVersionRetention(int)}.
+ *
+ * @param version number of the version, increasing by one with every change of the cafe
+ * @param timestamp time at which the cafe changed to this version
+ * @param catCount number of cats in this version
+ */
+public record CafeVersion(long version, Instant timestamp, long catCount) {}
@@ -2,66 +2,570 @@ package catcafe;
 
 import static java.util.Objects.requireNonNull;
 
-import tree.Empty;
+import tree.Bucket;
 import tree.Tree;
+import tree.TreeRenderer;
 import tree.TreeVisitor;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-/** Uses a binary tree to obtain FelineOverLord objects */
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Uses a binary tree to obtain FelineOverLord objects
+ *
+ * <p>A cafe is not thread-safe, see {@link ConcurrentCatCafe} for concurrent access. The work done
+ * by changes and queries can be measured, see {@link CafeMetrics}. Earlier states of the cafe can
+ * be kept and queried as numbered versions, see {@link #setVersionRetention(int, Duration)}.
+ */
 public class CatCafe {
-    private Tree<FelineOverLord> clowder = new Empty<>();
+    private static final int RENDER_BUFFER_SIZE = 8192;
+
+    private Clowder clowder = new Clowder();
+    private volatile WeightIndex weightIndex;
+    private final AtomicInteger staleQueries = new AtomicInteger();
+    // the cache only asks for the current clowder when queried, after construction
+    @SuppressWarnings("this-escape")
+    private final QueryCache queryCache = new QueryCache(this::clowder);
+    private final VersionLog versions = new VersionLog();
 
     /**
      * add cat object to Tree
+     *
+     * <p>Cats with the same weight are all kept, only a cat equal to a stored one (same name and
+     * weight) is not added again.
+     *
      * @param cat object
      */
     public void addCat(FelineOverLord cat) {
-        clowder = clowder.addData(requireNonNull(cat));
+        requireNonNull(cat);
+
+        update("addCat", c -> c.addCat(cat));
+    }
+
+    /**
+     * add several cat objects to Tree
+     *
+     * <p>Large batches are sorted and built into a new balanced tree in one pass, which is much
+     * cheaper than adding the cats one by one. Cats with the same weight are all kept in the order
+     * of the batch, just like with {@link #addCat(FelineOverLord)}.
+     *
+     * @param cats objects (must not contain {@code null})
+     */
+    public void addCats(Iterable<FelineOverLord> cats) {
+        List<FelineOverLord> batch = new ArrayList<>();
+        for (FelineOverLord cat : cats) {
+            batch.add(requireNonNull(cat));
+        }
+
+        update("addCats", c -> c.addCats(batch));
+    }
+
+    /**
+     * add all cat objects of another cafe to Tree
+     *
+     * <p>The trees of both cafes are merged by splitting and joining whole subtrees, in parallel
+     * for large cafes, instead of adding the cats one by one. Cats with the same weight are all
+     * kept, the cats of this cafe in front. The other cafe is not changed.
+     *
+     * @param other cafe with the cats to add (must not be {@code null})
+     */
+    public void addCats(CatCafe other) {
+        Clowder added = other.clowder();
+
+        update("addCafe", c -> c.addAll(added));
+    }
+
+    /**
+     * remove cat object from Tree
+     *
+     * <p>Only a cat equal to the given one (same name and weight) is removed, otherwise the cafe
+     * does not change. The tree is not rebuilt: removing a cat takes O(log n) steps, and earlier
+     * states of the cafe (e.g. running streams) keep all their cats.
+     *
+     * @param cat object
+     */
+    public void removeCat(FelineOverLord cat) {
+        requireNonNull(cat);
+
+        update("removeCat", c -> c.removeCat(cat));
     }
 
     /**
+     * The cafe keeps count of its cats, so this does not need to visit them.
      *
      * @return number of cats inside the tree
      */
     public long getCatCount() {
-        return clowder.size();
+        return clowder().size();
+    }
+
+    /**
+     * call method with the position of a cat when sorted by weight and get the related cat object
+     *
+     * <p>Cats with the same weight are ranked in the order they were added.
+     *
+     * @param rank zero-based position, i.e. rank 0 is the lightest cat
+     * @return Optional of cat object
+     */
+    public Optional<FelineOverLord> getCatByRank(long rank) {
+        Clowder clowder = clowder();
+        if (rank < 0 || rank >= clowder.size()) return Optional.empty();
+
+        return CafeMetrics.query("getCatByRank", () -> getCatByRank(clowder, rank));
+    }
+
+    private Optional<FelineOverLord> getCatByRank(Clowder clowder, long rank) {
+        Tree<Bucket<FelineOverLord>> cats = clowder.cats();
+        // the tree counts buckets, not cats: only without shared weights is its rank the same
+        boolean singleCats = cats.size() == clowder.size();
+        WeightIndex index = weightIndex(cats, clowder.size(), !singleCats);
+        if (index != null) return Optional.of(index.get((int) rank));
+        if (singleCats) return Optional.of(cats.select(rank).key());
+        return cats.stream().flatMap(Bucket::stream).skip(rank).findFirst();
     }
 
     /**
      * call method with cat name and get the related cat object
+     *
+     * <p>The cats are indexed by name, so this does not need to search the tree.
+     *
      * @param name of cat
      * @return Optional of cat object
      */
     public Optional<FelineOverLord> getCatByName(String name) {
         if (name == null) return Optional.empty();
 
-        for (FelineOverLord c : clowder) {
-            if (c.name().equals(name)) return Optional.of(c);
-        }
-
-
-
-        return Optional.empty();
+        return CafeMetrics.query(
+                "getCatByName",
+                () -> queryCache.get(clowder(), new NameQuery(name), c -> c.getCatByName(name)));
     }
 
     /**
      * method searches cat objects with weight value between given parameters
      * @param minWeight
      * @param maxWeight
-     * @return Optional of cat object
+     * @return Optional of cat object, the first one added of the lightest cats in the range
      */
     public Optional<FelineOverLord> getCatByWeight(int minWeight, int maxWeight) {
         if (minWeight < 0) return Optional.empty();
         if (maxWeight < minWeight) return Optional.empty();
 
-        for (FelineOverLord c : clowder) {
-            if (c.weight() >= minWeight && c.weight() < maxWeight) return Optional.of(c);
+        return CafeMetrics.query(
+                "getCatByWeight",
+                () ->
+                        queryCache.get(
+                                clowder(),
+                                new WeightQuery(minWeight, maxWeight),
+                                c -> getCatByWeight(c, minWeight, maxWeight)));
+    }
+
+    private Optional<FelineOverLord> getCatByWeight(Clowder clowder, int minWeight, int maxWeight) {
+        WeightIndex index = weightIndex(clowder.cats(), clowder.size(), false);
+        if (index != null) return Optional.ofNullable(index.first(minWeight, maxWeight));
+        return getCatsByWeight(clowder.cats(), minWeight, maxWeight).findFirst().map(Bucket::key);
+    }
+
+    /**
+     * method searches all cat objects with exactly the given weight
+     *
+     * <p>All cats with the same weight are stored together, so this finds them in a single lookup
+     * of O(log n) steps.
+     *
+     * @param weight of the cats
+     * @return unmodifiable list of cat objects in the order they were added, empty if there is no
+     *     cat with this weight
+     */
+    public List<FelineOverLord> getCatsWithWeight(int weight) {
+        if (weight < 0) return List.of();
+
+        Bucket<FelineOverLord> probe = Bucket.of(new FelineOverLord("", weight));
+        return CafeMetrics.query(
+                "getCatsWithWeight",
+                () ->
+                        queryCache.get(
+                                clowder(),
+                                new SameWeightQuery(weight),
+                                c -> getCatsWithWeight(c.cats(), probe)));
+    }
+
+    private static List<FelineOverLord> getCatsWithWeight(
+            Tree<Bucket<FelineOverLord>> cats, Bucket<FelineOverLord> probe) {
+        return cats.range(probe, true, probe, true)
+                .findFirst()
+                .map(Bucket::toList)
+                .orElse(List.of());
+    }
+
+    /**
+     * method searches all cat objects with weight value between given parameters
+     *
+     * <p>Only the part of the cafe within the weight range is visited, and the stream is lazy.
+     *
+     * @param minWeight lower bound (inclusive)
+     * @param maxWeight upper bound (exclusive)
+     * @return stream of cat objects, sorted by weight
+     */
+    public Stream<FelineOverLord> getCatsByWeight(int minWeight, int maxWeight) {
+        if (minWeight < 0) return Stream.empty();
+        if (maxWeight < minWeight) return Stream.empty();
+
+        Clowder clowder = clowder();
+        WeightIndex index = weightIndex(clowder.cats(), clowder.size(), false);
+        if (index != null) return index.range(minWeight, maxWeight);
+        return getCatsByWeight(clowder.cats(), minWeight, maxWeight).flatMap(Bucket::stream);
+    }
+
+    private static Stream<Bucket<FelineOverLord>> getCatsByWeight(
+            Tree<Bucket<FelineOverLord>> cats, int minWeight, int maxWeight) {
+        // cats are compared by weight only, so the names of the bounds do not matter
+        return cats.range(
+                Bucket.of(new FelineOverLord("", minWeight)),
+                Bucket.of(new FelineOverLord("", maxWeight)));
+    }
+
+    /**
+     * set the maximum number of query results to cache
+     *
+     * <p>Results of {@link #getCatByName(String)}, {@link #getCatByWeight(int, int)} and {@link
+     * #getCatsWithWeight(int)} are cached for the current cats of the cafe, so repeated queries
+     * between two changes are answered at once. Every change of the cats starts an empty cache,
+     * and the least recently used result is dropped when the cache is full. The cache is disabled
+     * by default, as it takes a lock for each of these queries; {@link OffHeapCatCafe} answers
+     * them from its columns and does not use it.
+     *
+     * @param capacity maximum number of results, {@code 0} disables the cache
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public void setQueryCacheCapacity(int capacity) {
+        queryCache.setCapacity(capacity);
+    }
+
+    /**
+     * get the hits and misses of the query cache
+     *
+     * @return statistics since the cafe was created
+     * @see #setQueryCacheCapacity(int)
+     */
+    public QueryCacheStats getQueryCacheStats() {
+        return queryCache.stats();
+    }
+
+    /**
+     * get the current state of the cafe
+     *
+     * <p>The state does not change with the cafe, so two states taken before and after some
+     * changes tell which cats have been added and removed, see {@link CafeState#diff(CafeState)}.
+     * Taking a state is O(1), except for {@link OffHeapCatCafe} which copies its cats to the heap
+     * once after each change.
+     *
+     * @return the current state
+     */
+    public CafeState getState() {
+        return new CafeState(clowder());
+    }
+
+    /**
+     * keep the recent states of the cafe as numbered versions
+     *
+     * <p>Every change of the cats creates the next version. The states share all unchanged parts
+     * of their trees, so a version only costs the O(log n) nodes copied by its change. The oldest
+     * versions are dropped when there are more than maxVersions, or when they are older than
+     * maxAge; the current version is always kept. Versions are disabled by default, as each
+     * change then takes a lock; queries of old versions never take a lock and do not copy the
+     * current cats. {@link OffHeapCatCafe} keeps a tree on the heap for its versions.
+     *
+     * @param maxVersions maximum number of versions, {@code 0} disables versions and drops them
+     * @param maxAge maximum age of the versions
+     * @throws IllegalArgumentException if maxVersions or maxAge is negative
+     */
+    public void setVersionRetention(int maxVersions, Duration maxAge) {
+        versions.setRetention(maxVersions, requireNonNull(maxAge), this::clowder);
+    }
+
+    /**
+     * keep the recent states of the cafe as numbered versions, whatever their age
+     *
+     * @param maxVersions maximum number of versions, {@code 0} disables versions and drops them
+     * @throws IllegalArgumentException if maxVersions is negative
+     * @see #setVersionRetention(int, Duration)
+     */
+    public void setVersionRetention(int maxVersions) {
+        setVersionRetention(maxVersions, ChronoUnit.FOREVER.getDuration());
+    }
+
+    /**
+     * get the number of the current version
+     *
+     * @return version number
+     * @throws IllegalStateException if versions are disabled
+     */
+    public long getVersion() {
+        return versions.latest();
+    }
+
+    /**
+     * get the retained versions
+     *
+     * @return unmodifiable list of versions, from the oldest to the current one
+     */
+    public List<CafeVersion> getVersions() {
+        return versions.list();
+    }
+
+    /**
+     * get the state of the cafe at a retained version
+     *
+     * @param asOfVersion number of the version
+     * @return the state at this version
+     * @throws IllegalArgumentException if the version is not retained
+     */
+    public CafeState getState(long asOfVersion) {
+        return new CafeState(versions.get(asOfVersion));
+    }
+
+    /**
+     * get the number of cats at a retained version
+     *
+     * @param asOfVersion number of the version
+     * @return number of cats inside the tree at this version
+     * @throws IllegalArgumentException if the version is not retained
+     */
+    public long getCatCount(long asOfVersion) {
+        return versions.get(asOfVersion).size();
+    }
+
+    /**
+     * call method with cat name and get the related cat object at a retained version
+     *
+     * @param name of cat
+     * @param asOfVersion number of the version
+     * @return Optional of cat object
+     * @throws IllegalArgumentException if the version is not retained
+     */
+    public Optional<FelineOverLord> getCatByName(String name, long asOfVersion) {
+        Clowder clowder = versions.get(asOfVersion);
+        if (name == null) return Optional.empty();
+
+        return CafeMetrics.query("getCatByName", () -> clowder.getCatByName(name));
+    }
+
+    /**
+     * method searches cat objects with weight value between given parameters at a retained version
+     *
+     * <p>Old versions are searched in their tree, the weight index and the query cache only hold
+     * the current cats.
+     *
+     * @param minWeight lower bound (inclusive)
+     * @param maxWeight upper bound (exclusive)
+     * @param asOfVersion number of the version
+     * @return Optional of cat object, the first one added of the lightest cats in the range
+     * @throws IllegalArgumentException if the version is not retained
+     */
+    public Optional<FelineOverLord> getCatByWeight(int minWeight, int maxWeight, long asOfVersion) {
+        Clowder clowder = versions.get(asOfVersion);
+        if (minWeight < 0) return Optional.empty();
+        if (maxWeight < minWeight) return Optional.empty();
+
+        return CafeMetrics.query(
+                "getCatByWeight",
+                () ->
+                        getCatsByWeight(clowder.cats(), minWeight, maxWeight)
+                                .findFirst()
+                                .map(Bucket::key));
+    }
+
+    /**
+     * method searches all cat objects with weight value between given parameters at a retained
+     * version
+     *
+     * @param minWeight lower bound (inclusive)
+     * @param maxWeight upper bound (exclusive)
+     * @param asOfVersion number of the version
+     * @return stream of cat objects, sorted by weight
+     * @throws IllegalArgumentException if the version is not retained
+     */
+    public Stream<FelineOverLord> getCatsByWeight(int minWeight, int maxWeight, long asOfVersion) {
+        Clowder clowder = versions.get(asOfVersion);
+        if (minWeight < 0) return Stream.empty();
+        if (maxWeight < minWeight) return Stream.empty();
+
+        return getCatsByWeight(clowder.cats(), minWeight, maxWeight).flatMap(Bucket::stream);
+    }
+
+    /**
+     * Access the weight index for the given cats, building it if it pays off.
+     *
+     * <p>Building the index takes O(n), a query on the tree O(log n). So after the cats have
+     * changed, queries are answered by the tree until they have cost about as much as building the
+     * index, and only then the index is rebuilt. Read-mostly cafes thus use the index nearly all
+     * the time, while cafes with frequent changes do not keep rebuilding it. Concurrent readers of
+     * a {@link ConcurrentCatCafe} share an atomic counter of these queries, and only one of them
+     * rebuilds the index once it pays off.
+     *
+     * @param cats current cats of the cafe
+     * @param size number of cats in all buckets
+     * @param linear whether the query would take O(n) on the tree, so the index pays off at once
+     * @return index for exactly these cats, or {@code null} if the tree should be used
+     */
+    private WeightIndex weightIndex(Tree<Bucket<FelineOverLord>> cats, long size, boolean linear) {
+        WeightIndex index = weightIndex;
+        if (index != null && index.cats() == cats) return index;
+
+        if (size > WeightIndex.MAX_SIZE) return null;
+        if (!linear) {
+            int stale = staleQueries.getAndIncrement();
+            if ((long) stale * (64 - Long.numberOfLeadingZeros(size)) < size) return null;
+            // only the query which resets the counter builds the index, concurrent ones go on
+            if (!staleQueries.compareAndSet(stale + 1, 0)) return null;
         }
 
-        return Optional.empty();
+        index = WeightIndex.of(cats, size);
+        weightIndex = index;
+        staleQueries.set(0);
+        return index;
+    }
+
+    /**
+     * write all cats into a snapshot file
+     *
+     * <p>The snapshot can be opened with {@link OffHeapCatCafe#openSnapshot(Path)}, which maps the
+     * file into memory instead of adding the cats again, so a restarted cafe is available at once.
+     * The cats of a single state of the cafe are written, even if cats are added meanwhile.
+     *
+     * @param path snapshot file, an existing file is replaced
+     * @throws IOException if writing the file fails
+     */
+    public void saveSnapshot(Path path) throws IOException {
+        OffHeapCatCafe.writeSnapshot(clowder(), path);
     }
 
-    String accept(TreeVisitor<FelineOverLord> visitor) {
-        return clowder.accept(visitor);
+    String accept(TreeVisitor<Bucket<FelineOverLord>> visitor) {
+        return clowder().cats().accept(visitor);
     }
+
+    /**
+     * write all cats into an Appendable while traversing the tree
+     *
+     * <p>Each node of the tree holds the bucket of all cats with the same weight. The cats of a
+     * single state of the cafe are written, even if cats are added meanwhile. No string is built
+     * for the whole cafe, so this works for millions of cats; the output is not buffered here.
+     *
+     * @param renderer called back for each position of the traversal
+     * @param out destination of the output
+     * @throws IOException if writing to out fails
+     */
+    public void render(TreeRenderer<Bucket<FelineOverLord>> renderer, Appendable out)
+            throws IOException {
+        clowder().cats().render(renderer, out);
+    }
+
+    /**
+     * write all cats into a Writer while traversing the tree
+     *
+     * <p>The output is collected in a buffer of fixed size, which is flushed to the writer whenever
+     * it is full and at the end. The writer is not closed.
+     *
+     * @param renderer called back for each position of the traversal
+     * @param out destination of the output
+     * @throws IOException if writing to out fails
+     */
+    public void render(TreeRenderer<Bucket<FelineOverLord>> renderer, Writer out)
+            throws IOException {
+        BufferedWriter buffered = new BufferedWriter(out, RENDER_BUFFER_SIZE);
+        render(renderer, (Appendable) buffered);
+        buffered.flush();
+    }
+
+    /**
+     * write all cats as UTF-8 into a channel (e.g. a file or socket) while traversing the tree
+     *
+     * <p>The output is encoded through a buffer of fixed size, which is written to the channel
+     * whenever it is full and at the end. The channel is not closed.
+     *
+     * @param renderer called back for each position of the traversal
+     * @param out destination of the output
+     * @throws IOException if writing to out fails
+     */
+    public void render(TreeRenderer<Bucket<FelineOverLord>> renderer, WritableByteChannel out)
+            throws IOException {
+        Writer encoder =
+                Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), RENDER_BUFFER_SIZE);
+        render(renderer, encoder);
+        encoder.flush();
+    }
+
+    /**
+     * Access the current state of the cafe.
+     *
+     * @return the current clowder
+     */
+    Clowder clowder() {
+        return clowder;
+    }
+
+    /**
+     * Access the versions of the cafe.
+     *
+     * @return the log which implementations of {@link #update(UnaryOperator)} append to
+     */
+    VersionLog versions() {
+        return versions;
+    }
+
+    /**
+     * Replace the state of the cafe.
+     *
+     * <p>Each new state is appended to the {@link #versions()}.
+     *
+     * @param change computes the new clowder from the current one (without side effects, it may be
+     *     applied more than once by concurrent implementations)
+     */
+    void update(UnaryOperator<Clowder> change) {
+        Clowder next = change.apply(clowder);
+        if (next == clowder) return;
+
+        clowder = next;
+        if (versions.isEnabled()) versions.append(next);
+    }
+
+    private void update(String operation, UnaryOperator<Clowder> change) {
+        CafeMetrics.Update measured = CafeMetrics.update(operation, change);
+        update(measured);
+        measured.commit();
+    }
+
+    /**
+     * Key of a cached query by name.
+     *
+     * @param name of the cats
+     */
+    private record NameQuery(String name) {}
+
+    /**
+     * Key of a cached query by weight.
+     *
+     * @param minWeight lower bound
+     * @param maxWeight upper bound
+     */
+    private record WeightQuery(int minWeight, int maxWeight) {}
+
+    /**
+     * Key of a cached query for all cats with the same weight.
+     *
+     * @param weight of the cats
+     */
+    private record SameWeightQuery(int weight) {}
 }
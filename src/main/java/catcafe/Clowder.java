@@ -0,0 +1,212 @@
+package catcafe;
+
+import tree.AvlEmpty;
+import tree.Bucket;
+import tree.HashTrie;
+import tree.TransientTree;
+import tree.Tree;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable state of a {@link CatCafe}: the cats sorted by weight plus an index by name.
+ *
+ * <p>Both structures are persistent, so a new clowder shares almost all of its data with the
+ * previous one. Replacing the clowder of a cafe updates the tree and the index in a single step.
+ *
+ * <p>Cats are compared by weight only, so all cats with the same weight share a single node of the
+ * tree, which holds them in a {@link Bucket} in the order they were added. Only a cat equal to a
+ * stored one (same name and weight) is not added again.
+ *
+ * @param cats all cats, one bucket per weight, sorted by weight
+ * @param names cats by name (sorted by weight again, as several cats may share a name)
+ * @param size number of cats in all buckets
+ */
+record Clowder(
+        Tree<Bucket<FelineOverLord>> cats,
+        HashTrie<String, Tree<FelineOverLord>> names,
+        long size)
+        implements Iterable<FelineOverLord> {
+    /** Create an empty clowder. */
+    Clowder() {
+        this(new AvlEmpty<>(), HashTrie.empty(), 0);
+    }
+
+    /**
+     * add cat object to the clowder
+     * @param cat object
+     * @return the new clowder, or this clowder if it already contains an equal cat
+     */
+    Clowder addCat(FelineOverLord cat) {
+        // cats with the same name are indexed by weight, so this finds an equal cat in O(log n)
+        Tree<FelineOverLord> sameName = names.getOrDefault(cat.name(), new AvlEmpty<>());
+        Tree<FelineOverLord> newSameName = sameName.addData(cat);
+        if (newSameName == sameName) return this;
+
+        return new Clowder(
+                cats.mergeData(Bucket.of(cat), Bucket::withAll),
+                names.put(cat.name(), newSameName),
+                size + 1);
+    }
+
+    /**
+     * add several cat objects to the clowder
+     *
+     * <p>Small batches are inserted one by one into a transient tree, which copies each node at
+     * most once for the whole batch. Large batches are sorted, merged with the cats of
+     * this clowder and built into a new balanced tree bottom-up, which needs one node per weight
+     * instead of one path per cat.
+     *
+     * @param batch cat objects (must not contain {@code null})
+     * @return the new clowder, or this one if all cats were stored already
+     */
+    Clowder addCats(List<FelineOverLord> batch) {
+        long nodes = cats.size();
+        if (batch.size() * (64 - Long.numberOfLeadingZeros(nodes)) < nodes) {
+            // inserting costs O(log n) per cat, rebuilding O(n) in total
+            TransientTree<Bucket<FelineOverLord>> newCats = cats.asTransient();
+            HashTrie<String, Tree<FelineOverLord>> newNames = names;
+            long newSize = size;
+            for (FelineOverLord cat : batch) {
+                Tree<FelineOverLord> sameName =
+                        newNames.getOrDefault(cat.name(), new AvlEmpty<>());
+                Tree<FelineOverLord> newSameName = sameName.addData(cat);
+                if (newSameName == sameName) continue;
+
+                newCats.mergeData(Bucket.of(cat), Bucket::withAll);
+                newNames = newNames.put(cat.name(), newSameName);
+                ++newSize;
+            }
+            if (newSize == size) return this;
+
+            return new Clowder(newCats.freeze(), newNames, newSize);
+        }
+
+        // stable sort: cats with the same weight stay in the order of the batch
+        List<FelineOverLord> sorted = new ArrayList<>(batch);
+        sorted.sort(null);
+
+        List<Bucket<FelineOverLord>> merged = new ArrayList<>();
+        HashTrie<String, Tree<FelineOverLord>> newNames = names;
+        long newSize = size;
+        Iterator<Bucket<FelineOverLord>> oldCats = cats.iterator();
+        Bucket<FelineOverLord> old = oldCats.hasNext() ? oldCats.next() : null;
+        List<FelineOverLord> sameWeight = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            FelineOverLord cat = sorted.get(i);
+            Tree<FelineOverLord> sameName = newNames.getOrDefault(cat.name(), new AvlEmpty<>());
+            Tree<FelineOverLord> newSameName = sameName.addData(cat);
+            if (newSameName != sameName) {
+                sameWeight.add(cat);
+                newNames = newNames.put(cat.name(), newSameName);
+                ++newSize;
+            }
+            if (sameWeight.isEmpty()) continue;
+            if (i + 1 < sorted.size() && sorted.get(i + 1).compareTo(cat) == 0) continue;
+
+            // last cat with this weight: add the bucket behind all lighter old buckets
+            Bucket<FelineOverLord> bucket = Bucket.of(sameWeight);
+            sameWeight.clear();
+            while (old != null && old.compareTo(bucket) < 0) {
+                merged.add(old);
+                old = oldCats.hasNext() ? oldCats.next() : null;
+            }
+            if (old != null && old.compareTo(bucket) == 0) {
+                bucket = old.withAll(bucket); // same weight: the old cats stay in front
+                old = oldCats.hasNext() ? oldCats.next() : null;
+            }
+            merged.add(bucket);
+        }
+        if (newSize == size) return this;
+
+        while (old != null) {
+            merged.add(old);
+            old = oldCats.hasNext() ? oldCats.next() : null;
+        }
+
+        return new Clowder(Tree.fromSorted(merged), newNames, newSize);
+    }
+
+    /**
+     * add all cat objects of another clowder
+     *
+     * <p>The trees are merged by {@link Tree#union(Tree, java.util.function.BinaryOperator)}, which
+     * splits and joins whole subtrees in parallel instead of inserting the cats one by one. Cats
+     * with the same weight in both clowders are merged into a single bucket, the cats of this
+     * clowder in front. Only the index by name is updated cat by cat.
+     *
+     * @param other clowder with the cats to add
+     * @return the new clowder, or this clowder if it already contains all cats of the other one
+     */
+    Clowder addAll(Clowder other) {
+        if (size == 0) return other;
+
+        HashTrie<String, Tree<FelineOverLord>> newNames = names;
+        long newSize = size;
+        for (FelineOverLord cat : other) {
+            Tree<FelineOverLord> sameName = newNames.getOrDefault(cat.name(), new AvlEmpty<>());
+            Tree<FelineOverLord> newSameName = sameName.addData(cat);
+            if (newSameName == sameName) continue;
+
+            newNames = newNames.put(cat.name(), newSameName);
+            ++newSize;
+        }
+        if (newSize == size) return this;
+
+        return new Clowder(cats.union(other.cats, Bucket::withAll), newNames, newSize);
+    }
+
+    /**
+     * remove cat object from the clowder
+     *
+     * <p>Only a cat equal to the given one (same name and weight) is removed, other cats with the
+     * same weight stay in their bucket. Both the tree and the index only copy a single path, so
+     * this takes O(log n) steps plus the size of the bucket.
+     *
+     * @param cat object
+     * @return the new clowder, or this clowder if there is no such cat
+     */
+    Clowder removeCat(FelineOverLord cat) {
+        // cats are compared by weight only: look in the cats with this name, not in all cats
+        Tree<FelineOverLord> sameName = names.get(cat.name());
+        if (sameName == null) return this;
+        Tree<FelineOverLord> newSameName = sameName.removeData(cat);
+        if (newSameName == sameName) return this;
+
+        Bucket<FelineOverLord> probe = Bucket.of(cat);
+        Bucket<FelineOverLord> bucket = cats.range(probe, true, probe, true).findFirst().get();
+        Bucket<FelineOverLord> rest = bucket.without(cat);
+        return new Clowder(
+                rest == null ? cats.removeData(probe) : cats.mergeData(rest, (stored, r) -> r),
+                newSameName.isEmpty()
+                        ? names.remove(cat.name())
+                        : names.put(cat.name(), newSameName),
+                size - 1);
+    }
+
+    /**
+     * call method with cat name and get the related cat object
+     * @param name of cat
+     * @return Optional of the lightest cat object with this name
+     */
+    Optional<FelineOverLord> getCatByName(String name) {
+        Tree<FelineOverLord> sameName = names.get(name);
+        if (sameName == null) return Optional.empty();
+
+        return Optional.of(sameName.select(0));
+    }
+
+    /**
+     * Iterate over all cats of this clowder.
+     *
+     * @return iterator over the cats sorted by weight, cats with the same weight in the order they
+     *     were added
+     */
+    @Override
+    public Iterator<FelineOverLord> iterator() {
+        return cats.stream().flatMap(Bucket::stream).iterator();
+    }
+}
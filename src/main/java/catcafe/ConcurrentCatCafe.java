@@ -0,0 +1,74 @@
+package catcafe;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+
+/**
+ * Thread-safe cat cafe without locks.
+ *
+ * <p>The whole state of the cafe is an immutable {@link Clowder}, which is published through an
+ * {@link AtomicReference}. Readers simply take the current clowder and work on this consistent
+ * snapshot without ever waiting. Writers compute a new clowder from the current one and publish it
+ * by compare-and-set; if another writer was faster, the change is applied again to the newer
+ * clowder after a short randomized back-off. Only if versions are retained, writers publish under
+ * the lock of the {@link VersionLog}, so the versions are numbered in the order of publication. A
+ * writer which published without the lock while versions were enabled appends its state afterwards,
+ * unless a later change has already been published on top of it.
+ */
+public class ConcurrentCatCafe extends CatCafe {
+    private static final int MAX_SPINS = 1 << 6;
+    private static final long MAX_PARK_NANOS = 1 << 16;
+
+    private final AtomicReference<Clowder> clowder = new AtomicReference<>(new Clowder());
+
+    @Override
+    Clowder clowder() {
+        return clowder.get();
+    }
+
+    @Override
+    void update(UnaryOperator<Clowder> change) {
+        int failures = 0;
+        while (true) {
+            Clowder current = clowder.get();
+            Clowder next = change.apply(current);
+            if (next == current) return;
+            if (versions().isEnabled()) {
+                synchronized (versions()) {
+                    if (clowder.compareAndSet(current, next)) {
+                        versions().append(next);
+                        return;
+                    }
+                }
+            } else if (clowder.compareAndSet(current, next)) {
+                if (versions().isEnabled()) recordRacingChange(next);
+                return;
+            }
+
+            backOff(++failures);
+        }
+    }
+
+    private void recordRacingChange(Clowder next) {
+        // the versions were enabled concurrently, maybe with the state before this change
+        synchronized (versions()) {
+            // a later change is published under the lock and includes this one in its version
+            if (clowder.get() == next) versions().append(next);
+        }
+    }
+
+    private static void backOff(int failures) {
+        // spin for short contention, park with growing randomized delays for heavy contention
+        int spins = Math.min(1 << Math.min(failures, 30), MAX_SPINS);
+        if (spins < MAX_SPINS) {
+            for (int i = ThreadLocalRandom.current().nextInt(spins); i >= 0; i--) {
+                Thread.onSpinWait();
+            }
+        } else {
+            long delay = Math.min(1L << Math.min(failures, 30), MAX_PARK_NANOS);
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(delay) + 1);
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package catcafe;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Thread-safe cat cafe which survives restarts and crashes.
+ *
+ * <p>Every added or removed cat is appended to a write-ahead log in a directory before {@link
+ * #addCat(FelineOverLord)} or {@link #removeCat(FelineOverLord)} returns. Forcing the log to disk
+ * is the expensive part, so it is done by a background thread for all changes made meanwhile at
+ * once (group commit): it waits up to the flush interval for more changes unless the flush size
+ * has been reached, and then makes all of them durable with a single write. Many concurrent
+ * writers thus share the cost of one disk flush.
+ *
+ * <p>Changes are only published to readers once they are durable. Writers apply their changes to a
+ * staged state under a lock, in the same order as they are logged, and the background thread
+ * publishes the staged state of a flush after forcing it to disk. Thus readers never see a cat
+ * which a crash could still lose. If writing the log fails, the cafe keeps the cats on disk and
+ * rejects all further changes; a change which throws an exception is not logged at all.
+ *
+ * <p>When the log has grown beyond the checkpoint size, the current cats are saved as a snapshot
+ * (see {@link CatCafe#saveSnapshot(Path)}), writing continues in a new log, and the old log is
+ * deleted. On startup the cafe is restored from the latest snapshot and the logs written after it.
+ * A record which was not completely written before a crash is detected by its checksum and cut
+ * off; the call writing it has not returned yet. Only the end of the last log written to can hold
+ * such a record: a corrupt record followed by complete records or by later logs has been
+ * acknowledged as durable, so it is reported as an error and the log is left as it is.
+ *
+ * <p>Reading works exactly like in {@link ConcurrentCatCafe}, without ever waiting.
+ */
+public final class DurableCatCafe extends ConcurrentCatCafe implements Closeable {
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ZERO;
+    private static final int DEFAULT_FLUSH_SIZE = 1 << 10;
+    private static final long DEFAULT_CHECKPOINT_SIZE = 64L << 20;
+
+    private static final String LOG_PREFIX = "log-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+
+    private final Path directory;
+    private final long flushIntervalNanos;
+    private final int flushSize;
+    private final long checkpointSize;
+
+    // guarded by lock: log records not written yet, sequence numbers and state of the log
+    private final Object lock = new Object();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream records = new DataOutputStream(pending);
+    private int pendingCount;
+    private Clowder staged;
+    private long appended;
+    private long durable;
+    private IOException failure;
+    private boolean closed;
+    private long generation;
+    private FileChannel log;
+
+    // only used by the flusher thread
+    private long logSize;
+    private final Thread flusher;
+
+    /**
+     * Open a durable cafe with default settings.
+     *
+     * <p>The log is flushed without waiting for more cats, so all cats added while a flush is in
+     * progress are made durable by the next one. A checkpoint is taken whenever the log exceeds 64
+     * MiB.
+     *
+     * @param directory directory for the log and snapshot files (created if missing)
+     * @throws IOException if the cafe cannot be restored from the directory
+     */
+    public DurableCatCafe(Path directory) throws IOException {
+        this(directory, DEFAULT_FLUSH_INTERVAL, DEFAULT_FLUSH_SIZE, DEFAULT_CHECKPOINT_SIZE);
+    }
+
+    /**
+     * Open a durable cafe, restoring all cats stored in the directory.
+     *
+     * @param directory directory for the log and snapshot files (created if missing)
+     * @param flushInterval how long to wait for more cats before flushing the log (may be zero)
+     * @param flushSize number of waiting cats which triggers a flush at once (at least 1)
+     * @param checkpointSize size of the log in bytes which triggers a checkpoint (at least 1)
+     * @throws IOException if the cafe cannot be restored from the directory
+     * @throws IllegalArgumentException if flushInterval is negative, or flushSize or checkpointSize
+     *     is not positive
+     */
+    public DurableCatCafe(
+            Path directory, Duration flushInterval, int flushSize, long checkpointSize)
+            throws IOException {
+        requireNonNull(directory);
+        if (flushInterval.isNegative()) throw new IllegalArgumentException("negative interval");
+        if (flushSize < 1) throw new IllegalArgumentException("flush size must be positive");
+        if (checkpointSize < 1) {
+            throw new IllegalArgumentException("checkpoint size must be positive");
+        }
+
+        this.directory = directory;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.flushSize = flushSize;
+        this.checkpointSize = checkpointSize;
+
+        Files.createDirectories(directory);
+        recover();
+
+        flusher = new Thread(this::flushLoop, "cat-cafe-log-" + directory.getFileName());
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * add cat object to Tree and to the log
+     *
+     * <p>Returns when the cat has been written to disk, together with all cats added concurrently.
+     *
+     * @param cat object
+     * @throws UncheckedIOException if writing the log fails
+     * @throws IllegalStateException if the cafe has been closed
+     */
+    @Override
+    public void addCat(FelineOverLord cat) {
+        requireNonNull(cat);
+
+        addCats(List.of(cat));
+    }
+
+    /**
+     * add several cat objects to Tree and to the log
+     *
+     * <p>Returns when all cats have been written to disk, which takes a single flush.
+     *
+     * @param cats objects (must not contain {@code null})
+     * @throws UncheckedIOException if writing the log fails
+     * @throws IllegalStateException if the cafe has been closed
+     */
+    @Override
+    public void addCats(Iterable<FelineOverLord> cats) {
+        List<FelineOverLord> batch = new ArrayList<>();
+        for (FelineOverLord cat : cats) {
+            batch.add(requireNonNull(cat));
+        }
+        if (batch.isEmpty()) return;
+
+        stage(
+                "addCats",
+                c -> batch.size() == 1 ? c.addCat(batch.get(0)) : c.addCats(batch),
+                ADD,
+                batch);
+    }
+
+    /**
+     * add all cat objects of another cafe to Tree and to the log
+     *
+     * <p>The cats are logged one by one, but merged into the cafe like with {@link
+     * CatCafe#addCats(CatCafe)}. Returns when all cats have been written to disk.
+     *
+     * @param other cafe with the cats to add (must not be {@code null})
+     * @throws UncheckedIOException if writing the log fails
+     * @throws IllegalStateException if the cafe has been closed
+     */
+    @Override
+    public void addCats(CatCafe other) {
+        Clowder added = other.clowder();
+        if (added.size() == 0) return;
+
+        // in the order of the merged buckets, so replaying the log yields the same cats
+        stage("addCafe", c -> c.addAll(added), ADD, added);
+    }
+
+    /**
+     * remove cat object from Tree and write this to the log
+     *
+     * <p>Returns when the removal has been written to disk, together with all changes made
+     * concurrently.
+     *
+     * @param cat object
+     * @throws UncheckedIOException if writing the log fails
+     * @throws IllegalStateException if the cafe has been closed
+     */
+    @Override
+    public void removeCat(FelineOverLord cat) {
+        requireNonNull(cat);
+
+        stage("removeCat", c -> c.removeCat(cat), REMOVE, List.of(cat));
+    }
+
+    /**
+     * Flush all added cats and stop writing the log.
+     *
+     * <p>The cats are still available for reading, but no more cats can be added.
+     *
+     * @throws IOException if the last flush failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            lock.notifyAll();
+        }
+
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        synchronized (lock) {
+            log.close();
+            if (failure != null) throw failure;
+        }
+    }
+
+    /**
+     * Apply a change to the staged state and log it, then wait until it has been published.
+     *
+     * @param operation name of the public method making the change, for the {@link CafeMetrics}
+     * @param change computes the new clowder from the staged one
+     * @param type record type for the cats
+     * @param cats cats to log, replaying them in this order must give the same change
+     */
+    private void stage(
+            String operation,
+            UnaryOperator<Clowder> change,
+            byte type,
+            Iterable<FelineOverLord> cats) {
+        CafeMetrics.Update measured = CafeMetrics.update(operation, change);
+        long sequence;
+        synchronized (lock) {
+            checkUsable();
+            // apply first, so a change which throws is not logged
+            Clowder next = measured.apply(staged);
+            if (next != staged) {
+                // log and apply in the same order, so replaying the log yields the same cats
+                for (FelineOverLord cat : cats) {
+                    appendRecord(type, cat);
+                }
+                staged = next;
+                lock.notifyAll();
+            }
+            // without a change, still wait for the changes it depends on
+            sequence = appended;
+        }
+        awaitDurable(sequence);
+        measured.commit();
+    }
+
+    private void checkUsable() {
+        if (closed) throw new IllegalStateException("cat cafe has been closed");
+        if (failure != null) throw new UncheckedIOException("writing the log failed", failure);
+    }
+
+    private void appendRecord(byte operation, FelineOverLord cat) {
+        // record: length and checksum of the payload, then operation, weight and UTF-8 name
+        byte[] name = cat.name().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(1 + Integer.BYTES + name.length);
+        payload.put(operation).putInt(cat.weight()).put(name);
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload.array());
+        try {
+            records.writeInt(payload.capacity());
+            records.writeInt((int) checksum.getValue());
+            records.write(payload.array());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen when writing into memory
+        }
+        ++pendingCount;
+        ++appended;
+    }
+
+    private void awaitDurable(long sequence) {
+        boolean interrupted = false;
+        synchronized (lock) {
+            while (durable < sequence && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (durable < sequence) throw new UncheckedIOException("writing the log failed", failure);
+    }
+
+    private void flushLoop() {
+        while (true) {
+            byte[] batch;
+            long target;
+            FileChannel channel;
+            Clowder flushed;
+            Clowder checkpoint = null;
+            synchronized (lock) {
+                try {
+                    while (pendingCount == 0 && !closed) {
+                        lock.wait();
+                    }
+                    // group commit: give other writers the chance to join this flush
+                    long deadline = System.nanoTime() + flushIntervalNanos;
+                    long delay;
+                    while (pendingCount < flushSize
+                            && !closed
+                            && (delay = deadline - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, delay);
+                    }
+                } catch (InterruptedException e) {
+                    // nobody else interrupts this thread: just flush now
+                }
+                if (pendingCount == 0) return; // closed and nothing left to flush
+
+                batch = pending.toByteArray();
+                pending.reset();
+                pendingCount = 0;
+                target = appended;
+                flushed = staged;
+                channel = log;
+                if (logSize + batch.length >= checkpointSize) {
+                    // new cats go into the next log, the snapshot covers everything up to here
+                    checkpoint = flushed;
+                    try {
+                        log = openLog(++generation);
+                    } catch (IOException e) {
+                        fail(e);
+                        return;
+                    }
+                }
+            }
+
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                logSize += batch.length;
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+            synchronized (lock) {
+                // publish in the order of the flushes, as the changes of a flush become durable
+                update(c -> flushed);
+                durable = target;
+                lock.notifyAll();
+            }
+
+            if (checkpoint != null) {
+                try {
+                    channel.close();
+                    checkpoint(checkpoint);
+                } catch (IOException e) {
+                    fail(e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void checkpoint(Clowder snapshot) throws IOException {
+        long covered;
+        synchronized (lock) {
+            covered = generation;
+        }
+        OffHeapCatCafe.writeSnapshot(snapshot, file(SNAPSHOT_PREFIX, covered));
+        logSize = 0;
+
+        // the snapshot contains all cats of the older files
+        for (long older : generations(SNAPSHOT_PREFIX).headMap(covered).keySet()) {
+            Files.deleteIfExists(file(SNAPSHOT_PREFIX, older));
+        }
+        for (long older : generations(LOG_PREFIX).headMap(covered).keySet()) {
+            Files.deleteIfExists(file(LOG_PREFIX, older));
+        }
+    }
+
+    private void fail(IOException e) {
+        synchronized (lock) {
+            failure = e;
+            lock.notifyAll();
+        }
+    }
+
+    private void recover() throws IOException {
+        TreeMap<Long, Path> snapshots = generations(SNAPSHOT_PREFIX);
+        TreeMap<Long, Path> logs = generations(LOG_PREFIX);
+
+        // snapshot n contains all cats of the logs before n
+        Clowder recovered = new Clowder();
+        if (!snapshots.isEmpty()) {
+            generation = snapshots.lastKey();
+            recovered = OffHeapCatCafe.openSnapshot(snapshots.get(generation)).clowder();
+        }
+        for (var entry : logs.tailMap(generation).entrySet()) {
+            generation = entry.getKey();
+            recovered = replay(entry.getValue(), recovered, isLast(logs, generation));
+        }
+        Clowder restored = recovered;
+        staged = restored;
+        update(c -> restored);
+
+        log = openLog(generation);
+        logSize = log.size();
+    }
+
+    private static boolean isLast(TreeMap<Long, Path> logs, long generation) throws IOException {
+        // a checkpoint may have created the next log before a crash, without writing to it
+        for (Path later : logs.tailMap(generation, false).values()) {
+            if (Files.size(later) > 0) return false;
+        }
+        return true;
+    }
+
+    private Clowder replay(Path path, Clowder clowder, boolean last) throws IOException {
+        // consecutive additions are applied as one batch
+        List<FelineOverLord> added = new ArrayList<>();
+        long size = Files.size(path);
+        long valid = 0;
+        try (InputStream file = Files.newInputStream(path);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                int length = in.readInt();
+                int expected = in.readInt();
+                if (length < 1 + Integer.BYTES || length > size - valid - 2 * Integer.BYTES) break;
+
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                CRC32C checksum = new CRC32C();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != expected) break;
+                if (payload[0] != ADD && payload[0] != REMOVE) break;
+
+                int weight = ByteBuffer.wrap(payload).getInt(1);
+                int offset = 1 + Integer.BYTES;
+                String name = new String(payload, offset, length - offset, StandardCharsets.UTF_8);
+                FelineOverLord cat = new FelineOverLord(name, weight);
+                if (payload[0] == ADD) {
+                    added.add(cat);
+                } else {
+                    clowder = clowder.addCats(added).removeCat(cat);
+                    added.clear();
+                }
+                valid += 2 * Integer.BYTES + length;
+            }
+        } catch (EOFException e) {
+            // the last record was not written completely
+        }
+
+        if (valid < size && (!last || hasRecordAfter(path, valid, size))) {
+            throw new IOException("corrupt record at byte " + valid + " of " + path);
+        }
+        // cut off an incomplete or corrupt record, so new records are appended to valid ones
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            if (channel.size() > valid) channel.truncate(valid);
+        }
+        return clowder.addCats(added);
+    }
+
+    private static boolean hasRecordAfter(Path path, long invalid, long size) throws IOException {
+        // a torn write only cuts off the end of the log, it leaves no complete record behind it
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = Math.min(size - invalid, Integer.MAX_VALUE);
+            ByteBuffer rest = channel.map(FileChannel.MapMode.READ_ONLY, invalid, length);
+            for (int position = 1; position < rest.limit(); position++) {
+                if (isRecord(rest, position)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRecord(ByteBuffer buffer, int position) {
+        if (buffer.limit() - position < 2 * Integer.BYTES) return false;
+        int length = buffer.getInt(position);
+        int payload = position + 2 * Integer.BYTES;
+        if (length < 1 + Integer.BYTES || length > buffer.limit() - payload) return false;
+        if (buffer.get(payload) != ADD && buffer.get(payload) != REMOVE) return false;
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(payload, length));
+        return (int) checksum.getValue() == buffer.getInt(position + Integer.BYTES);
+    }
+
+    private FileChannel openLog(long generation) throws IOException {
+        FileChannel channel =
+                FileChannel.open(
+                        file(LOG_PREFIX, generation),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    private Path file(String prefix, long generation) {
+        return directory.resolve(prefix + generation);
+    }
+
+    private TreeMap<Long, Path> generations(String prefix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> list = Files.list(directory)) {
+            list.forEach(
+                    path -> {
+                        String name = path.getFileName().toString();
+                        if (name.startsWith(prefix)
+                                && name.substring(prefix.length()).matches("\\d+")) {
+                            files.put(Long.parseLong(name.substring(prefix.length())), path);
+                        }
+                    });
+        }
+        return files;
+    }
+}
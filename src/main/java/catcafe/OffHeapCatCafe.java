@@ -0,0 +1,797 @@
+package catcafe;
+
+import static java.util.Objects.requireNonNull;
+
+import tree.Bucket;
+import tree.TreeRenderer;
+import tree.TreeVisitor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Cat cafe keeping its cats in off-heap columns instead of a tree of objects.
+ *
+ * <p>The cats are stored in direct {@link ByteBuffer}s outside of the Java heap: the UTF-8 encoded
+ * names of all cats one after another, the weights sorted ascending together with the row of the
+ * name of each cat, and an open addressing hash table over the names. {@link FelineOverLord}
+ * objects are only created when they are returned from a query. Thus even tens of millions of cats
+ * need only a few objects on the heap, and the garbage collector does not have to trace them.
+ *
+ * <p>New cats are collected and merged into the sorted columns in one pass before the next query.
+ * The merge works in place from the back, so it only moves the cats heavier than the lightest new
+ * one, and the columns grow geometrically like an {@code ArrayList}. Adding cats in bulk is thus
+ * cheap, while alternating between adding single cats and queries still moves part of the sorted
+ * columns each time. Removing a cat moves the columns behind it as well. Cats with the same weight
+ * stay in the order they were added, like the buckets of {@link CatCafe}. All names together must
+ * not exceed 2 GiB of UTF-8.
+ *
+ * <p>Operations which need a tree, like {@link #getState()}, copy all cats to the heap. The copy is
+ * kept until the cafe changes again. While versions are retained (see {@link
+ * #setVersionRetention(int, Duration)}), the copy is kept up to date instead: every change is
+ * applied to the columns and to the tree, and each new tree is recorded as a version, sharing its
+ * unchanged nodes with the older ones. This costs O(log n) per change and the memory on the heap
+ * which the columns are meant to save, so it only pays off for cafes which need their history.
+ *
+ * <p>The columns can be saved as a snapshot file, see {@link #saveSnapshot(Path)}, and a cafe
+ * opened from a snapshot with {@link #openSnapshot(Path)} serves its queries directly from the
+ * memory-mapped file. Columns of a mapped file are only copied into memory when they need to be
+ * changed.
+ *
+ * <p>Like {@link CatCafe}, this cafe is not thread-safe.
+ */
+public class OffHeapCatCafe extends CatCafe {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int MAX_PENDING = 1 << 16;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    private static final int ENTRY_BYTES = 2 * Integer.BYTES;
+    // columns and snapshots use the same byte order on all platforms
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final int MAGIC = 0x43415453; // "CATS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    // per row (in insertion order): end of the name of the cat in the names column
+    private ByteBuffer nameEnds;
+    private ByteBuffer names;
+    private int namesSize;
+    private int rowCount;
+
+    // sorted by weight: weight and row of each cat
+    private ByteBuffer weights;
+    private ByteBuffer rows;
+
+    // hash table by name: row + 1 (0 for a free slot) and weight of the lightest cat with the name
+    private ByteBuffer nameTable;
+    private int nameCount;
+
+    // a stream still reads the columns, so they must be replaced instead of changed in place
+    private boolean shared;
+
+    private final List<FelineOverLord> pending = new ArrayList<>();
+
+    // copy of the cats on the heap, built on demand and dropped on changes unless versions are kept
+    private Clowder heap;
+
+    /** Create an empty cafe. */
+    public OffHeapCatCafe() {
+        clear();
+    }
+
+    /**
+     * Open a snapshot file written by {@link CatCafe#saveSnapshot(Path)}.
+     *
+     * <p>The file is mapped into memory, not read: opening takes the same time for any number of
+     * cats, and the operating system only loads the parts of the file which are accessed by
+     * queries. The file must not be changed while the cafe is in use; cats added to the cafe are
+     * not written back to the file.
+     *
+     * @param path snapshot file
+     * @return cafe with the cats of the snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static OffHeapCatCafe openSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) throw new IOException("not a cat cafe snapshot");
+
+            ByteBuffer header = map(channel, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC) throw new IOException("not a cat cafe snapshot");
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("unsupported snapshot version " + header.getInt(4));
+            }
+
+            OffHeapCatCafe cafe = new OffHeapCatCafe();
+            cafe.rowCount = header.getInt(8);
+            cafe.namesSize = header.getInt(12);
+            int slots = header.getInt(16);
+            cafe.nameCount = header.getInt(20);
+            long rowBytes = (long) cafe.rowCount * Integer.BYTES;
+            long slotBytes = (long) slots * ENTRY_BYTES;
+            if (cafe.rowCount < 0
+                    || cafe.namesSize < 0
+                    || Integer.bitCount(slots) != 1
+                    || cafe.nameCount < 0
+                    || 2L * cafe.nameCount > slots
+                    || channel.size() != HEADER_BYTES + 3 * rowBytes + slotBytes + cafe.namesSize) {
+                throw new IOException("corrupt cat cafe snapshot");
+            }
+
+            long position = HEADER_BYTES;
+            cafe.weights = map(channel, position, rowBytes);
+            cafe.rows = map(channel, position += rowBytes, rowBytes);
+            cafe.nameEnds = map(channel, position += rowBytes, rowBytes);
+            cafe.nameTable = map(channel, position += rowBytes, slotBytes);
+            cafe.names = map(channel, position + slotBytes, cafe.namesSize);
+            return cafe;
+        }
+    }
+
+    /**
+     * Write the given cats into a snapshot file.
+     *
+     * <p>The cats of a clowder are already sorted and distinct, so they are appended to the columns
+     * in a single pass.
+     *
+     * @param cats cats to write
+     * @param path snapshot file, an existing file is replaced
+     * @throws IOException if writing the file fails
+     */
+    static void writeSnapshot(Clowder cats, Path path) throws IOException {
+        OffHeapCatCafe columns = new OffHeapCatCafe();
+        columns.appendSorted(cats);
+        columns.saveSnapshot(path);
+    }
+
+    /**
+     * write all cats into a snapshot file
+     *
+     * <p>The columns are written as they are, so this only takes a sequential write of the used
+     * part of each column.
+     *
+     * @param path snapshot file, an existing file is replaced
+     * @throws IOException if writing the file fails
+     */
+    @Override
+    public void saveSnapshot(Path path) throws IOException {
+        flush();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, rowCount);
+        header.putInt(12, namesSize);
+        header.putInt(16, nameTable.capacity() / ENTRY_BYTES);
+        header.putInt(20, nameCount);
+
+        // write a temporary file first, so a crash never leaves a partial snapshot behind
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel =
+                FileChannel.open(
+                        temp,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, header, HEADER_BYTES);
+            write(channel, weights, rowCount * Integer.BYTES);
+            write(channel, rows, rowCount * Integer.BYTES);
+            write(channel, nameEnds, rowCount * Integer.BYTES);
+            write(channel, nameTable, nameTable.capacity());
+            write(channel, names, namesSize);
+            channel.force(true);
+        }
+        Files.move(
+                temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void addCat(FelineOverLord cat) {
+        requireNonNull(cat);
+
+        changed(c -> c.addCat(cat));
+        pending.add(cat);
+        if (pending.size() >= MAX_PENDING) flush();
+    }
+
+    @Override
+    public void addCats(Iterable<FelineOverLord> cats) {
+        List<FelineOverLord> batch = new ArrayList<>();
+        for (FelineOverLord cat : cats) {
+            batch.add(requireNonNull(cat));
+        }
+
+        // a single version for the whole batch, like in the other cafes
+        changed(c -> c.addCats(batch));
+        pending.addAll(batch);
+        if (pending.size() >= MAX_PENDING) flush();
+    }
+
+    @Override
+    public void addCats(CatCafe other) {
+        // the columns are merged on flush anyway, there is no tree to join
+        if (other instanceof OffHeapCatCafe columns) {
+            columns.flush();
+            addCats(columns.stream(0, columns.rowCount)::iterator);
+        } else {
+            addCats(other.clowder());
+        }
+    }
+
+    /**
+     * remove cat object from the columns
+     *
+     * <p>The cat is removed from the sorted columns and its row from the other columns, which
+     * moves all cats behind it. If it was the lightest cat with its name, the heavier cats are
+     * searched for the next one with this name.
+     *
+     * @param cat object
+     */
+    @Override
+    public void removeCat(FelineOverLord cat) {
+        requireNonNull(cat);
+        flush();
+
+        byte[] name = cat.name().getBytes(StandardCharsets.UTF_8);
+        int index = find(name, cat.weight());
+        if (index < 0) return;
+
+        changed(c -> c.removeCat(cat));
+        unshare();
+        // columns of a snapshot are mapped read-only and copied on the first change
+        weights = ensureCapacity(weights, weights.capacity());
+        rows = ensureCapacity(rows, rows.capacity());
+        nameEnds = ensureCapacity(nameEnds, nameEnds.capacity());
+        names = ensureCapacity(names, names.capacity());
+        nameTable = ensureCapacity(nameTable, nameTable.capacity());
+
+        int row = rows.getInt(index * Integer.BYTES);
+        removeName(name, row, index);
+        move(index + 1, rowCount, -1);
+        removeRow(row);
+    }
+
+    @Override
+    public long getCatCount() {
+        flush();
+
+        return rowCount;
+    }
+
+    @Override
+    public Optional<FelineOverLord> getCatByRank(long rank) {
+        flush();
+        if (rank < 0 || rank >= rowCount) return Optional.empty();
+
+        return Optional.of(sortedCats().apply((int) rank));
+    }
+
+    @Override
+    public Optional<FelineOverLord> getCatByName(String name) {
+        if (name == null) return Optional.empty();
+        flush();
+
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(nameTable, bytes);
+        if (nameTable.getInt(slot * ENTRY_BYTES) == 0) return Optional.empty();
+
+        return Optional.of(new FelineOverLord(name, nameTable.getInt(slot * ENTRY_BYTES + 4)));
+    }
+
+    @Override
+    public Optional<FelineOverLord> getCatByWeight(int minWeight, int maxWeight) {
+        if (minWeight < 0) return Optional.empty();
+        if (maxWeight < minWeight) return Optional.empty();
+        flush();
+
+        int from = indexOf(weights, 0, rowCount, minWeight);
+        if (from == rowCount || weights.getInt(from * Integer.BYTES) >= maxWeight) {
+            return Optional.empty();
+        }
+        return Optional.of(sortedCats().apply(from));
+    }
+
+    /**
+     * method searches all cat objects with weight value between given parameters
+     *
+     * <p>The cat objects are only created while the stream is consumed.
+     *
+     * @param minWeight lower bound (inclusive)
+     * @param maxWeight upper bound (exclusive)
+     * @return stream of cat objects, sorted by weight
+     */
+    @Override
+    public Stream<FelineOverLord> getCatsByWeight(int minWeight, int maxWeight) {
+        if (minWeight < 0) return Stream.empty();
+        if (maxWeight < minWeight) return Stream.empty();
+        flush();
+
+        int from = indexOf(weights, 0, rowCount, minWeight);
+        int to = indexOf(weights, 0, rowCount, maxWeight);
+        return stream(from, to);
+    }
+
+    @Override
+    public List<FelineOverLord> getCatsWithWeight(int weight) {
+        if (weight < 0) return List.of();
+        flush();
+
+        int from = indexOf(weights, 0, rowCount, weight);
+        int to = endOf(weights, from, rowCount, weight);
+        return IntStream.range(from, to).mapToObj(sortedCats()).toList();
+    }
+
+    /**
+     * write all cats into an Appendable while traversing the tree
+     *
+     * <p>There is no tree in this cafe, so the renderer is called for the balanced tree over the
+     * buckets of sorted cats which {@link tree.Tree#fromSorted} would build. Only the start of each
+     * bucket is kept on the heap for this.
+     *
+     * @param renderer called back for each position of the traversal
+     * @param out destination of the output
+     * @throws IOException if writing to out fails
+     */
+    @Override
+    public void render(TreeRenderer<Bucket<FelineOverLord>> renderer, Appendable out)
+            throws IOException {
+        requireNonNull(renderer);
+        requireNonNull(out);
+        flush();
+
+        int[] starts = bucketStarts(weights, rowCount);
+        render(sortedCats(), starts, 0, starts.length - 1, renderer, out);
+    }
+
+    @Override
+    String accept(TreeVisitor<Bucket<FelineOverLord>> visitor) {
+        return clowder().cats().accept(visitor);
+    }
+
+    /**
+     * Build a clowder with all cats of this cafe on the heap.
+     *
+     * <p>The first call after a change copies all cats, so this is only meant for operations which
+     * need a tree. The clowder is kept until the next change.
+     *
+     * @return a clowder with all cats
+     */
+    @Override
+    Clowder clowder() {
+        if (heap == null) {
+            flush();
+            List<FelineOverLord> cats =
+                    IntStream.range(0, rowCount).mapToObj(sortedCats()).toList();
+            heap = new Clowder().addCats(cats);
+        }
+        return heap;
+    }
+
+    /**
+     * Replace the cats of this cafe.
+     *
+     * <p>This copies all cats to the heap and back, it is only meant as fallback for operations
+     * which need a tree.
+     *
+     * @param change computes the new clowder from the current one
+     */
+    @Override
+    void update(UnaryOperator<Clowder> change) {
+        Clowder current = clowder();
+        Clowder next = change.apply(current);
+        if (next == current) return;
+
+        clear();
+        appendSorted(next);
+        heap = next;
+        if (versions().isEnabled()) versions().append(next);
+    }
+
+    /**
+     * Apply a change to the copy on the heap while versions are retained, before the columns
+     * change.
+     *
+     * <p>The change is recorded as the next version. Without versions, the copy is just dropped.
+     *
+     * @param change computes the new clowder from the current one
+     */
+    private void changed(UnaryOperator<Clowder> change) {
+        if (!versions().isEnabled()) {
+            heap = null;
+            return;
+        }
+
+        Clowder current = clowder();
+        heap = change.apply(current);
+        versions().append(heap);
+    }
+
+    private void clear() {
+        nameEnds = allocate((long) INITIAL_CAPACITY * Integer.BYTES);
+        names = allocate(16L * INITIAL_CAPACITY);
+        namesSize = 0;
+        rowCount = 0;
+        weights = allocate((long) INITIAL_CAPACITY * Integer.BYTES);
+        rows = allocate((long) INITIAL_CAPACITY * Integer.BYTES);
+        nameTable = allocate((long) INITIAL_CAPACITY * ENTRY_BYTES);
+        nameCount = 0;
+        shared = false;
+        pending.clear();
+        heap = null;
+    }
+
+    /** Merge the pending cats into the sorted columns. */
+    private void flush() {
+        if (pending.isEmpty()) return;
+
+        // stable sort: cats with equal weight stay in the order they were added
+        List<FelineOverLord> batch = new ArrayList<>(pending);
+        pending.clear();
+        batch.sort(Comparator.comparingInt(FelineOverLord::weight));
+
+        int oldSize = rowCount;
+        int[] newWeights = new int[batch.size()];
+        int[] newRows = new int[batch.size()];
+        int added = 0;
+        for (FelineOverLord cat : batch) {
+            int weight = cat.weight();
+            byte[] name = cat.name().getBytes(StandardCharsets.UTF_8);
+            if (contains(oldSize, newWeights, newRows, added, name, weight)) continue;
+
+            newWeights[added] = weight;
+            newRows[added++] = appendRow(name, weight);
+        }
+        if (added == 0) return;
+
+        unshare();
+        weights = ensureCapacity(weights, (long) rowCount * Integer.BYTES);
+        rows = ensureCapacity(rows, (long) rowCount * Integer.BYTES);
+        // merge from the back, so each old cat is moved at most once and only if it has to
+        int end = oldSize;
+        for (int index = added - 1; index >= 0; index--) {
+            // old cats with the same weight stay in front of the new ones
+            int from = endOf(weights, 0, end, newWeights[index]);
+            move(from, end, index + 1);
+            weights.putInt((from + index) * Integer.BYTES, newWeights[index]);
+            rows.putInt((from + index) * Integer.BYTES, newRows[index]);
+            end = from;
+        }
+    }
+
+    /**
+     * Append cats to the columns, without merging.
+     *
+     * @param cats sorted by weight and distinct, none lighter than the stored cats
+     */
+    private void appendSorted(Iterable<FelineOverLord> cats) {
+        flush();
+        unshare();
+
+        for (FelineOverLord cat : cats) {
+            int size = rowCount;
+            weights = ensureCapacity(weights, (size + 1L) * Integer.BYTES);
+            rows = ensureCapacity(rows, (size + 1L) * Integer.BYTES);
+            byte[] name = cat.name().getBytes(StandardCharsets.UTF_8);
+            weights.putInt(size * Integer.BYTES, cat.weight());
+            rows.putInt(size * Integer.BYTES, appendRow(name, cat.weight()));
+        }
+    }
+
+    private void move(int from, int to, int distance) {
+        // bulk copies within a buffer behave as if copied through an intermediate array
+        int length = (to - from) * Integer.BYTES;
+        weights.put((from + distance) * Integer.BYTES, weights, from * Integer.BYTES, length);
+        rows.put((from + distance) * Integer.BYTES, rows, from * Integer.BYTES, length);
+    }
+
+    private void unshare() {
+        if (!shared) return;
+
+        weights = copyOf(weights);
+        rows = copyOf(rows);
+        nameEnds = copyOf(nameEnds);
+        names = copyOf(names);
+        shared = false;
+    }
+
+    private boolean contains(
+            int oldSize, int[] newWeights, int[] newRows, int added, byte[] name, int weight) {
+        // only names in the table can be stored, so new names need no scan of the equal weights
+        if (nameTable.getInt(findSlot(nameTable, name) * ENTRY_BYTES) == 0) return false;
+
+        for (int index = added - 1; index >= 0 && newWeights[index] == weight; index--) {
+            if (hasName(newRows[index], name)) return true;
+        }
+        int index = indexOf(weights, 0, oldSize, weight);
+        for (; index < oldSize && weights.getInt(index * Integer.BYTES) == weight; index++) {
+            if (hasName(rows.getInt(index * Integer.BYTES), name)) return true;
+        }
+        return false;
+    }
+
+    private int find(byte[] name, int weight) {
+        // position of the cat in the sorted columns, or -1
+        int index = indexOf(weights, 0, rowCount, weight);
+        for (; index < rowCount && weights.getInt(index * Integer.BYTES) == weight; index++) {
+            if (hasName(rows.getInt(index * Integer.BYTES), name)) return index;
+        }
+        return -1;
+    }
+
+    private void removeName(byte[] name, int row, int index) {
+        int slot = findSlot(nameTable, name);
+        if (nameTable.getInt(slot * ENTRY_BYTES) != row + 1) return;
+
+        // the removed cat was the lightest with its name, so the next one can only be heavier
+        for (int next = index + 1; next < rowCount; next++) {
+            int nextRow = rows.getInt(next * Integer.BYTES);
+            if (hasName(nextRow, name)) {
+                nameTable.putInt(slot * ENTRY_BYTES, nextRow + 1);
+                nameTable.putInt(slot * ENTRY_BYTES + 4, weights.getInt(next * Integer.BYTES));
+                return;
+            }
+        }
+
+        // linear probing: move later entries back into the hole, unless it is before their home
+        int mask = nameTable.capacity() / ENTRY_BYTES - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask;
+                nameTable.getInt(next * ENTRY_BYTES) != 0;
+                next = (next + 1) & mask) {
+            int entry = nameTable.getInt(next * ENTRY_BYTES);
+            int home = homeSlot(nameOf(names, nameEnds, entry - 1), mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                nameTable.putLong(hole * ENTRY_BYTES, nameTable.getLong(next * ENTRY_BYTES));
+                hole = next;
+            }
+        }
+        nameTable.putLong(hole * ENTRY_BYTES, 0);
+        --nameCount;
+    }
+
+    private void removeRow(int row) {
+        int start = row > 0 ? nameEnds.getInt((row - 1) * Integer.BYTES) : 0;
+        int end = nameEnds.getInt(row * Integer.BYTES);
+        int length = end - start;
+        names.put(start, names, end, namesSize - end);
+        namesSize -= length;
+        for (int next = row + 1; next < rowCount; next++) {
+            int nameEnd = nameEnds.getInt(next * Integer.BYTES);
+            nameEnds.putInt((next - 1) * Integer.BYTES, nameEnd - length);
+        }
+        --rowCount;
+
+        // all later rows move up by one
+        for (int index = 0; index < rowCount; index++) {
+            int later = rows.getInt(index * Integer.BYTES);
+            if (later > row) rows.putInt(index * Integer.BYTES, later - 1);
+        }
+        for (int slot = 0; slot < nameTable.capacity() / ENTRY_BYTES; slot++) {
+            int entry = nameTable.getInt(slot * ENTRY_BYTES);
+            if (entry > row + 1) nameTable.putInt(slot * ENTRY_BYTES, entry - 1);
+        }
+    }
+
+    private int appendRow(byte[] name, int weight) {
+        names = ensureCapacity(names, (long) namesSize + name.length);
+        names.put(namesSize, name);
+        namesSize += name.length;
+
+        int row = rowCount++;
+        nameEnds = ensureCapacity(nameEnds, (long) rowCount * Integer.BYTES);
+        nameEnds.putInt(row * Integer.BYTES, namesSize);
+
+        putName(name, row, weight);
+        return row;
+    }
+
+    private void putName(byte[] name, int row, int weight) {
+        nameTable = ensureCapacity(nameTable, nameTable.capacity());
+        if (2L * (nameCount + 1) > nameTable.capacity() / ENTRY_BYTES) {
+            // keep the load factor below 1/2, so probe sequences stay short
+            ByteBuffer newTable = allocate(2L * nameTable.capacity());
+            for (int slot = 0; slot < nameTable.capacity() / ENTRY_BYTES; slot++) {
+                int entry = nameTable.getInt(slot * ENTRY_BYTES);
+                if (entry == 0) continue;
+
+                int newSlot = findSlot(newTable, nameOf(names, nameEnds, entry - 1));
+                int weightOfEntry = nameTable.getInt(slot * ENTRY_BYTES + 4);
+                newTable.putInt(newSlot * ENTRY_BYTES, entry);
+                newTable.putInt(newSlot * ENTRY_BYTES + 4, weightOfEntry);
+            }
+            nameTable = newTable;
+        }
+
+        int slot = findSlot(nameTable, name);
+        if (nameTable.getInt(slot * ENTRY_BYTES) == 0) {
+            ++nameCount;
+        } else if (nameTable.getInt(slot * ENTRY_BYTES + 4) < weight) {
+            return; // keep the lightest cat with this name
+        }
+        nameTable.putInt(slot * ENTRY_BYTES, row + 1);
+        nameTable.putInt(slot * ENTRY_BYTES + 4, weight);
+    }
+
+    private int findSlot(ByteBuffer table, byte[] name) {
+        int mask = table.capacity() / ENTRY_BYTES - 1;
+        for (int slot = homeSlot(name, mask); ; slot = (slot + 1) & mask) {
+            int entry = table.getInt(slot * ENTRY_BYTES);
+            if (entry == 0 || hasName(entry - 1, name)) return slot;
+        }
+    }
+
+    private static int homeSlot(byte[] name, int mask) {
+        int hash = Arrays.hashCode(name);
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private boolean hasName(int row, byte[] name) {
+        int start = row > 0 ? nameEnds.getInt((row - 1) * Integer.BYTES) : 0;
+        int end = nameEnds.getInt(row * Integer.BYTES);
+        return end - start == name.length
+                && names.slice(start, name.length).equals(ByteBuffer.wrap(name));
+    }
+
+    /**
+     * Stream the cats at the given positions in the sorted order.
+     *
+     * <p>The columns are captured, so later changes of the cafe do not change the stream: they
+     * replace the columns instead of changing them in place.
+     *
+     * @param from first position (inclusive)
+     * @param to last position (exclusive)
+     * @return stream of cat objects, created while the stream is consumed
+     */
+    private Stream<FelineOverLord> stream(int from, int to) {
+        shared = true;
+        return IntStream.range(from, to).mapToObj(sortedCats());
+    }
+
+    /**
+     * Create the cat objects for the current columns.
+     *
+     * <p>The function must only be used before the next change of the cafe, see {@link
+     * #stream(int, int)} for cats which are read later.
+     *
+     * @return function creating the cat object at a position in the sorted order
+     */
+    private IntFunction<FelineOverLord> sortedCats() {
+        ByteBuffer weights = this.weights;
+        ByteBuffer rows = this.rows;
+        ByteBuffer nameEnds = this.nameEnds;
+        ByteBuffer names = this.names;
+        return index -> {
+            byte[] name = nameOf(names, nameEnds, rows.getInt(index * Integer.BYTES));
+            int weight = weights.getInt(index * Integer.BYTES);
+            return new FelineOverLord(new String(name, StandardCharsets.UTF_8), weight);
+        };
+    }
+
+    private static byte[] nameOf(ByteBuffer names, ByteBuffer nameEnds, int row) {
+        int start = row > 0 ? nameEnds.getInt((row - 1) * Integer.BYTES) : 0;
+        byte[] name = new byte[nameEnds.getInt(row * Integer.BYTES) - start];
+        names.get(start, name);
+        return name;
+    }
+
+    private static int indexOf(ByteBuffer weights, int from, int to, int weight) {
+        // position of the first cat not lighter than weight
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (weights.getInt(mid * Integer.BYTES) < weight) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int endOf(ByteBuffer weights, int from, int to, int weight) {
+        // position of the first cat heavier than weight
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (weights.getInt(mid * Integer.BYTES) <= weight) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] bucketStarts(ByteBuffer weights, int size) {
+        // start of each run of equal weights, plus size as end of the last one
+        int[] starts = new int[size + 1];
+        int count = 0;
+        for (int index = 0; index < size; index++) {
+            int weight = weights.getInt(index * Integer.BYTES);
+            if (index == 0 || weights.getInt((index - 1) * Integer.BYTES) != weight) {
+                starts[count++] = index;
+            }
+        }
+        starts[count++] = size;
+        return Arrays.copyOf(starts, count);
+    }
+
+    private static void render(
+            IntFunction<FelineOverLord> cats,
+            int[] starts,
+            int from,
+            int to,
+            TreeRenderer<Bucket<FelineOverLord>> renderer,
+            Appendable out)
+            throws IOException {
+        if (from >= to) {
+            renderer.renderEmpty(out);
+            return;
+        }
+
+        // same shape as Tree.fromSorted, the recursion depth is only logarithmic
+        int mid = (from + to) >>> 1;
+        Bucket<FelineOverLord> bucket =
+                Bucket.of(IntStream.range(starts[mid], starts[mid + 1]).mapToObj(cats).toList());
+        renderer.beforeNode(bucket, out);
+        render(cats, starts, from, mid, renderer, out);
+        renderer.betweenChildren(bucket, out);
+        render(cats, starts, mid + 1, to, renderer, out);
+        renderer.afterNode(bucket, out);
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        if (bytes > MAX_CAPACITY) throw new IllegalStateException("off-heap column is full");
+        return ByteBuffer.allocateDirect((int) bytes).order(ORDER);
+    }
+
+    private static ByteBuffer copyOf(ByteBuffer column) {
+        ByteBuffer copy = allocate(column.capacity());
+        copy.put(0, column, 0, column.capacity());
+        return copy;
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer column, long bytes) {
+        if (bytes <= column.capacity() && !column.isReadOnly()) return column;
+
+        // columns of a snapshot are mapped read-only and copied on the first change
+        long capacity =
+                bytes <= column.capacity()
+                        ? column.capacity()
+                        : Math.max(bytes, Math.min(2L * column.capacity(), MAX_CAPACITY));
+        ByteBuffer grown = allocate(capacity);
+        grown.put(0, column, 0, column.capacity());
+        return grown;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long bytes)
+            throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, bytes).order(ORDER);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer column, int bytes)
+            throws IOException {
+        ByteBuffer used = column.slice(0, bytes);
+        while (used.hasRemaining()) {
+            channel.write(used);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package catcafe;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of query results for a single state of a cafe.
+ *
+ * <p>A {@link Clowder} never changes, so a result computed for it stays valid as long as the cafe
+ * has this clowder. The cache remembers the clowder its results belong to and simply drops all of
+ * them when asked about the current clowder of the cafe after a change: there is no invalidation
+ * on writes. A reader still holding an older clowder gets its result computed, but it neither
+ * evicts nor joins the results of the current one. Within a clowder the least recently used result
+ * is evicted when the cache is full.
+ *
+ * <p>The cache is thread-safe. Results are computed outside the lock, so a slow query does not
+ * block other readers; two readers missing the same query at once may both compute it.
+ */
+final class QueryCache {
+    private final Supplier<Clowder> current;
+    private volatile int capacity;
+
+    // guarded by this
+    private Clowder clowder;
+    private final Map<Object, Object> results =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                    return size() > capacity;
+                }
+            };
+    private long hits;
+    private long misses;
+
+    /**
+     * Create a disabled cache for a cafe.
+     *
+     * @param current supplies the current clowder of the cafe
+     */
+    QueryCache(Supplier<Clowder> current) {
+        this.current = current;
+    }
+
+    /**
+     * Change the maximum number of cached results.
+     *
+     * @param capacity maximum number of results, {@code 0} disables the cache
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    synchronized void setCapacity(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity must not be negative");
+
+        this.capacity = capacity;
+        results.clear();
+    }
+
+    /**
+     * Look up the result of a query, computing it on a miss.
+     *
+     * @param clowder state the query is answered for
+     * @param query key of the query, with {@code equals} and {@code hashCode} of a value
+     * @param compute answers the query for the clowder (must not return {@code null})
+     * @param <R> type of the result
+     * @return cached or computed result
+     */
+    @SuppressWarnings("unchecked")
+    <R> R get(Clowder clowder, Object query, Function<Clowder, R> compute) {
+        if (capacity == 0) return compute.apply(clowder);
+
+        synchronized (this) {
+            // only the current clowder replaces the results, a reader behind a change does not
+            if (clowder != this.clowder && clowder == current.get()) {
+                // the cafe has changed: no result of the old clowder is valid any more
+                results.clear();
+                this.clowder = clowder;
+            }
+            Object result = clowder == this.clowder ? results.get(query) : null;
+            if (result != null) {
+                ++hits;
+                return (R) result;
+            }
+            ++misses;
+        }
+
+        R result = compute.apply(clowder);
+        synchronized (this) {
+            if (clowder == this.clowder && capacity > 0) results.put(query, result);
+        }
+        return result;
+    }
+
+    /**
+     * Take a snapshot of the counters of this cache.
+     *
+     * @return current statistics
+     */
+    synchronized QueryCacheStats stats() {
+        return new QueryCacheStats(hits, misses, results.size(), capacity);
+    }
+}
@@ -0,0 +1,21 @@
+package catcafe;
+
+/**
+ * Statistics of the query cache of a {@link CatCafe}.
+ *
+ * @param hits number of queries answered from the cache
+ * @param misses number of queries which had to be computed
+ * @param size number of results cached right now
+ * @param capacity maximum number of cached results, {@code 0} if the cache is disabled
+ */
+public record QueryCacheStats(long hits, long misses, int size, int capacity) {
+    /**
+     * Which share of the cached queries was answered from the cache?
+     *
+     * @return hits divided by all lookups, {@code 0} if there were none
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,23 @@
+package catcafe;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JFR event for a query of a cafe, see {@link CafeMetrics}. */
+@Name("catcafe.Query")
+@Label("Cat Cafe Query")
+@Category("Cat Cafe")
+@Description("Query answered by a cafe")
+final class QueryEvent extends Event {
+    @Label("Query")
+    String query;
+
+    @Label("Comparisons")
+    long comparisons;
+
+    @Label("Visited Nodes")
+    long visitedNodes;
+}
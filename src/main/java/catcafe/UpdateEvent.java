@@ -0,0 +1,29 @@
+package catcafe;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JFR event for a change of a cafe, see {@link CafeMetrics}. */
+@Name("catcafe.Update")
+@Label("Cat Cafe Update")
+@Category("Cat Cafe")
+@Description("Cats added to or removed from a cafe")
+final class UpdateEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Comparisons")
+    long comparisons;
+
+    @Label("Allocated Nodes")
+    long allocatedNodes;
+
+    @Label("Tree Height")
+    int height;
+
+    @Label("Cats")
+    long cats;
+}
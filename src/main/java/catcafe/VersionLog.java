@@ -0,0 +1,157 @@
+package catcafe;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Bounded log of the recent states of a cafe.
+ *
+ * <p>A {@link Clowder} never changes, so keeping an old state only keeps its tree alive: the
+ * versions share all unchanged subtrees with each other. Each change of the cafe is appended as a
+ * new version with the next number, and the oldest versions are dropped as soon as there are more
+ * than the maximum number of versions, or they have become older than the maximum age. The newest
+ * version is always kept. Versions expire while nothing is appended as well: lookups treat them as
+ * dropped once they are older than the maximum age, and the next append drops them for good.
+ *
+ * <p>Readers look up versions without a lock. Appending takes the lock of this log; the log is
+ * disabled by default, and then a change only reads a single flag.
+ */
+final class VersionLog {
+    private volatile int maxVersions;
+    private volatile Duration maxAge = ChronoUnit.FOREVER.getDuration();
+
+    // guarded by this
+    private long latest;
+
+    private final ConcurrentNavigableMap<Long, Version> versions = new ConcurrentSkipListMap<>();
+
+    /**
+     * Are versions recorded?
+     *
+     * @return {@code true} if changes have to be appended
+     */
+    boolean isEnabled() {
+        return maxVersions > 0;
+    }
+
+    /**
+     * Change how many versions are kept.
+     *
+     * <p>Enabling the log records the current state as its first version. Disabling it drops all
+     * versions, but the numbers of later versions still continue after the old ones.
+     *
+     * @param maxVersions maximum number of versions, {@code 0} disables the log
+     * @param maxAge maximum age of the versions
+     * @param current supplies the current state of the cafe
+     * @throws IllegalArgumentException if maxVersions or maxAge is negative
+     */
+    synchronized void setRetention(int maxVersions, Duration maxAge, Supplier<Clowder> current) {
+        if (maxVersions < 0) throw new IllegalArgumentException("maxVersions must not be negative");
+        if (maxAge.isNegative()) throw new IllegalArgumentException("maxAge must not be negative");
+
+        boolean wasEnabled = isEnabled();
+        this.maxVersions = maxVersions;
+        this.maxAge = maxAge;
+        if (!isEnabled()) {
+            versions.clear();
+        } else if (!wasEnabled) {
+            append(current.get());
+        } else {
+            prune(Instant.now());
+        }
+    }
+
+    /**
+     * Record a new state of the cafe as the next version.
+     *
+     * <p>Callers which publish states concurrently must publish and append while holding the lock
+     * of this log, so the versions are numbered in the order of publication. A state which already
+     * is the newest version is not appended again.
+     *
+     * @param clowder the new state
+     */
+    synchronized void append(Clowder clowder) {
+        if (!isEnabled()) return;
+        Map.Entry<Long, Version> newest = versions.lastEntry();
+        if (newest != null && newest.getValue().clowder() == clowder) return;
+
+        Instant now = Instant.now();
+        ++latest;
+        versions.put(latest, new Version(new CafeVersion(latest, now, clowder.size()), clowder));
+        prune(now);
+    }
+
+    /**
+     * Get the number of the newest version.
+     *
+     * @return version number
+     * @throws IllegalStateException if the log is disabled
+     */
+    long latest() {
+        Map.Entry<Long, Version> newest = versions.lastEntry();
+        if (newest == null) throw new IllegalStateException("versions are not retained");
+        return newest.getKey();
+    }
+
+    /**
+     * Get the state of a retained version.
+     *
+     * @param version number of the version
+     * @return state of the cafe at this version
+     * @throws IllegalArgumentException if the version is not retained (any more)
+     */
+    Clowder get(long version) {
+        Version retained = versions.get(version);
+        if (retained == null || !isRetained(retained, Instant.now())) {
+            throw new IllegalArgumentException("version " + version + " is not retained");
+        }
+        return retained.clowder();
+    }
+
+    /**
+     * List the retained versions.
+     *
+     * @return versions from the oldest to the newest one
+     */
+    List<CafeVersion> list() {
+        Instant now = Instant.now();
+        return versions.values().stream()
+                .filter(version -> isRetained(version, now))
+                .map(Version::info)
+                .toList();
+    }
+
+    private void prune(Instant now) {
+        // the versions are numbered without gaps from the first to the latest one
+        while (latest - versions.firstKey() >= maxVersions) {
+            versions.pollFirstEntry();
+        }
+        while (versions.firstKey() < latest && isExpired(versions.firstEntry().getValue(), now)) {
+            versions.pollFirstEntry();
+        }
+    }
+
+    private boolean isRetained(Version version, Instant now) {
+        // without a lock: the newest version is always kept, older ones only until they expire
+        Map.Entry<Long, Version> newest = versions.lastEntry();
+        return newest != null && (newest.getValue() == version || !isExpired(version, now));
+    }
+
+    private boolean isExpired(Version version, Instant now) {
+        return Duration.between(version.info().timestamp(), now).compareTo(maxAge) > 0;
+    }
+
+    /**
+     * A retained version.
+     *
+     * @param info number, timestamp and size of the version
+     * @param clowder state of the cafe at this version
+     */
+    private record Version(CafeVersion info, Clowder clowder) {}
+}
@@ -0,0 +1,110 @@
+package catcafe;
+
+import tree.Bucket;
+import tree.Tree;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Immutable index of the cats of a single clowder by weight.
+ *
+ * <p>The weights are stored as a sorted {@code int[]} next to an array with the cats in the same
+ * order, so weight queries are a binary search over primitive ints followed by a scan over
+ * consecutive array elements, without calling {@link FelineOverLord#compareTo} or following any
+ * tree nodes. The buckets of cats with the same weight are flattened, so the position of a cat in
+ * the arrays is its rank. Building the index takes O(n), so it only pays off for a clowder which is
+ * queried several times.
+ */
+final class WeightIndex {
+    /** Largest number of cats which fit into the arrays of an index. */
+    static final long MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    private final Tree<Bucket<FelineOverLord>> cats;
+    private final int[] weights;
+    private final FelineOverLord[] sorted;
+
+    private WeightIndex(Tree<Bucket<FelineOverLord>> cats, int[] weights, FelineOverLord[] sorted) {
+        this.cats = cats;
+        this.weights = weights;
+        this.sorted = sorted;
+    }
+
+    /**
+     * Build the index for a tree of cats.
+     *
+     * @param cats buckets of cats sorted by weight
+     * @param size number of cats in all buckets (at most {@link #MAX_SIZE})
+     * @return the new index
+     */
+    static WeightIndex of(Tree<Bucket<FelineOverLord>> cats, long size) {
+        int[] weights = new int[Math.toIntExact(size)];
+        FelineOverLord[] sorted = new FelineOverLord[weights.length];
+        int i = 0;
+        for (Bucket<FelineOverLord> bucket : cats) {
+            for (FelineOverLord cat : bucket) {
+                weights[i] = cat.weight();
+                sorted[i++] = cat;
+            }
+        }
+        return new WeightIndex(cats, weights, sorted);
+    }
+
+    /**
+     * Access the tree this index was built for.
+     *
+     * @return tree of buckets
+     */
+    Tree<Bucket<FelineOverLord>> cats() {
+        return cats;
+    }
+
+    /**
+     * Access the cat at the given position when sorted by weight.
+     *
+     * @param rank zero-based position, i.e. rank 0 is the lightest cat
+     * @return cat object
+     * @throws ArrayIndexOutOfBoundsException if there is no cat with this rank
+     */
+    FelineOverLord get(int rank) {
+        return sorted[rank];
+    }
+
+    /**
+     * Find the lightest cat with a weight in the given range.
+     *
+     * @param minWeight lower bound (inclusive)
+     * @param maxWeight upper bound (exclusive)
+     * @return cat object, or {@code null} if there is no cat within the range
+     */
+    FelineOverLord first(int minWeight, int maxWeight) {
+        int from = indexOf(minWeight);
+        return from < weights.length && weights[from] < maxWeight ? sorted[from] : null;
+    }
+
+    /**
+     * Stream all cats with a weight in the given range.
+     *
+     * @param minWeight lower bound (inclusive)
+     * @param maxWeight upper bound (exclusive, not smaller than minWeight)
+     * @return stream of cat objects, sorted by weight
+     */
+    Stream<FelineOverLord> range(int minWeight, int maxWeight) {
+        return Arrays.stream(sorted, indexOf(minWeight), indexOf(maxWeight));
+    }
+
+    private int indexOf(int weight) {
+        // position of the first cat not lighter than weight, which is the first of its bucket
+        int low = 0;
+        int high = weights.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (weights[mid] < weight) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
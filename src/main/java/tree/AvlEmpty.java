@@ -0,0 +1,84 @@
+package tree;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Empty node in a self-balancing (AVL) binary search tree.
+ *
+ * <p>Adding data to an {@code AvlEmpty} creates an {@link AvlNode}, so a tree started from an
+ * {@code AvlEmpty} stays balanced on every subsequent {@link #addData(Comparable)}.
+ *
+ * @param <T> parametric type of the node data
+ */
+public record AvlEmpty<T extends Comparable<T>>() implements Tree<T> {
+    @Override
+    public boolean isEmpty() {
+        return true;
+    }
+
+    @Override
+    public int height() {
+        return 0;
+    }
+
+    @Override
+    public long size() {
+        return 0;
+    }
+
+    @Override
+    public long digest() {
+        return 0;
+    }
+
+    @Override
+    public Tree<T> addData(T data) {
+        requireNonNull(data);
+
+        // both children may share this (immutable) empty node
+        return new AvlNode<>(this, data, this);
+    }
+
+    @Override
+    public Tree<T> mergeData(T data, BinaryOperator<T> merge) {
+        requireNonNull(merge);
+
+        return addData(data);
+    }
+
+    @Override
+    public Tree<T> removeData(T data) {
+        requireNonNull(data);
+
+        return this;
+    }
+
+    @Override
+    public String accept(TreeVisitor<T> visitor) {
+        requireNonNull(visitor);
+
+        return visitor.visit(this);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new TreeIterator<>(this);
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        requireNonNull(action);
+
+        iterator().forEachRemaining(action);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new TreeSpliterator<>(this);
+    }
+}
@@ -0,0 +1,269 @@
+package tree;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Join-based set operations on self-balancing (AVL) trees.
+ *
+ * <p>All operations are built on {@link #join}, which concatenates two balanced trees around a
+ * separating object in O(difference of the heights) steps, and {@link #split}, which cuts a
+ * balanced tree at an object in O(height) steps. Merging a tree of size {@code m} into one of size
+ * {@code n >= m} takes O(m log(n / m + 1)) steps, so a small tree is merged in about O(m log n),
+ * and two trees of equal size in O(n) instead of O(n log n) for inserting one by one. Both results
+ * of a split are independent, so large operations recurse on them in parallel with fork/join.
+ *
+ * <p>Like {@link AvlNode#addData(Comparable)}, the operations never change their arguments: the
+ * results share all subtrees not cut by a split with them.
+ */
+final class AvlJoin {
+    // below this number of nodes, forking a task costs more than it saves
+    private static final long PARALLEL_THRESHOLD = 1 << 13;
+
+    private AvlJoin() {}
+
+    /**
+     * Compute the union of two trees.
+     *
+     * @param a first tree
+     * @param b second tree
+     * @param merge combines objects comparing equal, the one of {@code a} first
+     * @param <T> parametric type of the node data
+     * @return balanced tree with the data of both trees
+     */
+    static <T extends Comparable<T>> Tree<T> union(Tree<T> a, Tree<T> b, BinaryOperator<T> merge) {
+        return new SetOperation<>(Kind.UNION, balanced(a), balanced(b), requireNonNull(merge))
+                .invoke();
+    }
+
+    /**
+     * Compute the intersection of two trees.
+     *
+     * @param a first tree
+     * @param b second tree
+     * @param <T> parametric type of the node data
+     * @return balanced tree with the data of {@code a} comparing equal to some data of {@code b}
+     */
+    static <T extends Comparable<T>> Tree<T> intersection(Tree<T> a, Tree<T> b) {
+        return new SetOperation<>(Kind.INTERSECTION, balanced(a), balanced(b), null).invoke();
+    }
+
+    /**
+     * Compute the difference of two trees.
+     *
+     * @param a first tree
+     * @param b second tree
+     * @param <T> parametric type of the node data
+     * @return balanced tree with the data of {@code a} not comparing equal to any data of {@code b}
+     */
+    static <T extends Comparable<T>> Tree<T> difference(Tree<T> a, Tree<T> b) {
+        return new SetOperation<>(Kind.DIFFERENCE, balanced(a), balanced(b), null).invoke();
+    }
+
+    /**
+     * Concatenate two balanced trees and an object in between.
+     *
+     * @param left tree with data smaller than {@code data}
+     * @param data separating object
+     * @param right tree with data greater than {@code data}
+     * @param <T> parametric type of the node data
+     * @return root of the balanced tree
+     */
+    private static <T extends Comparable<T>> Tree<T> join(Tree<T> left, T data, Tree<T> right) {
+        int leftHeight = AvlNode.heightOf(left);
+        int rightHeight = AvlNode.heightOf(right);
+
+        if (leftHeight > rightHeight + 1) return joinRight(left, data, right);
+        if (rightHeight > leftHeight + 1) return joinLeft(left, data, right);
+        return new AvlNode<>(left, data, right);
+    }
+
+    /**
+     * Cut a balanced tree at an object.
+     *
+     * @param tree tree to cut
+     * @param data object to cut at
+     * @param <T> parametric type of the node data
+     * @return the data smaller than {@code data}, the stored object comparing equal to {@code
+     *     data} (or {@code null}), and the data greater than {@code data}
+     */
+    private static <T extends Comparable<T>> Split<T> split(Tree<T> tree, T data) {
+        if (tree.isEmpty()) return new Split<>(tree, null, tree);
+
+        TreeMetrics.compared();
+        int compareVal = tree.data().compareTo(data);
+        if (compareVal < 0) {
+            // tree.data < data: the node and its leftChild subtree are on the left side
+            Split<T> split = split(tree.rightChild(), data);
+            return new Split<>(
+                    join(tree.leftChild(), tree.data(), split.left()),
+                    split.data(),
+                    split.right());
+        } else if (compareVal > 0) {
+            // tree.data > data: the node and its rightChild subtree are on the right side
+            Split<T> split = split(tree.leftChild(), data);
+            return new Split<>(
+                    split.left(),
+                    split.data(),
+                    join(split.right(), tree.data(), tree.rightChild()));
+        } else {
+            return new Split<>(tree.leftChild(), tree.data(), tree.rightChild());
+        }
+    }
+
+    private static <T extends Comparable<T>> Tree<T> joinRight(
+            Tree<T> left, T data, Tree<T> right) {
+        // left is taller: follow its right spine down to a subtree as high as right
+        Tree<T> spine = left.rightChild();
+        Tree<T> joined =
+                AvlNode.heightOf(spine) <= AvlNode.heightOf(right) + 1
+                        ? new AvlNode<>(spine, data, right)
+                        : joinRight(spine, data, right);
+        return AvlNode.balance(left.leftChild(), left.data(), joined);
+    }
+
+    private static <T extends Comparable<T>> Tree<T> joinLeft(
+            Tree<T> left, T data, Tree<T> right) {
+        // right is taller: follow its left spine down to a subtree as high as left
+        Tree<T> spine = right.leftChild();
+        Tree<T> joined =
+                AvlNode.heightOf(spine) <= AvlNode.heightOf(left) + 1
+                        ? new AvlNode<>(left, data, spine)
+                        : joinLeft(left, data, spine);
+        return AvlNode.balance(joined, right.data(), right.rightChild());
+    }
+
+    /**
+     * Concatenate two balanced trees without an object in between.
+     *
+     * @param left tree with data smaller than all data of {@code right}
+     * @param right tree with data greater than all data of {@code left}
+     * @param <T> parametric type of the node data
+     * @return root of the balanced tree
+     */
+    private static <T extends Comparable<T>> Tree<T> join(Tree<T> left, Tree<T> right) {
+        if (left.isEmpty()) return right;
+        if (right.isEmpty()) return left;
+
+        // the largest object of left separates the rest of left from right
+        Split<T> last = splitLast(left);
+        return join(last.left(), last.data(), right);
+    }
+
+    private static <T extends Comparable<T>> Split<T> splitLast(Tree<T> tree) {
+        if (tree.rightChild().isEmpty()) {
+            return new Split<>(tree.leftChild(), tree.data(), tree.rightChild());
+        }
+
+        Split<T> last = splitLast(tree.rightChild());
+        return new Split<>(
+                join(tree.leftChild(), tree.data(), last.left()), last.data(), last.right());
+    }
+
+    private static <T extends Comparable<T>> Tree<T> balanced(Tree<T> tree) {
+        requireNonNull(tree);
+
+        if (tree instanceof AvlNode<T> || tree instanceof AvlEmpty<T>) return tree;
+        // the data of a tree is sorted and distinct already
+        return Tree.fromSorted(tree.stream().toList());
+    }
+
+    /** Set operations. */
+    private enum Kind {
+        UNION,
+        INTERSECTION,
+        DIFFERENCE
+    }
+
+    /**
+     * Result of cutting a tree at an object.
+     *
+     * @param left balanced tree with the data smaller than the object
+     * @param data stored object comparing equal to the object, or {@code null}
+     * @param right balanced tree with the data greater than the object
+     * @param <T> parametric type of the node data
+     */
+    private record Split<T extends Comparable<T>>(Tree<T> left, T data, Tree<T> right) {}
+
+    /**
+     * Set operation on two balanced trees.
+     *
+     * <p>The first tree is split at the root of the second one, and the operation recurses on the
+     * smaller and the greater parts of both trees. Above {@link #PARALLEL_THRESHOLD} nodes, the
+     * smaller parts are forked to another thread while this thread works on the greater ones.
+     *
+     * @param <T> parametric type of the node data
+     */
+    private static final class SetOperation<T extends Comparable<T>>
+            extends RecursiveTask<Tree<T>> {
+        private static final long serialVersionUID = 1L;
+
+        // tasks only live in the fork/join pool, they are never serialized
+        private final Kind kind;
+        private final transient Tree<T> a;
+        private final transient Tree<T> b;
+        private final transient BinaryOperator<T> merge;
+
+        SetOperation(Kind kind, Tree<T> a, Tree<T> b, BinaryOperator<T> merge) {
+            this.kind = kind;
+            this.a = a;
+            this.b = b;
+            this.merge = merge;
+        }
+
+        @Override
+        protected Tree<T> compute() {
+            return a.size() + b.size() < PARALLEL_THRESHOLD ? apply(a, b) : applyParallel(a, b);
+        }
+
+        private Tree<T> applyParallel(Tree<T> a, Tree<T> b) {
+            if (a.isEmpty() || b.isEmpty()) return trivial(a, b);
+
+            Split<T> split = split(a, b.data());
+            SetOperation<T> smaller = new SetOperation<>(kind, split.left(), b.leftChild(), merge);
+            smaller.fork();
+            Tree<T> right =
+                    new SetOperation<>(kind, split.right(), b.rightChild(), merge).compute();
+            return combine(smaller.join(), split.data(), b.data(), right);
+        }
+
+        private Tree<T> apply(Tree<T> a, Tree<T> b) {
+            if (a.isEmpty() || b.isEmpty()) return trivial(a, b);
+
+            Split<T> split = split(a, b.data());
+            Tree<T> left = apply(split.left(), b.leftChild());
+            Tree<T> right = apply(split.right(), b.rightChild());
+            return combine(left, split.data(), b.data(), right);
+        }
+
+        private Tree<T> trivial(Tree<T> a, Tree<T> b) {
+            return switch (kind) {
+                case UNION -> a.isEmpty() ? b : a;
+                case INTERSECTION -> a.isEmpty() ? a : b;
+                case DIFFERENCE -> a;
+            };
+        }
+
+        private Tree<T> combine(Tree<T> left, T stored, T data, Tree<T> right) {
+            return switch (kind) {
+                case UNION ->
+                        AvlJoin.join(left, stored == null ? data : merged(stored, data), right);
+                case INTERSECTION ->
+                        stored == null
+                                ? AvlJoin.join(left, right)
+                                : AvlJoin.join(left, stored, right);
+                case DIFFERENCE -> AvlJoin.join(left, right);
+            };
+        }
+
+        private T merged(T stored, T data) {
+            T merged = requireNonNull(merge.apply(stored, data));
+            if (merged != stored && merged.compareTo(data) != 0) {
+                throw new IllegalArgumentException("merged object does not compare equal");
+            }
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package tree;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Node in a self-balancing (AVL) binary search tree.
+ *
+ * <p>Like {@link Node}, an {@code AvlNode} is immutable: {@link #addData(Comparable)} and {@link
+ * #removeData(Comparable)} copy the path from the root to the changed node and share all other
+ * subtrees with the old tree. In addition, every node caches its height, and the copied path is
+ * rebalanced by rotations on the way back up. Thus the height of the tree stays logarithmic in the
+ * number of nodes, regardless of the order in which the data is inserted or removed.
+ *
+ * <p>Like {@link Node}, every node caches the {@link #digest()} of its subtree for O(1) hashing,
+ * and two nodes are equal if their trees have the same structure and data, compared in O(1) for
+ * different sizes or digests and without recursion otherwise.
+ *
+ * @param leftChild leftChild subtree (must be an {@link AvlNode} or an {@link AvlEmpty})
+ * @param data data to store in the new node (must not be {@code null})
+ * @param rightChild rightChild subtree (must be an {@link AvlNode} or an {@link AvlEmpty})
+ * @param height height of this tree, i.e. the number of nodes on the longest path to a leaf
+ * @param size number of nodes in this tree, i.e. the sizes of both children plus one
+ * @param digest content hash of this tree, see {@link TreeDigest}; it is not checked, as this
+ *     would hash the data a second time
+ * @param <T> parametric type of the node data
+ * @throws NullPointerException if any parameter is {@code null}
+ * @throws IllegalArgumentException if a child is not balanced, if the heights of the children
+ *     differ by more than one, or if {@code height} or {@code size} do not match the children
+ */
+public record AvlNode<T extends Comparable<T>>(
+        Tree<T> leftChild, T data, Tree<T> rightChild, int height, long size, long digest)
+        implements Tree<T> {
+    /** Create a new node: Ensure that all arguments are not {@code null} and balanced. */
+    public AvlNode {
+        requireNonNull(data);
+        int leftHeight = heightOf(leftChild);
+        int rightHeight = heightOf(rightChild);
+
+        if (Math.abs(leftHeight - rightHeight) > 1) {
+            throw new IllegalArgumentException("children are not balanced");
+        }
+        if (height != 1 + Math.max(leftHeight, rightHeight)) {
+            throw new IllegalArgumentException("height does not match the children");
+        }
+        if (size != leftChild.size() + rightChild.size() + 1) {
+            throw new IllegalArgumentException("size does not match the children");
+        }
+        TreeMetrics.allocated();
+    }
+
+    /**
+     * Create a new node and compute its digest from the children.
+     *
+     * @param leftChild leftChild subtree (must be an {@link AvlNode} or an {@link AvlEmpty})
+     * @param data data to store in the new node (must not be {@code null})
+     * @param rightChild rightChild subtree (must be an {@link AvlNode} or an {@link AvlEmpty})
+     * @param height height of this tree, i.e. the number of nodes on the longest path to a leaf
+     * @param size number of nodes in this tree, i.e. the sizes of both children plus one
+     * @throws NullPointerException if any parameter is {@code null}
+     * @throws IllegalArgumentException if a child is not balanced, if the heights of the children
+     *     differ by more than one, or if {@code height} or {@code size} do not match the children
+     */
+    public AvlNode(Tree<T> leftChild, T data, Tree<T> rightChild, int height, long size) {
+        this(
+                leftChild,
+                data,
+                rightChild,
+                height,
+                size,
+                TreeDigest.of(leftChild, data, rightChild));
+    }
+
+    /**
+     * Create a new node and compute its height, size and digest from the children.
+     *
+     * @param leftChild leftChild subtree (must be an {@link AvlNode} or an {@link AvlEmpty})
+     * @param data data to store in the new node (must not be {@code null})
+     * @param rightChild rightChild subtree (must be an {@link AvlNode} or an {@link AvlEmpty})
+     * @throws NullPointerException if any parameter is {@code null}
+     * @throws IllegalArgumentException if the heights of the children differ by more than one
+     */
+    public AvlNode(Tree<T> leftChild, T data, Tree<T> rightChild) {
+        this(
+                leftChild,
+                data,
+                rightChild,
+                1 + Math.max(heightOf(leftChild), heightOf(rightChild)),
+                leftChild.size() + rightChild.size() + 1);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public Tree<T> addData(T data) {
+        requireNonNull(data);
+
+        TreeMetrics.compared();
+        int compareVal = this.data.compareTo(data);
+        if (compareVal < 0) {
+            // this.data < data: insert into rightChild subtree
+            Tree<T> right = rightChild.addData(data);
+            return right == rightChild ? this : balance(leftChild, this.data, right);
+        } else if (compareVal > 0) {
+            // this.data > data: insert into leftChild subtree
+            Tree<T> left = leftChild.addData(data);
+            return left == leftChild ? this : balance(left, this.data, rightChild);
+        } else {
+            // this.data == data: do nothing
+            return this;
+        }
+    }
+
+    @Override
+    public Tree<T> mergeData(T data, BinaryOperator<T> merge) {
+        requireNonNull(data);
+        requireNonNull(merge);
+
+        TreeMetrics.compared();
+        int compareVal = this.data.compareTo(data);
+        if (compareVal < 0) {
+            // this.data < data: insert into rightChild subtree
+            Tree<T> right = rightChild.mergeData(data, merge);
+            return right == rightChild ? this : balance(leftChild, this.data, right);
+        } else if (compareVal > 0) {
+            // this.data > data: insert into leftChild subtree
+            Tree<T> left = leftChild.mergeData(data, merge);
+            return left == leftChild ? this : balance(left, this.data, rightChild);
+        } else {
+            // this.data == data: replace this.data by the merged object
+            T merged = requireNonNull(merge.apply(this.data, data));
+            if (merged == this.data) return this;
+            if (merged.compareTo(data) != 0) {
+                throw new IllegalArgumentException("merged object does not compare equal");
+            }
+            return new AvlNode<>(leftChild, merged, rightChild);
+        }
+    }
+
+    @Override
+    public Tree<T> removeData(T data) {
+        requireNonNull(data);
+
+        TreeMetrics.compared();
+        int compareVal = this.data.compareTo(data);
+        if (compareVal < 0) {
+            // this.data < data: remove from rightChild subtree
+            Tree<T> right = rightChild.removeData(data);
+            return right == rightChild ? this : balance(leftChild, this.data, right);
+        } else if (compareVal > 0) {
+            // this.data > data: remove from leftChild subtree
+            Tree<T> left = leftChild.removeData(data);
+            return left == leftChild ? this : balance(left, this.data, rightChild);
+        } else if (leftChild.isEmpty()) {
+            // this.data == data: replace this node by its only child (a balanced tree again)
+            return rightChild;
+        } else if (rightChild.isEmpty()) {
+            return leftChild;
+        } else {
+            // two children: replace this.data by the smallest data of the rightChild subtree
+            T successor = rightChild.select(0);
+            return balance(leftChild, successor, rightChild.removeData(successor));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof AvlNode<?> other)) return false;
+        if (size != other.size || digest != other.digest) return false;
+        return TreeDigest.sameShape(this, other);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(digest);
+    }
+
+    @Override
+    public String accept(TreeVisitor<T> visitor) {
+        requireNonNull(visitor);
+
+        return visitor.visit(this);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new TreeIterator<>(this);
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        requireNonNull(action);
+
+        iterator().forEachRemaining(action);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new TreeSpliterator<>(this);
+    }
+
+    /**
+     * Height of a balanced subtree.
+     *
+     * @param tree an {@link AvlNode} or an {@link AvlEmpty}
+     * @return cached height of the tree
+     * @throws NullPointerException if tree is {@code null}
+     * @throws IllegalArgumentException if tree is not a balanced tree
+     */
+    static int heightOf(Tree<?> tree) {
+        requireNonNull(tree);
+
+        if (tree instanceof AvlNode<?> node) return node.height;
+        if (tree instanceof AvlEmpty<?>) return 0;
+        throw new IllegalArgumentException("not a balanced tree: " + tree.getClass().getName());
+    }
+
+    /**
+     * Build a new node from the given parts and restore the AVL property by rotation.
+     *
+     * <p>The heights of {@code left} and {@code right} may differ by at most two, which is the case
+     * after inserting into or removing from one of the children of a balanced node.
+     *
+     * @param left leftChild subtree
+     * @param data data of the new node
+     * @param right rightChild subtree
+     * @param <T> parametric type of the node data
+     * @return the root of the balanced tree
+     */
+    static <T extends Comparable<T>> Tree<T> balance(Tree<T> left, T data, Tree<T> right) {
+        int leftHeight = heightOf(left);
+        int rightHeight = heightOf(right);
+
+        if (leftHeight > rightHeight + 1) {
+            Tree<T> ll = left.leftChild();
+            Tree<T> lr = left.rightChild();
+            if (heightOf(ll) >= heightOf(lr)) {
+                // left-left case: single right rotation
+                return new AvlNode<>(ll, left.data(), new AvlNode<>(lr, data, right));
+            } else {
+                // left-right case: double rotation
+                return new AvlNode<>(
+                        new AvlNode<>(ll, left.data(), lr.leftChild()),
+                        lr.data(),
+                        new AvlNode<>(lr.rightChild(), data, right));
+            }
+        } else if (rightHeight > leftHeight + 1) {
+            Tree<T> rl = right.leftChild();
+            Tree<T> rr = right.rightChild();
+            if (heightOf(rr) >= heightOf(rl)) {
+                // right-right case: single left rotation
+                return new AvlNode<>(new AvlNode<>(left, data, rl), right.data(), rr);
+            } else {
+                // right-left case: double rotation
+                return new AvlNode<>(
+                        new AvlNode<>(left, data, rl.leftChild()),
+                        rl.data(),
+                        new AvlNode<>(rl.rightChild(), right.data(), rr));
+            }
+        } else {
+            return new AvlNode<>(left, data, right);
+        }
+    }
+
+    /**
+     * Build a perfectly balanced tree from a slice of a sorted array.
+     *
+     * <p>The sizes of both halves differ by at most one, and so do their heights.
+     *
+     * @param sorted objects in strictly ascending order
+     * @param from index of the first object of the slice (inclusive)
+     * @param to index of the last object of the slice (exclusive)
+     * @param empty empty tree to use for all leaves
+     * @param <T> parametric type of the node data
+     * @return the root of the new tree
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Comparable<T>> Tree<T> build(
+            Object[] sorted, int from, int to, AvlEmpty<T> empty) {
+        if (from >= to) return empty;
+
+        int mid = (from + to) >>> 1;
+        return new AvlNode<>(
+                build(sorted, from, mid, empty),
+                (T) sorted[mid],
+                build(sorted, mid + 1, to, empty));
+    }
+}
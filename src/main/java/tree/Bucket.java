@@ -0,0 +1,209 @@
+package tree;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Immutable group of objects which all compare equal, but are not equal to each other.
+ *
+ * <p>Our trees store at most one object per key: adding an object comparing equal to a stored one
+ * does not change the tree. A tree of buckets stores all of them instead, one bucket per key, see
+ * {@link Tree#mergeData(Comparable, java.util.function.BinaryOperator)} with {@link
+ * #withAll(Bucket)}. Buckets compare by their key, so many objects with the same key need only a
+ * single node and the tree stays shallow. The objects of a bucket are kept in a plain array in the
+ * order they were added, and equal objects are stored only once.
+ *
+ * @param <T> parametric type of the objects
+ */
+public final class Bucket<T extends Comparable<T>> implements Comparable<Bucket<T>>, Iterable<T> {
+    private final Comparable<?>[] elements;
+    // the elements never change, and nodes hash their data when they are created
+    private final int hash;
+
+    private Bucket(Comparable<?>[] elements) {
+        this.elements = elements;
+        this.hash = Arrays.hashCode(elements);
+    }
+
+    /**
+     * Create a bucket with a single object.
+     *
+     * @param element the object (must not be {@code null})
+     * @param <T> parametric type of the objects
+     * @return a new bucket
+     * @throws NullPointerException if element is {@code null}
+     */
+    public static <T extends Comparable<T>> Bucket<T> of(T element) {
+        return new Bucket<>(new Comparable<?>[] {requireNonNull(element)});
+    }
+
+    /**
+     * Create a bucket with several objects comparing equal.
+     *
+     * @param elements the objects (must not be empty or contain {@code null})
+     * @param <T> parametric type of the objects
+     * @return a new bucket containing each distinct object once, in the given order
+     * @throws NullPointerException if elements is or contains {@code null}
+     * @throws IllegalArgumentException if elements is empty or the objects do not compare equal
+     */
+    public static <T extends Comparable<T>> Bucket<T> of(List<? extends T> elements) {
+        if (elements.isEmpty()) throw new IllegalArgumentException("bucket must not be empty");
+
+        return of(elements.get(0)).withAll(elements);
+    }
+
+    /**
+     * Access the key of this bucket, i.e. the first object, which compares equal to all others.
+     *
+     * @return the first object
+     */
+    public T key() {
+        return get(0);
+    }
+
+    /**
+     * How many objects are stored in this bucket?
+     *
+     * @return number of objects (at least one)
+     */
+    public int size() {
+        return elements.length;
+    }
+
+    /**
+     * Access an object of this bucket.
+     *
+     * @param index zero-based position in the order the objects were added
+     * @return the object
+     * @throws IndexOutOfBoundsException if index is negative or not smaller than {@link #size()}
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) elements[index];
+    }
+
+    /**
+     * Add an object to this bucket.
+     *
+     * @param element object comparing equal to the key (must not be {@code null})
+     * @return a new bucket, or this bucket if it already contains an equal object
+     * @throws NullPointerException if element is {@code null}
+     * @throws IllegalArgumentException if element does not compare equal to the key
+     */
+    public Bucket<T> with(T element) {
+        requireNonNull(element);
+        if (key().compareTo(element) != 0) {
+            throw new IllegalArgumentException("element does not belong into this bucket");
+        }
+        if (indexOf(element) >= 0) return this;
+
+        Comparable<?>[] newElements = Arrays.copyOf(elements, elements.length + 1);
+        newElements[elements.length] = element;
+        return new Bucket<>(newElements);
+    }
+
+    /**
+     * Add all objects of another bucket with the same key to this bucket.
+     *
+     * @param other bucket with the same key (must not be {@code null})
+     * @return a new bucket, or this bucket if it already contains all objects of other
+     * @throws NullPointerException if other is {@code null}
+     * @throws IllegalArgumentException if the keys do not compare equal
+     */
+    public Bucket<T> withAll(Bucket<T> other) {
+        return other.size() == 1 ? with(other.key()) : withAll(other.toList());
+    }
+
+    /**
+     * Remove an object from this bucket.
+     *
+     * @param element object to remove (must not be {@code null})
+     * @return a new bucket, this bucket if it does not contain an equal object, or {@code null} if
+     *     the object was the only one in this bucket
+     * @throws NullPointerException if element is {@code null}
+     */
+    public Bucket<T> without(T element) {
+        requireNonNull(element);
+
+        int index = indexOf(element);
+        if (index < 0) return this;
+        if (elements.length == 1) return null;
+
+        Comparable<?>[] newElements = new Comparable<?>[elements.length - 1];
+        System.arraycopy(elements, 0, newElements, 0, index);
+        System.arraycopy(elements, index + 1, newElements, index, newElements.length - index);
+        return new Bucket<>(newElements);
+    }
+
+    /**
+     * Access the objects of this bucket as a list.
+     *
+     * @return unmodifiable view of the objects, in the order they were added
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> toList() {
+        return Collections.unmodifiableList(Arrays.asList((T[]) elements));
+    }
+
+    /**
+     * Create a stream of the objects of this bucket.
+     *
+     * @return stream of the objects, in the order they were added
+     */
+    public Stream<T> stream() {
+        return toList().stream();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return toList().iterator();
+    }
+
+    @Override
+    public int compareTo(Bucket<T> o) {
+        return key().compareTo(o.key());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Bucket<?> other && Arrays.equals(elements, other.elements);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(elements);
+    }
+
+    private Bucket<T> withAll(List<? extends T> others) {
+        // a hash set instead of indexOf, so large buckets are built in linear time
+        Set<Comparable<?>> distinct = new LinkedHashSet<>(Arrays.asList(elements));
+        for (T element : others) {
+            requireNonNull(element);
+            if (key().compareTo(element) != 0) {
+                throw new IllegalArgumentException("element does not belong into this bucket");
+            }
+            distinct.add(element);
+        }
+        if (distinct.size() == elements.length) return this;
+        return new Bucket<>(distinct.toArray(new Comparable<?>[0]));
+    }
+
+    private int indexOf(T element) {
+        for (int i = 0; i < elements.length; i++) {
+            if (elements[i].equals(element)) return i;
+        }
+        return -1;
+    }
+}
@@ -4,7 +4,7 @@ import static java.util.Objects.requireNonNull;
 
 import java.util.Iterator;
 import java.util.Spliterator;
-import java.util.Spliterators;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 
 /**
@@ -18,6 +18,16 @@ public record Empty<T extends Comparable<T>>() implements Tree<T> {
         return true;
     }
 
+    @Override
+    public long size() {
+        return 0;
+    }
+
+    @Override
+    public long digest() {
+        return 0;
+    }
+
     @Override
     public Tree<T> addData(T data) {
         requireNonNull(data);
@@ -25,6 +35,20 @@ public record Empty<T extends Comparable<T>>() implements Tree<T> {
         return new Node(new Empty(), data, new Empty());
     }
 
+    @Override
+    public Tree<T> mergeData(T data, BinaryOperator<T> merge) {
+        requireNonNull(merge);
+
+        return addData(data);
+    }
+
+    @Override
+    public Tree<T> removeData(T data) {
+        requireNonNull(data);
+
+        return this;
+    }
+
     @Override
     public String accept(TreeVisitor<T> visitor) {
         requireNonNull(visitor);
@@ -41,13 +65,11 @@ public record Empty<T extends Comparable<T>>() implements Tree<T> {
     public void forEach(Consumer<? super T> action) {
         requireNonNull(action);
 
-        for (T t : this) {
-            action.accept(t);
-        }
+        iterator().forEachRemaining(action);
     }
 
     @Override
     public Spliterator<T> spliterator() {
-        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+        return new TreeSpliterator<>(this);
     }
 }
@@ -0,0 +1,338 @@
+package tree;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+
+/**
+ * Persistent hash map based on a hash array mapped trie (HAMT).
+ *
+ * <p>Like our trees, a {@code HashTrie} is immutable: {@link #put(Object, Object)} and {@link
+ * #remove(Object)} copy only the path from the root to the changed entry and share everything else
+ * with the old map. Each level
+ * of the trie consumes five bits of the hash code, so lookups and updates take at most seven steps
+ * regardless of the number of entries.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public final class HashTrie<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final HashTrie<?, ?> EMPTY = new HashTrie<>(BitmapNode.EMPTY, 0);
+
+    private final TrieNode root;
+    private final int size;
+
+    private HashTrie(TrieNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Access the empty map.
+     *
+     * @param <K> type of the keys
+     * @param <V> type of the values
+     * @return an empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> HashTrie<K, V> empty() {
+        return (HashTrie<K, V>) EMPTY;
+    }
+
+    /**
+     * How many entries are stored in this map?
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Is this map empty?
+     *
+     * @return {@code true} iff there are no entries, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Look up the value stored for a key.
+     *
+     * @param key key to look for (must not be {@code null})
+     * @return value stored for the key, or {@code null} if there is no such entry
+     * @throws NullPointerException if key is {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        requireNonNull(key);
+
+        return (V) root.get(0, key.hashCode(), key);
+    }
+
+    /**
+     * Look up the value stored for a key, or a default value if there is no such entry.
+     *
+     * @param key key to look for (must not be {@code null})
+     * @param defaultValue value to return if there is no entry for the key
+     * @return value stored for the key, or {@code defaultValue} if there is no such entry
+     * @throws NullPointerException if key is {@code null}
+     */
+    public V getOrDefault(K key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Store a value for a key.
+     *
+     * <p>An existing entry for the key is replaced. Storing the very same value again does not
+     * change the map.
+     *
+     * @param key key of the entry (must not be {@code null})
+     * @param value value of the entry (must not be {@code null})
+     * @return the new map
+     * @throws NullPointerException if key or value is {@code null}
+     */
+    public HashTrie<K, V> put(K key, V value) {
+        requireNonNull(key);
+        requireNonNull(value);
+
+        boolean[] added = new boolean[1];
+        TrieNode newRoot = root.put(0, key.hashCode(), key, value, added);
+        if (newRoot == root) return this;
+
+        return new HashTrie<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Remove the entry for a key.
+     *
+     * <p>Inner nodes left with a single entry are merged into their parent, so the trie stays as
+     * shallow as if the entry had never been stored.
+     *
+     * @param key key of the entry (must not be {@code null})
+     * @return the new map, or this map if there is no entry for the key
+     * @throws NullPointerException if key is {@code null}
+     */
+    public HashTrie<K, V> remove(K key) {
+        requireNonNull(key);
+
+        TrieNode newRoot = root.remove(0, key.hashCode(), key);
+        if (newRoot == root) return this;
+
+        return size == 1 ? empty() : new HashTrie<>(newRoot, size - 1);
+    }
+
+    /** Node of the trie. */
+    private abstract static class TrieNode {
+        abstract Object get(int shift, int hash, Object key);
+
+        abstract TrieNode put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        abstract TrieNode remove(int shift, int hash, Object key);
+
+        /**
+         * Access the only entry of this node.
+         *
+         * @return key and value if this node holds exactly one entry and no children, else {@code
+         *     null}
+         */
+        abstract Object[] singleEntry();
+
+        static TrieNode pair(
+                int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = key1.hashCode();
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+            }
+
+            boolean[] added = new boolean[1];
+            return BitmapNode.EMPTY
+                    .put(shift, hash1, key1, value1, added)
+                    .put(shift, hash2, key2, value2, added);
+        }
+    }
+
+    /**
+     * Inner node with up to 32 entries, indexed by five bits of the hash code.
+     *
+     * <p>Only the present entries are stored: the {@code bitmap} marks which of the 32 slots are
+     * used, and each used slot takes two positions in {@code array}, either a key and its value or
+     * {@code null} and a child node.
+     */
+    private static final class BitmapNode extends TrieNode {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) return null;
+
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object storedKey = array[index];
+            Object storedValue = array[index + 1];
+            if (storedKey == null) return ((TrieNode) storedValue).get(shift + BITS, hash, key);
+            return key.equals(storedKey) ? storedValue : null;
+        }
+
+        @Override
+        TrieNode put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+
+            if ((bitmap & bit) == 0) {
+                // free slot: insert the new entry
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                System.arraycopy(array, index, newArray, index + 2, array.length - index);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+
+            Object storedKey = array[index];
+            Object storedValue = array[index + 1];
+            if (storedKey == null) {
+                // child node: insert recursively
+                TrieNode child = (TrieNode) storedValue;
+                TrieNode newChild = child.put(shift + BITS, hash, key, value, added);
+                return newChild == child ? this : with(index + 1, newChild);
+            } else if (key.equals(storedKey)) {
+                // same key: replace the value
+                return value == storedValue ? this : with(index + 1, value);
+            } else {
+                // different key in the same slot: push both entries down into a new child node
+                added[0] = true;
+                TrieNode child = pair(shift + BITS, storedKey, storedValue, hash, key, value);
+                Object[] newArray = array.clone();
+                newArray[index] = null;
+                newArray[index + 1] = child;
+                return new BitmapNode(bitmap, newArray);
+            }
+        }
+
+        @Override
+        TrieNode remove(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) return this;
+
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object storedKey = array[index];
+            Object storedValue = array[index + 1];
+            if (storedKey == null) {
+                // child node: remove recursively
+                TrieNode child = (TrieNode) storedValue;
+                TrieNode newChild = child.remove(shift + BITS, hash, key);
+                if (newChild == child) return this;
+
+                // pull a single remaining entry up into this node
+                Object[] entry = newChild.singleEntry();
+                if (entry == null) return with(index + 1, newChild);
+
+                Object[] newArray = array.clone();
+                newArray[index] = entry[0];
+                newArray[index + 1] = entry[1];
+                return new BitmapNode(bitmap, newArray);
+            } else if (key.equals(storedKey)) {
+                // same key: drop the entry
+                if (bitmap == bit) return EMPTY;
+
+                Object[] newArray = new Object[array.length - 2];
+                System.arraycopy(array, 0, newArray, 0, index);
+                System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+                return new BitmapNode(bitmap & ~bit, newArray);
+            } else {
+                return this;
+            }
+        }
+
+        @Override
+        Object[] singleEntry() {
+            return Integer.bitCount(bitmap) == 1 && array[0] != null ? array : null;
+        }
+
+        private BitmapNode with(int index, Object element) {
+            Object[] newArray = array.clone();
+            newArray[index] = element;
+            return new BitmapNode(bitmap, newArray);
+        }
+    }
+
+    /** Leaf node for keys with identical hash codes, stored as key/value pairs. */
+    private static final class CollisionNode extends TrieNode {
+        private final int hash;
+        private final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key) {
+            int index = indexOf(key);
+            return index >= 0 ? array[index + 1] : null;
+        }
+
+        @Override
+        TrieNode put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // different hash code: nest this node into a new inner node and insert there
+                int bit = 1 << ((this.hash >>> shift) & MASK);
+                return new BitmapNode(bit, new Object[] {null, this})
+                        .put(shift, hash, key, value, added);
+            }
+
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (array[index + 1] == value) return this;
+
+                Object[] newArray = array.clone();
+                newArray[index + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        TrieNode remove(int shift, int hash, Object key) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            if (index < 0) return this;
+
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        Object[] singleEntry() {
+            return array.length == 2 ? array : null;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) return i;
+            }
+            return -1;
+        }
+    }
+}
@@ -4,25 +4,89 @@ import static java.util.Objects.requireNonNull;
 
 import java.util.Iterator;
 import java.util.Spliterator;
-import java.util.Spliterators;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 
 /**
  * Node in a binary search tree.
  *
+ * <p>Every node caches the {@link #digest()} of its subtree, so {@link #hashCode()} takes O(1).
+ * Two nodes are equal if their trees have the same structure and data; trees holding the same data
+ * in a different shape are compared with {@link #sameData(Tree)}. Nodes of different size or digest
+ * are told apart in O(1), and equal trees are compared without recursion, see {@link
+ * TreeDigest#sameShape(Tree, Tree)}.
+ *
  * @param data vehicle to store in the new node (must not be {@code null})
  * @param leftChild leftChild subtree
  * @param rightChild rightChild subtree
+ * @param size number of nodes in this tree, i.e. the sizes of both children plus one
+ * @param digest content hash of this tree, see {@link TreeDigest}; it is not checked, as this
+ *     would hash the data a second time
  * @param <T> parametric type of the node data
  * @throws NullPointerException if any parameter is {@code null}
+ * @throws IllegalArgumentException if {@code size} does not match the children
  */
-public record Node<T extends Comparable<T>>(Tree<T> leftChild, T data, Tree<T> rightChild)
+public record Node<T extends Comparable<T>>(
+        Tree<T> leftChild, T data, Tree<T> rightChild, long size, long digest)
         implements Tree<T> {
     /** Create a new node: Ensure that all arguments are not {@code null}. */
     public Node {
         requireNonNull(data);
         requireNonNull(leftChild);
         requireNonNull(rightChild);
+
+        if (size != leftChild.size() + rightChild.size() + 1) {
+            throw new IllegalArgumentException("size does not match the children");
+        }
+        TreeMetrics.allocated();
+    }
+
+    /**
+     * Create a new node and compute its digest from the children.
+     *
+     * @param leftChild leftChild subtree
+     * @param data vehicle to store in the new node (must not be {@code null})
+     * @param rightChild rightChild subtree
+     * @param size number of nodes in this tree, i.e. the sizes of both children plus one
+     * @throws NullPointerException if any parameter is {@code null}
+     * @throws IllegalArgumentException if {@code size} does not match the sizes of the children
+     */
+    public Node(Tree<T> leftChild, T data, Tree<T> rightChild, long size) {
+        this(leftChild, data, rightChild, size, TreeDigest.of(leftChild, data, rightChild));
+    }
+
+    /**
+     * Create a new node and compute its size and digest from the children.
+     *
+     * @param leftChild leftChild subtree
+     * @param data vehicle to store in the new node (must not be {@code null})
+     * @param rightChild rightChild subtree
+     * @throws NullPointerException if any parameter is {@code null}
+     */
+    public Node(Tree<T> leftChild, T data, Tree<T> rightChild) {
+        this(leftChild, data, rightChild, leftChild.size() + rightChild.size() + 1);
+    }
+
+    /**
+     * Create a node standing in for a node of a balanced tree, with the same data and children.
+     *
+     * <p>The node takes over size and digest, and is not counted as allocated by {@link
+     * TreeMetrics}: it only lets a {@link TreeVisitor} visit the balanced node like this one.
+     *
+     * @param node node of a balanced tree
+     * @param <T> parametric type of the node data
+     * @return node with the same data and children
+     */
+    static <T extends Comparable<T>> Node<T> adapt(AvlNode<T> node) {
+        Node<T> adapter =
+                new Node<>(
+                        node.leftChild(),
+                        node.data(),
+                        node.rightChild(),
+                        node.size(),
+                        node.digest());
+        TreeMetrics.discarded();
+        return adapter;
     }
 
     @Override
@@ -34,6 +98,7 @@ public record Node<T extends Comparable<T>>(Tree<T> leftChild, T data, Tree<T> r
     public Tree<T> addData(T data) {
         requireNonNull(data);
 
+        TreeMetrics.compared();
         int compareVal = this.data.compareTo(data);
         if (compareVal < 0) {
             // this.data < data: insert into rightChild subtree
@@ -47,6 +112,71 @@ public record Node<T extends Comparable<T>>(Tree<T> leftChild, T data, Tree<T> r
         }
     }
 
+    @Override
+    public Tree<T> mergeData(T data, BinaryOperator<T> merge) {
+        requireNonNull(data);
+        requireNonNull(merge);
+
+        TreeMetrics.compared();
+        int compareVal = this.data.compareTo(data);
+        if (compareVal < 0) {
+            // this.data < data: insert into rightChild subtree
+            Tree<T> right = rightChild.mergeData(data, merge);
+            return right == rightChild ? this : new Node<>(leftChild, this.data, right);
+        } else if (compareVal > 0) {
+            // this.data > data: insert into leftChild subtree
+            Tree<T> left = leftChild.mergeData(data, merge);
+            return left == leftChild ? this : new Node<>(left, this.data, rightChild);
+        } else {
+            // this.data == data: replace this.data by the merged object
+            T merged = requireNonNull(merge.apply(this.data, data));
+            if (merged == this.data) return this;
+            if (merged.compareTo(data) != 0) {
+                throw new IllegalArgumentException("merged object does not compare equal");
+            }
+            return new Node<>(leftChild, merged, rightChild);
+        }
+    }
+
+    @Override
+    public Tree<T> removeData(T data) {
+        requireNonNull(data);
+
+        TreeMetrics.compared();
+        int compareVal = this.data.compareTo(data);
+        if (compareVal < 0) {
+            // this.data < data: remove from rightChild subtree
+            Tree<T> right = rightChild.removeData(data);
+            return right == rightChild ? this : new Node<>(leftChild, this.data, right);
+        } else if (compareVal > 0) {
+            // this.data > data: remove from leftChild subtree
+            Tree<T> left = leftChild.removeData(data);
+            return left == leftChild ? this : new Node<>(left, this.data, rightChild);
+        } else if (leftChild.isEmpty()) {
+            // this.data == data: replace this node by its only child
+            return rightChild;
+        } else if (rightChild.isEmpty()) {
+            return leftChild;
+        } else {
+            // two children: replace this.data by the smallest data of the rightChild subtree
+            T successor = rightChild.select(0);
+            return new Node<>(leftChild, successor, rightChild.removeData(successor));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof Node<?> other)) return false;
+        if (size != other.size || digest != other.digest) return false;
+        return TreeDigest.sameShape(this, other);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(digest);
+    }
+
     @Override
     public String accept(TreeVisitor<T> visitor) {
         requireNonNull(visitor);
@@ -63,13 +193,11 @@ public record Node<T extends Comparable<T>>(Tree<T> leftChild, T data, Tree<T> r
     public void forEach(Consumer<? super T> action) {
         requireNonNull(action);
 
-        for (T t : this) {
-            action.accept(t);
-        }
+        iterator().forEachRemaining(action);
     }
 
     @Override
     public Spliterator<T> spliterator() {
-        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+        return new TreeSpliterator<>(this);
     }
 }
@@ -0,0 +1,282 @@
+package tree;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.BinaryOperator;
+
+/**
+ * Mutable view of a balanced tree for applying a batch of insertions.
+ *
+ * <p>A {@code TransientTree} starts out sharing all nodes with the tree it was created from. The
+ * first insertion along a path copies the persistent nodes on that path into mutable nodes owned
+ * by this transient; subsequent insertions touching these nodes change them in place instead of
+ * copying the path again. {@link #freeze()} turns the owned nodes back into {@link AvlNode}s and
+ * shares all untouched subtrees with the original tree, which is never modified.
+ *
+ * <p>A transient tree must not be shared between threads, and it cannot be used any more after it
+ * has been frozen.
+ *
+ * @param <T> parametric type of the node data
+ */
+public class TransientTree<T extends Comparable<T>> {
+    private final AvlEmpty<T> empty;
+    private Object root; // either a persistent Tree<T> or a MutableNode<T>
+    private boolean frozen;
+
+    /**
+     * Create a new transient tree starting with the data of the given tree.
+     *
+     * <p>The nodes of a balanced tree ({@link AvlNode} or {@link AvlEmpty}) are shared; any other
+     * tree is first converted into a balanced tree.
+     *
+     * @param tree initial content (must not be {@code null})
+     * @throws NullPointerException if tree is {@code null}
+     */
+    public TransientTree(Tree<T> tree) {
+        requireNonNull(tree);
+
+        Tree<T> balanced =
+                tree instanceof AvlNode<T> || tree instanceof AvlEmpty<T>
+                        ? tree
+                        : Tree.fromSorted(tree.stream().toList());
+        Tree<T> leaf = balanced;
+        while (!leaf.isEmpty()) {
+            leaf = leaf.leftChild();
+        }
+
+        this.empty = (AvlEmpty<T>) leaf;
+        this.root = balanced;
+    }
+
+    /**
+     * Add new data to the tree, changing owned nodes in place.
+     *
+     * @param data Object to be inserted (must not be {@code null})
+     * @return {@code true} if the data was added, {@code false} if the tree already contains an
+     *     object comparing equal to it
+     * @throws NullPointerException if data is {@code null}
+     * @throws IllegalStateException if this tree has already been frozen
+     */
+    public boolean addData(T data) {
+        requireNonNull(data);
+        checkNotFrozen();
+
+        // look up first, so nodes are only taken over if the tree really changes
+        if (find(data) != null) return false;
+
+        root = insert(root, data);
+        return true;
+    }
+
+    /**
+     * Add new data to the tree, or merge it with the stored object comparing equal to it.
+     *
+     * <p>Works like {@link Tree#mergeData(Comparable, BinaryOperator)}, but changes owned nodes in
+     * place.
+     *
+     * @param data Object to be inserted or merged (must not be {@code null})
+     * @param merge combines the stored object and data (must not be {@code null} or return {@code
+     *     null})
+     * @return {@code true} if the tree has changed, {@code false} if merge returned the stored
+     *     object itself
+     * @throws NullPointerException if data or merge is {@code null}, or merge returns {@code null}
+     * @throws IllegalArgumentException if the merged object does not compare equal to data
+     * @throws IllegalStateException if this tree has already been frozen
+     */
+    public boolean mergeData(T data, BinaryOperator<T> merge) {
+        requireNonNull(data);
+        requireNonNull(merge);
+        checkNotFrozen();
+
+        T stored = find(data);
+        if (stored != null) {
+            T merged = requireNonNull(merge.apply(stored, data));
+            if (merged == stored) return false;
+            if (merged.compareTo(data) != 0) {
+                throw new IllegalArgumentException("merged object does not compare equal");
+            }
+            data = merged;
+        }
+
+        root = insert(root, data);
+        return true;
+    }
+
+    /**
+     * How many non-empty nodes are stored in this tree?
+     *
+     * @return number of nodes
+     * @throws IllegalStateException if this tree has already been frozen
+     */
+    public long size() {
+        checkNotFrozen();
+
+        return sizeOf(root);
+    }
+
+    /**
+     * Turn this transient tree into an immutable balanced tree.
+     *
+     * <p>Only the nodes changed since the creation of this transient are copied, all other subtrees
+     * are shared with the original tree. This transient cannot be used afterwards.
+     *
+     * @return root of the immutable tree
+     * @throws IllegalStateException if this tree has already been frozen
+     */
+    public Tree<T> freeze() {
+        checkNotFrozen();
+
+        frozen = true;
+        return freeze(root);
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) throw new IllegalStateException("transient tree has already been frozen");
+    }
+
+    @SuppressWarnings("unchecked")
+    private T find(T data) {
+        Object node = root;
+        while (true) {
+            T nodeData;
+            Object left;
+            Object right;
+            if (node instanceof MutableNode<?>) {
+                MutableNode<T> owned = (MutableNode<T>) node;
+                nodeData = owned.data;
+                left = owned.left;
+                right = owned.right;
+            } else {
+                Tree<T> tree = (Tree<T>) node;
+                if (tree.isEmpty()) return null;
+                nodeData = tree.data();
+                left = tree.leftChild();
+                right = tree.rightChild();
+            }
+
+            TreeMetrics.compared();
+            int compareVal = nodeData.compareTo(data);
+            if (compareVal == 0) return nodeData;
+            node = compareVal < 0 ? right : left;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object insert(Object node, T data) {
+        MutableNode<T> owned;
+        if (node instanceof MutableNode<?>) {
+            owned = (MutableNode<T>) node;
+        } else {
+            Tree<T> tree = (Tree<T>) node;
+            if (tree.isEmpty()) return new MutableNode<>(empty, data, empty);
+            owned = own(tree);
+        }
+
+        TreeMetrics.compared();
+        int compareVal = owned.data.compareTo(data);
+        if (compareVal < 0) {
+            // owned.data < data: insert into rightChild subtree
+            owned.right = insert(owned.right, data);
+        } else if (compareVal > 0) {
+            // owned.data > data: insert into leftChild subtree
+            owned.left = insert(owned.left, data);
+        } else {
+            // owned.data == data: replace owned.data, the shape does not change
+            owned.data = data;
+            return owned;
+        }
+        return rebalance(owned);
+    }
+
+    private Object rebalance(MutableNode<T> node) {
+        int balance = heightOf(node.left) - heightOf(node.right);
+        if (balance > 1) {
+            MutableNode<T> left = own(node.left);
+            node.left = left;
+            if (heightOf(left.left) < heightOf(left.right)) {
+                node.left = rotateLeft(left); // left-right case
+            }
+            return rotateRight(node);
+        } else if (balance < -1) {
+            MutableNode<T> right = own(node.right);
+            node.right = right;
+            if (heightOf(right.right) < heightOf(right.left)) {
+                node.right = rotateRight(right); // right-left case
+            }
+            return rotateLeft(node);
+        } else {
+            node.update();
+            return node;
+        }
+    }
+
+    private MutableNode<T> rotateRight(MutableNode<T> node) {
+        MutableNode<T> left = own(node.left);
+        node.left = left.right;
+        node.update();
+        left.right = node;
+        left.update();
+        return left;
+    }
+
+    private MutableNode<T> rotateLeft(MutableNode<T> node) {
+        MutableNode<T> right = own(node.right);
+        node.right = right.left;
+        node.update();
+        right.left = node;
+        right.update();
+        return right;
+    }
+
+    @SuppressWarnings("unchecked")
+    private MutableNode<T> own(Object node) {
+        if (node instanceof MutableNode<?>) return (MutableNode<T>) node;
+
+        Tree<T> tree = (Tree<T>) node;
+        return new MutableNode<>(tree.leftChild(), tree.data(), tree.rightChild());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Tree<T> freeze(Object node) {
+        if (!(node instanceof MutableNode<?>)) return (Tree<T>) node;
+
+        MutableNode<T> owned = (MutableNode<T>) node;
+        return new AvlNode<>(freeze(owned.left), owned.data, freeze(owned.right));
+    }
+
+    private static int heightOf(Object node) {
+        if (node instanceof MutableNode<?> owned) return owned.height;
+        return AvlNode.heightOf((Tree<?>) node);
+    }
+
+    private static long sizeOf(Object node) {
+        if (node instanceof MutableNode<?> owned) return owned.size;
+        return ((Tree<?>) node).size();
+    }
+
+    /**
+     * Node owned by a transient tree, children are persistent trees or mutable nodes again.
+     *
+     * @param <T> parametric type of the node data
+     */
+    private static final class MutableNode<T extends Comparable<T>> {
+        private Object left;
+        private T data;
+        private Object right;
+        private int height;
+        private long size;
+
+        MutableNode(Object left, T data, Object right) {
+            this.left = left;
+            this.data = data;
+            this.right = right;
+            update();
+            TreeMetrics.allocated();
+        }
+
+        void update() {
+            height = 1 + Math.max(heightOf(left), heightOf(right));
+            size = sizeOf(left) + sizeOf(right) + 1;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package tree;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/** Non-recursive traversal engines for our binary search trees {@link Tree}. */
+final class Traversals {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Traversals() {}
+
+    /**
+     * Fold a tree bottom-up using explicit stacks instead of recursion.
+     *
+     * <p>Each node is taken from the stack twice: first to schedule its children, and once the
+     * results for both children are available to combine them. Thus the depth of the tree is only
+     * limited by the heap, not by the call stack.
+     *
+     * @param root top-level node of the tree
+     * @param emptyValue result for an empty tree
+     * @param folder combines the results of the children with the data of a node
+     * @param <T> parametric type of the node data
+     * @param <R> type of the result
+     * @return result for the whole tree
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Comparable<T>, R> R fold(
+            Tree<T> root, R emptyValue, TreeFolder<T, R> folder) {
+        requireNonNull(folder);
+
+        Tree<?>[] nodes = new Tree<?>[DEFAULT_CAPACITY];
+        boolean[] expanded = new boolean[DEFAULT_CAPACITY];
+        int nodeCount = 0;
+        Object[] results = new Object[DEFAULT_CAPACITY];
+        int resultCount = 0;
+
+        nodes[nodeCount++] = root;
+        while (nodeCount > 0) {
+            Tree<T> node = (Tree<T>) nodes[--nodeCount];
+            boolean childrenDone = expanded[nodeCount];
+            nodes[nodeCount] = null;
+
+            if (node.isEmpty()) {
+                if (resultCount == results.length) {
+                    results = Arrays.copyOf(results, 2 * resultCount);
+                }
+                results[resultCount++] = emptyValue;
+            } else if (childrenDone) {
+                R right = (R) results[--resultCount];
+                R left = (R) results[--resultCount];
+                results[resultCount++] = folder.fold(left, node.data(), right);
+                results[resultCount] = null;
+            } else {
+                if (nodeCount + 3 > nodes.length) {
+                    nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+                    expanded = Arrays.copyOf(expanded, 2 * expanded.length);
+                }
+                // the leftChild is on top, so its result ends up below the one of the rightChild
+                nodes[nodeCount] = node;
+                expanded[nodeCount++] = true;
+                nodes[nodeCount] = node.rightChild();
+                expanded[nodeCount++] = false;
+                nodes[nodeCount] = node.leftChild();
+                expanded[nodeCount++] = false;
+            }
+        }
+        return (R) results[0];
+    }
+
+    /**
+     * Render a tree into an {@link Appendable} using an explicit stack instead of recursion.
+     *
+     * <p>Each node is taken from the stack three times, once for each callback of the renderer.
+     * Only the path from the root to the current node is kept on the stack, and all output goes
+     * directly to {@code out}.
+     *
+     * @param root top-level node of the tree
+     * @param renderer called back at each position of the traversal
+     * @param out destination of the output
+     * @param <T> parametric type of the node data
+     * @throws IOException if writing to out fails
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Comparable<T>> void render(
+            Tree<T> root, TreeRenderer<T> renderer, Appendable out) throws IOException {
+        requireNonNull(renderer);
+        requireNonNull(out);
+
+        Tree<?>[] nodes = new Tree<?>[DEFAULT_CAPACITY];
+        byte[] phases = new byte[DEFAULT_CAPACITY];
+        int count = 0;
+
+        nodes[count++] = root;
+        while (count > 0) {
+            Tree<T> node = (Tree<T>) nodes[--count];
+            byte phase = phases[count];
+            nodes[count] = null;
+
+            if (node.isEmpty()) {
+                renderer.renderEmpty(out);
+                continue;
+            }
+            if (count + 2 > nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+                phases = Arrays.copyOf(phases, 2 * phases.length);
+            }
+            switch (phase) {
+                case 0 -> {
+                    renderer.beforeNode(node.data(), out);
+                    nodes[count] = node;
+                    phases[count++] = 1;
+                    nodes[count] = node.leftChild();
+                    phases[count++] = 0;
+                }
+                case 1 -> {
+                    renderer.betweenChildren(node.data(), out);
+                    nodes[count] = node;
+                    phases[count++] = 2;
+                    nodes[count] = node.rightChild();
+                    phases[count++] = 0;
+                }
+                default -> renderer.afterNode(node.data(), out);
+            }
+        }
+    }
+}
@@ -1,5 +1,14 @@
 package tree;
 
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BinaryOperator;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -9,6 +18,59 @@ import java.util.stream.StreamSupport;
  * @param <T> parametric type of the node data
  */
 public interface Tree<T extends Comparable<T>> extends Iterable<T> {
+    /**
+     * Build a balanced tree containing the given data.
+     *
+     * <p>The data is sorted (in parallel for large collections) and the tree is built bottom-up,
+     * so this allocates exactly one node per stored object instead of one path per object as
+     * repeated {@link #addData(Comparable)} would. Of several objects comparing equal, only the
+     * first one in iteration order is stored, just like with {@link #addData(Comparable)}.
+     *
+     * @param data objects to store (must not be or contain {@code null})
+     * @param <T> parametric type of the node data
+     * @return root of a perfectly balanced {@link AvlNode} tree, or an {@link AvlEmpty}
+     * @throws NullPointerException if data is or contains {@code null}
+     */
+    static <T extends Comparable<T>> Tree<T> of(Collection<? extends T> data) {
+        Object[] sorted = data.toArray();
+        for (Object o : sorted) {
+            requireNonNull(o);
+        }
+
+        // stable sort: the first of several equal objects stays in front
+        Arrays.parallelSort(sorted, Tree::<T>compare);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (distinct == 0 || Tree.<T>compare(sorted[distinct - 1], sorted[i]) < 0) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return AvlNode.build(sorted, 0, distinct, new AvlEmpty<T>());
+    }
+
+    /**
+     * Build a balanced tree from data which is already sorted.
+     *
+     * <p>The tree is built bottom-up in a single pass, allocating exactly one node per object.
+     *
+     * @param data objects to store in strictly ascending order (must not contain {@code null})
+     * @param <T> parametric type of the node data
+     * @return root of a perfectly balanced {@link AvlNode} tree, or an {@link AvlEmpty}
+     * @throws NullPointerException if data is or contains {@code null}
+     * @throws IllegalArgumentException if data is not sorted in strictly ascending order
+     */
+    static <T extends Comparable<T>> Tree<T> fromSorted(List<? extends T> data) {
+        Object[] sorted = data.toArray();
+        for (int i = 0; i < sorted.length; i++) {
+            requireNonNull(sorted[i]);
+            if (i > 0 && Tree.<T>compare(sorted[i - 1], sorted[i]) >= 0) {
+                throw new IllegalArgumentException("data is not sorted at index " + i);
+            }
+        }
+
+        return AvlNode.build(sorted, 0, sorted.length, new AvlEmpty<T>());
+    }
+
     /**
      * Add new data to the sorted tree.
      *
@@ -21,6 +83,50 @@ public interface Tree<T extends Comparable<T>> extends Iterable<T> {
      */
     Tree<T> addData(T data);
 
+    /**
+     * Add new data to the sorted tree, or merge it with the stored object comparing equal to it.
+     *
+     * <p>If there is no such object, {@code data} is inserted just like with {@link
+     * #addData(Comparable)}. Otherwise the stored object is replaced by {@code merge.apply(stored,
+     * data)}, which must compare equal to both; the shape of the tree does not change then. If
+     * merge returns the stored object itself, the tree is not changed at all.
+     *
+     * @param data Object to be inserted or merged (must not be {@code null})
+     * @param merge combines the stored object and data (must not be {@code null} or return {@code
+     *     null})
+     * @return the new root node
+     * @throws NullPointerException if data or merge is {@code null}, or merge returns {@code null}
+     * @throws IllegalArgumentException if the merged object does not compare equal to data
+     */
+    Tree<T> mergeData(T data, BinaryOperator<T> merge);
+
+    /**
+     * Remove data from the sorted tree.
+     *
+     * <p>The stored object comparing equal to {@code data} is removed. Like {@link
+     * #addData(Comparable)}, this copies only the path from the root to the changed node and
+     * shares all other subtrees with this tree, which is not changed. Removing an object which is
+     * not stored returns this tree.
+     *
+     * @param data Object to be removed (must not be {@code null})
+     * @return the new root node
+     * @throws NullPointerException if data is {@code null}
+     */
+    Tree<T> removeData(T data);
+
+    /**
+     * Create a transient (mutable) tree starting with the data of this tree.
+     *
+     * <p>Use this to apply a batch of insertions without copying a path of nodes for each of
+     * them, and {@link TransientTree#freeze()} the result to get an immutable tree again. This tree
+     * is not changed.
+     *
+     * @return a new transient tree
+     */
+    default TransientTree<T> asTransient() {
+        return new TransientTree<>(this);
+    }
+
     /**
      * Access the stored data in the top-level node of this tree.
      *
@@ -58,12 +164,193 @@ public interface Tree<T extends Comparable<T>> extends Iterable<T> {
     /**
      * How many non-empty nodes are stored in this tree?
      *
+     * <p>{@link Node} and {@link AvlNode} cache the size of their subtree, so for these trees the
+     * size is available in constant time.
+     *
      * @return number of {@Link Node} elements
      */
     default long size() {
         return stream().count();
     }
 
+    /**
+     * Compute a content hash of the data stored in this tree.
+     *
+     * <p>The digest is the sum of mixed {@code hashCode}s of all data objects, so trees holding
+     * equal data have the same digest, whatever their shape. {@link Node} and {@link AvlNode}
+     * compute it from the digests of their children when they are created, so for these trees it
+     * is available in constant time. Different digests prove that two trees hold different data,
+     * equal digests make equal data very likely, but not certain.
+     *
+     * @return digest of the data, {@code 0} for an empty tree
+     */
+    default long digest() {
+        return fold(0L, (left, data, right) -> left + TreeDigest.of(data) + right);
+    }
+
+    /**
+     * Does this tree hold the same data as another one, whatever the shapes of both trees?
+     *
+     * <p>Unlike {@link #equals(Object)}, which compares the structure of the nodes, this compares
+     * the data in sorted order. Trees with a different size or {@link #digest()} are told apart
+     * at once, and subtrees shared by both trees are skipped without looking into them. Both trees
+     * are walked without recursion, so this also works for degenerated trees.
+     *
+     * @param other tree to compare with (must not be {@code null})
+     * @return {@code true} if the data of both trees is pairwise {@code equals}
+     * @throws NullPointerException if other is {@code null}
+     */
+    default boolean sameData(Tree<T> other) {
+        requireNonNull(other);
+
+        return TreeDigest.sameData(this, other);
+    }
+
+    /**
+     * How many data objects stored in this tree are smaller than the given object?
+     *
+     * <p>This is the (zero-based) position of {@code data} in the sorted order of the tree if it is
+     * stored in the tree, or the position where it would be inserted otherwise. Only a single path
+     * from the root is followed, so this takes O(height) steps if {@link #size()} is cached.
+     *
+     * @param data object to look for (must not be {@code null})
+     * @return number of stored objects smaller than {@code data}
+     * @throws NullPointerException if data is {@code null}
+     */
+    default long rank(T data) {
+        requireNonNull(data);
+
+        long rank = 0;
+        Tree<T> node = this;
+        while (!node.isEmpty()) {
+            TreeMetrics.compared();
+            int compareVal = node.data().compareTo(data);
+            if (compareVal < 0) {
+                // node.data < data: the leftChild subtree and the node itself are smaller
+                rank += node.leftChild().size() + 1;
+                node = node.rightChild();
+            } else if (compareVal > 0) {
+                node = node.leftChild();
+            } else {
+                return rank + node.leftChild().size();
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Access the data object at the given position in the sorted order of this tree.
+     *
+     * <p>{@code select(0)} is the smallest object, {@code select(size() - 1)} the largest one. Only
+     * a single path from the root is followed, so this takes O(height) steps if {@link #size()} is
+     * cached.
+     *
+     * @param index zero-based position in the sorted order
+     * @return data object stored at this position
+     * @throws IndexOutOfBoundsException if index is negative or not smaller than {@link #size()}
+     */
+    default T select(long index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds");
+        }
+
+        Tree<T> node = this;
+        while (true) {
+            long leftSize = node.leftChild().size();
+            if (index < leftSize) {
+                node = node.leftChild();
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.rightChild();
+            } else {
+                return node.data();
+            }
+        }
+    }
+
+    /**
+     * Find the smallest data object greater than or equal to the given object.
+     *
+     * <p>This and the other three navigation methods ({@link #floor}, {@link #higher}, {@link
+     * #lower}) follow a single path from the root, so they take O(height) steps.
+     *
+     * @param data object to compare to (must not be {@code null})
+     * @return stored object, or {@code null} if there is no such object
+     * @throws NullPointerException if data is {@code null}
+     */
+    default T ceiling(T data) {
+        return nearest(data, true, true);
+    }
+
+    /**
+     * Find the largest data object less than or equal to the given object.
+     *
+     * @param data object to compare to (must not be {@code null})
+     * @return stored object, or {@code null} if there is no such object
+     * @throws NullPointerException if data is {@code null}
+     */
+    default T floor(T data) {
+        return nearest(data, false, true);
+    }
+
+    /**
+     * Find the smallest data object strictly greater than the given object.
+     *
+     * @param data object to compare to (must not be {@code null})
+     * @return stored object, or {@code null} if there is no such object
+     * @throws NullPointerException if data is {@code null}
+     */
+    default T higher(T data) {
+        return nearest(data, true, false);
+    }
+
+    /**
+     * Find the largest data object strictly less than the given object.
+     *
+     * @param data object to compare to (must not be {@code null})
+     * @return stored object, or {@code null} if there is no such object
+     * @throws NullPointerException if data is {@code null}
+     */
+    default T lower(T data) {
+        return nearest(data, false, false);
+    }
+
+    /**
+     * Create a cursor positioned before the smallest data object of this tree.
+     *
+     * @return new cursor
+     * @see TreeCursor
+     */
+    default TreeCursor<T> cursor() {
+        return new TreeCursor<>(this);
+    }
+
+    /**
+     * Create a cursor positioned before the smallest data object greater than or equal to the
+     * given object.
+     *
+     * <p>{@link TreeCursor#next()} returns the {@link #ceiling} of data, and {@link
+     * TreeCursor#previous()} its {@link #lower}.
+     *
+     * @param data object to seek to (must not be {@code null})
+     * @return new cursor
+     * @throws NullPointerException if data is {@code null}
+     */
+    default TreeCursor<T> cursor(T data) {
+        TreeCursor<T> cursor = new TreeCursor<>(this);
+        cursor.seek(data);
+        return cursor;
+    }
+
+    /**
+     * How many nodes are on the longest path from this node down to a leaf?
+     *
+     * @return height of this tree ({@code 0} for an empty tree)
+     */
+    default int height() {
+        return fold(0, (left, data, right) -> 1 + Math.max(left, right));
+    }
+
     /**
      * Accept a visitor to this tree.
      *
@@ -76,6 +363,42 @@ public interface Tree<T extends Comparable<T>> extends Iterable<T> {
      */
     String accept(TreeVisitor<T> visitor);
 
+    /**
+     * Fold this tree bottom-up into a single result.
+     *
+     * <p>Every empty tree yields {@code emptyValue}, and every node combines the results for its
+     * two children with its data. For instance, {@code fold(0, (l, d, r) -> l + 1 + r)} counts the
+     * nodes. Unlike a {@link TreeVisitor}, the folder does not need to traverse the children on
+     * its own: the traversal uses explicit stacks, so trees of any depth can be folded without
+     * risking a {@link StackOverflowError}.
+     *
+     * @param emptyValue result for an empty tree
+     * @param folder combines the results of the children with the data of a node (must not be
+     *     {@code null})
+     * @param <R> type of the result
+     * @return result for this tree
+     * @throws NullPointerException if folder is {@code null}
+     */
+    default <R> R fold(R emptyValue, TreeFolder<T, R> folder) {
+        return Traversals.fold(this, emptyValue, folder);
+    }
+
+    /**
+     * Render this tree piece by piece into an {@link Appendable}.
+     *
+     * <p>The output is written while traversing the tree, without building strings for the
+     * subtrees first, and the traversal uses an explicit stack. Thus the memory needed does not
+     * depend on the size of the tree, only on its height (and on the buffering of {@code out}).
+     *
+     * @param renderer called back at each position of the traversal (must not be {@code null})
+     * @param out destination of the output (must not be {@code null})
+     * @throws NullPointerException if renderer or out is {@code null}
+     * @throws IOException if writing to out fails
+     */
+    default void render(TreeRenderer<T> renderer, Appendable out) throws IOException {
+        Traversals.render(this, renderer, out);
+    }
+
     /**
      * Create a stream to traverse the tree in depth-first order.
      *
@@ -84,4 +407,209 @@ public interface Tree<T extends Comparable<T>> extends Iterable<T> {
     default Stream<T> stream() {
         return StreamSupport.stream(spliterator(), false);
     }
+
+    /**
+     * Create a stream to traverse the data within the given bounds in sorted order.
+     *
+     * <p>Only subtrees overlapping the range are descended into, so streaming {@code k} data
+     * objects takes O(height + k) steps. The stream is lazy: the tree is not touched before the
+     * terminal operation starts.
+     *
+     * @param from lower bound of the range (must not be {@code null})
+     * @param fromInclusive {@code true} if the lower bound belongs to the range
+     * @param to upper bound of the range (must not be {@code null})
+     * @param toInclusive {@code true} if the upper bound belongs to the range
+     * @return stream of node data objects within the range
+     * @throws NullPointerException if from or to is {@code null}
+     * @throws IllegalArgumentException if from is greater than to
+     */
+    default Stream<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        requireNonNull(from);
+        requireNonNull(to);
+        if (from.compareTo(to) > 0) throw new IllegalArgumentException("from is greater than to");
+
+        int characteristics =
+                Spliterator.ORDERED
+                        | Spliterator.SORTED
+                        | Spliterator.DISTINCT
+                        | Spliterator.NONNULL
+                        | Spliterator.IMMUTABLE;
+        return StreamSupport.stream(
+                () ->
+                        Spliterators.spliteratorUnknownSize(
+                                new TreeIterator<>(this, from, fromInclusive, to, toInclusive),
+                                characteristics),
+                characteristics,
+                false);
+    }
+
+    /**
+     * Create a stream to traverse the data from {@code from} (inclusive) to {@code to} (exclusive).
+     *
+     * @param from lower bound of the range (inclusive, must not be {@code null})
+     * @param to upper bound of the range (exclusive, must not be {@code null})
+     * @return stream of node data objects within the range
+     * @throws NullPointerException if from or to is {@code null}
+     * @throws IllegalArgumentException if from is greater than to
+     * @see #range(Comparable, boolean, Comparable, boolean)
+     */
+    default Stream<T> range(T from, T to) {
+        return range(from, true, to, false);
+    }
+
+    /**
+     * Create a parallel stream to traverse the tree in depth-first order.
+     *
+     * <p>The stream is split at subtree boundaries, so the work can be distributed over several
+     * threads without copying the data first. The encounter order is still the sorted order.
+     *
+     * @return parallel stream of node data objects
+     */
+    default Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Create a stream of the differences between this tree and another one, in sorted order.
+     *
+     * <p>Data objects only in this tree are reported as removed, objects only in the other tree as
+     * added, and objects comparing equal but not being {@code equals} as replaced. Subtrees which
+     * are the very same object in both trees are skipped without looking into them: a tree derived
+     * from another one by {@code k} changes shares all nodes off the copied paths, so the diff
+     * takes about O(k * height) steps instead of O(size). Trees without shared nodes are compared
+     * fully.
+     * The stream is lazy: the trees are not touched before the terminal operation starts.
+     *
+     * @param other newer tree to compare with (must not be {@code null})
+     * @return stream of the changes from this tree to the other one
+     * @throws NullPointerException if other is {@code null}
+     */
+    default Stream<TreeChange<T>> diff(Tree<T> other) {
+        return changes(other, false);
+    }
+
+    /**
+     * Create a stream of the differences between this tree and a replica of it, in sorted order.
+     *
+     * <p>This works like {@link #diff(Tree)}, but also skips two subtrees with the same size,
+     * smallest object and {@link #digest()}, even if they are different objects. So two replicas
+     * built independently of each other, which never share nodes, are synchronized by descending
+     * only into the subtrees whose digests differ. This is as reliable as the digests: data
+     * missing from the result would need two different subtrees with the same digest.
+     *
+     * @param replica tree to compare with (must not be {@code null})
+     * @return stream of the changes from this tree to the replica
+     * @throws NullPointerException if replica is {@code null}
+     */
+    default Stream<TreeChange<T>> reconcile(Tree<T> replica) {
+        return changes(replica, true);
+    }
+
+    private Stream<TreeChange<T>> changes(Tree<T> other, boolean trustDigests) {
+        requireNonNull(other);
+
+        int characteristics =
+                Spliterator.ORDERED
+                        | Spliterator.DISTINCT
+                        | Spliterator.NONNULL
+                        | Spliterator.IMMUTABLE;
+        return StreamSupport.stream(
+                () ->
+                        Spliterators.spliteratorUnknownSize(
+                                new TreeDiffIterator<>(this, other, trustDigests),
+                                characteristics),
+                characteristics,
+                false);
+    }
+
+    /**
+     * Compute a tree with the data of this tree and another one.
+     *
+     * <p>Of two objects comparing equal, the one of this tree is kept, just like with {@link
+     * #addData(Comparable)}. Instead of inserting the objects one by one, the trees are split and
+     * joined again: merging {@code m} objects into a tree of size {@code n >= m} takes O(m log(n /
+     * m + 1)) steps, and large trees are merged in parallel on the common {@link
+     * java.util.concurrent.ForkJoinPool}. Neither tree is changed, the result shares unchanged
+     * subtrees with both of them.
+     *
+     * @param other tree to merge with (must not be {@code null})
+     * @return balanced tree with the data of both trees, an {@link AvlNode} or an {@link AvlEmpty}
+     * @throws NullPointerException if other is {@code null}
+     */
+    default Tree<T> union(Tree<T> other) {
+        return union(other, (stored, data) -> stored);
+    }
+
+    /**
+     * Compute a tree with the data of this tree and another one, merging objects comparing equal.
+     *
+     * <p>This works like {@link #union(Tree)}, but two objects comparing equal are replaced by
+     * {@code merge.apply(stored, data)}, where {@code stored} is the object of this tree and {@code
+     * data} the one of the other tree, like with {@link #mergeData(Comparable, BinaryOperator)}.
+     * Trees which are not balanced are copied into balanced ones first, which takes O(size).
+     *
+     * @param other tree to merge with (must not be {@code null})
+     * @param merge combines the objects comparing equal (must not be {@code null} or return {@code
+     *     null})
+     * @return balanced tree with the data of both trees, an {@link AvlNode} or an {@link AvlEmpty}
+     * @throws NullPointerException if other or merge is {@code null}, or merge returns {@code null}
+     * @throws IllegalArgumentException if a merged object does not compare equal to the others
+     */
+    default Tree<T> union(Tree<T> other, BinaryOperator<T> merge) {
+        return AvlJoin.union(this, other, merge);
+    }
+
+    /**
+     * Compute a tree with the data of this tree comparing equal to some data of another one.
+     *
+     * <p>The objects of this tree are kept. Like {@link #union(Tree)}, this splits and joins the
+     * trees (in parallel for large trees) instead of looking up the objects one by one.
+     *
+     * @param other tree to intersect with (must not be {@code null})
+     * @return balanced tree with the common data, an {@link AvlNode} or an {@link AvlEmpty}
+     * @throws NullPointerException if other is {@code null}
+     */
+    default Tree<T> intersection(Tree<T> other) {
+        return AvlJoin.intersection(this, other);
+    }
+
+    /**
+     * Compute a tree with the data of this tree not comparing equal to any data of another one.
+     *
+     * <p>Like {@link #union(Tree)}, this splits and joins the trees (in parallel for large trees)
+     * instead of removing the objects one by one.
+     *
+     * @param other tree with the data to remove (must not be {@code null})
+     * @return balanced tree with the remaining data, an {@link AvlNode} or an {@link AvlEmpty}
+     * @throws NullPointerException if other is {@code null}
+     */
+    default Tree<T> difference(Tree<T> other) {
+        return AvlJoin.difference(this, other);
+    }
+
+    private T nearest(T data, boolean above, boolean inclusive) {
+        requireNonNull(data);
+
+        T nearest = null;
+        Tree<T> node = this;
+        while (!node.isEmpty()) {
+            TreeMetrics.compared();
+            int compareVal = node.data().compareTo(data);
+            if (compareVal == 0 && inclusive) return node.data();
+
+            if (above ? compareVal > 0 : compareVal < 0) {
+                // node.data is on the right side of data: closer candidates are below it
+                nearest = node.data();
+                node = above ? node.leftChild() : node.rightChild();
+            } else {
+                node = above ? node.rightChild() : node.leftChild();
+            }
+        }
+        return nearest;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<T>> int compare(Object a, Object b) {
+        return ((T) a).compareTo((T) b);
+    }
 }
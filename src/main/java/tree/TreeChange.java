@@ -0,0 +1,77 @@
+package tree;
+
+/**
+ * Difference of a single data object between two trees, see {@link Tree#diff(Tree)}.
+ *
+ * <p>An object only in the older tree has been removed ({@code after} is {@code null}), an object
+ * only in the newer tree has been added ({@code before} is {@code null}). If both trees contain an
+ * object comparing equal, but the objects are not {@code equals}, the object has been replaced and
+ * the change holds both of them.
+ *
+ * @param before object in the older tree, {@code null} if it has been added
+ * @param after object in the newer tree, {@code null} if it has been removed
+ * @param <T> parametric type of the node data
+ */
+public record TreeChange<T extends Comparable<T>>(T before, T after) {
+    /**
+     * Create a new change.
+     *
+     * @throws IllegalArgumentException if both objects are {@code null}
+     */
+    public TreeChange {
+        if (before == null && after == null) {
+            throw new IllegalArgumentException("before and after must not both be null");
+        }
+    }
+
+    /**
+     * Create a change for an added object.
+     *
+     * @param after object in the newer tree (must not be {@code null})
+     * @param <T> parametric type of the node data
+     * @return new change
+     * @throws IllegalArgumentException if after is {@code null}
+     */
+    public static <T extends Comparable<T>> TreeChange<T> added(T after) {
+        return new TreeChange<>(null, after);
+    }
+
+    /**
+     * Create a change for a removed object.
+     *
+     * @param before object in the older tree (must not be {@code null})
+     * @param <T> parametric type of the node data
+     * @return new change
+     * @throws IllegalArgumentException if before is {@code null}
+     */
+    public static <T extends Comparable<T>> TreeChange<T> removed(T before) {
+        return new TreeChange<>(before, null);
+    }
+
+    /**
+     * Has the object been added?
+     *
+     * @return {@code true} if only the newer tree contains the object
+     */
+    public boolean isAdded() {
+        return before == null;
+    }
+
+    /**
+     * Has the object been removed?
+     *
+     * @return {@code true} if only the older tree contains the object
+     */
+    public boolean isRemoved() {
+        return after == null;
+    }
+
+    /**
+     * Has the object been replaced by a different one comparing equal?
+     *
+     * @return {@code true} if both trees contain the object
+     */
+    public boolean isReplaced() {
+        return before != null && after != null;
+    }
+}
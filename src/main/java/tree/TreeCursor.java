@@ -0,0 +1,186 @@
+package tree;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Bidirectional cursor for our binary search trees {@link Tree}.
+ *
+ * <p>A cursor is positioned between two data objects of the tree, like a {@link
+ * java.util.ListIterator}: {@link #next()} returns the object after the cursor and {@link
+ * #previous()} the one before it, each moving the cursor over the returned object. It can be
+ * moved to any key with {@link #seek} and {@link #seekAfter} in O(height) steps, and walking
+ * {@code k} objects in one direction from there takes O(height + k) steps, so a page of a listing
+ * costs the same anywhere in the tree.
+ *
+ * <p>The cursor keeps the path from the root to the object after it. Trees are immutable, so the
+ * cursor is never invalidated, and it always sees the tree it was created for.
+ *
+ * @param <T> parametric type of the node data
+ */
+public final class TreeCursor<T extends Comparable<T>> implements Iterator<T> {
+    private final Tree<T> root;
+    // path from the root to the node after the cursor, empty if the cursor is after the last node
+    private Tree<T>[] path;
+    private int depth;
+
+    /**
+     * Create a new cursor positioned before the smallest data object of a tree.
+     *
+     * @param root top-level node of the tree
+     */
+    public TreeCursor(Tree<T> root) {
+        this.root = requireNonNull(root);
+        this.path = TreeIterator.newStack(root);
+        seekFirst();
+    }
+
+    /** Move the cursor before the smallest data object. */
+    public void seekFirst() {
+        clear();
+        pushAll(root, true);
+    }
+
+    /** Move the cursor after the largest data object. */
+    public void seekLast() {
+        clear();
+    }
+
+    /**
+     * Move the cursor before the smallest data object greater than or equal to the given object.
+     *
+     * @param data object to seek to (must not be {@code null})
+     * @throws NullPointerException if data is {@code null}
+     */
+    public void seek(T data) {
+        seek(data, true);
+    }
+
+    /**
+     * Move the cursor after the largest data object less than or equal to the given object.
+     *
+     * <p>This is the starting point for walking downward from a key (inclusive) with {@link
+     * #previous()}.
+     *
+     * @param data object to seek to (must not be {@code null})
+     * @throws NullPointerException if data is {@code null}
+     */
+    public void seekAfter(T data) {
+        seek(data, false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return depth > 0;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+
+        Tree<T> node = path[depth - 1];
+        if (!node.rightChild().isEmpty()) {
+            // the successor is the smallest node of the rightChild subtree
+            pushAll(node.rightChild(), true);
+        } else {
+            // the successor is the nearest ancestor of which node is in the leftChild subtree
+            Tree<T> child;
+            do {
+                child = pop();
+            } while (depth > 0 && path[depth - 1].rightChild() == child);
+        }
+        return node.data();
+    }
+
+    /**
+     * Is there a data object before the cursor?
+     *
+     * @return {@code true} if {@link #previous()} returns an object
+     */
+    public boolean hasPrevious() {
+        if (depth == 0) return !root.isEmpty();
+        if (!path[depth - 1].leftChild().isEmpty()) return true;
+
+        // otherwise there must be an ancestor of which the node is in the rightChild subtree
+        for (int i = depth - 1; i > 0; i--) {
+            if (path[i - 1].rightChild() == path[i]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Return the data object before the cursor and move the cursor backwards over it.
+     *
+     * @return previous data object
+     * @throws NoSuchElementException if the cursor is before the smallest data object
+     */
+    public T previous() {
+        if (!hasPrevious()) throw new NoSuchElementException();
+
+        if (depth == 0) {
+            // after the last node: the predecessor is the largest node of the tree
+            pushAll(root, false);
+        } else if (!path[depth - 1].leftChild().isEmpty()) {
+            // the predecessor is the largest node of the leftChild subtree
+            pushAll(path[depth - 1].leftChild(), false);
+        } else {
+            // the predecessor is the nearest ancestor of which node is in the rightChild subtree
+            Tree<T> child;
+            do {
+                child = pop();
+            } while (path[depth - 1].leftChild() == child);
+        }
+        return path[depth - 1].data();
+    }
+
+    private void seek(T data, boolean before) {
+        requireNonNull(data);
+
+        clear();
+        // keep the path down to the last node which belongs after the cursor
+        int after = 0;
+        Tree<T> node = root;
+        while (!node.isEmpty()) {
+            TreeMetrics.compared();
+            int compareVal = node.data().compareTo(data);
+            push(node);
+            if (compareVal > 0 || (compareVal == 0 && before)) {
+                after = depth;
+                if (compareVal == 0) break;
+                node = node.leftChild();
+            } else {
+                node = node.rightChild();
+            }
+        }
+        while (depth > after) {
+            pop();
+        }
+    }
+
+    private void pushAll(Tree<T> node, boolean leftmost) {
+        while (!node.isEmpty()) {
+            push(node);
+            node = leftmost ? node.leftChild() : node.rightChild();
+        }
+    }
+
+    private void push(Tree<T> node) {
+        TreeMetrics.visited();
+        if (depth == path.length) path = Arrays.copyOf(path, Math.max(2 * depth, 1));
+        path[depth++] = node;
+    }
+
+    private Tree<T> pop() {
+        Tree<T> node = path[--depth];
+        path[depth] = null;
+        return node;
+    }
+
+    private void clear() {
+        Arrays.fill(path, 0, depth, null);
+        depth = 0;
+    }
+}
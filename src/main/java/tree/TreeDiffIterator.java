@@ -0,0 +1,117 @@
+package tree;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the differences of two trees, see {@link Tree#diff(Tree)}.
+ *
+ * <p>Both trees are walked in sorted order at once, but a subtree is only expanded when it cannot
+ * be skipped: as soon as both walks arrive at the very same subtree object, it is dropped from both
+ * without looking into it. Trees derived from each other by adding and removing data share all
+ * subtrees off the copied paths, so the work is proportional to the changed region of the trees
+ * instead of their size.
+ *
+ * <p>Replicas of a tree built independently of each other share no subtree objects. When asked to
+ * trust the digests, the iterator also skips two subtrees with the same size, smallest object and
+ * {@link Tree#digest()}, and so descends only into the subtrees whose digests differ.
+ *
+ * @param <T> parametric type of the node data
+ */
+class TreeDiffIterator<T extends Comparable<T>> implements Iterator<TreeChange<T>> {
+    private final TreeWalk<T> before;
+    private final TreeWalk<T> after;
+    private final boolean trustDigests;
+    private TreeChange<T> next;
+
+    /**
+     * Create a new iterator over the changes from one tree to another one.
+     *
+     * @param before top-level node of the older tree
+     * @param after top-level node of the newer tree
+     * @param trustDigests {@code true} to skip subtrees with equal digests, {@code false} to skip
+     *     the very same subtree objects only
+     */
+    TreeDiffIterator(Tree<T> before, Tree<T> after, boolean trustDigests) {
+        this.before = new TreeWalk<>(requireNonNull(before));
+        this.after = new TreeWalk<>(requireNonNull(after));
+        this.trustDigests = trustDigests;
+        this.next = advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public TreeChange<T> next() {
+        if (!hasNext()) throw new NoSuchElementException();
+
+        TreeChange<T> change = next;
+        next = advance();
+        return change;
+    }
+
+    private TreeChange<T> advance() {
+        while (true) {
+            if (before.isEmpty() && after.isEmpty()) return null;
+
+            if (after.isEmpty() || before.isEmpty()) {
+                // the rest of the other tree has been added or removed as a whole
+                TreeWalk<T> rest = after.isEmpty() ? before : after;
+                if (rest.isWhole()) {
+                    rest.expand();
+                    continue;
+                }
+                T data = rest.popData();
+                return rest == before ? TreeChange.removed(data) : TreeChange.added(data);
+            }
+
+            if (before.isWhole() && after.isWhole() && before.top() == after.top()) {
+                // shared subtree: nothing has changed in here
+                before.pop();
+                after.pop();
+                continue;
+            }
+
+            TreeMetrics.compared();
+            int compareVal = before.low().compareTo(after.low());
+            if (compareVal < 0) {
+                // the smallest remaining object of before is not in after
+                if (before.isWhole()) before.expand();
+                else return TreeChange.removed(before.popData());
+            } else if (compareVal > 0) {
+                // the smallest remaining object of after is not in before
+                if (after.isWhole()) after.expand();
+                else return TreeChange.added(after.popData());
+            } else if (before.isWhole() || after.isWhole()) {
+                // the same smallest object: descend until both are single objects or shared
+                if (trustDigests && before.isWhole() && after.isWhole() && sameDigest()) {
+                    // most likely the same data: replicas need not share the subtree objects
+                    before.pop();
+                    after.pop();
+                } else if (!after.isWhole()) {
+                    before.expand();
+                } else if (!before.isWhole()) {
+                    after.expand();
+                } else if (before.top().size() >= after.top().size()) {
+                    before.expand();
+                } else {
+                    after.expand();
+                }
+            } else {
+                T oldData = before.popData();
+                T newData = after.popData();
+                if (!oldData.equals(newData)) return new TreeChange<>(oldData, newData);
+            }
+        }
+    }
+
+    private boolean sameDigest() {
+        return before.top().size() == after.top().size()
+                && before.top().digest() == after.top().digest();
+    }
+}
@@ -0,0 +1,138 @@
+package tree;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Content digests of our binary search trees {@link Tree}.
+ *
+ * <p>The digest of a tree is an additive multiset hash: the sum of the mixed {@code hashCode}s of
+ * its data objects, modulo 2<sup>64</sup>. Thus a node computes its digest from the digests of its
+ * children in O(1), and trees holding the same data have the same digest whatever their shape.
+ * Unlike a Merkle hash, the digest does not depend on the order or nesting of the data, and it is
+ * no cryptographic hash: different data may have the same digest, so equal digests only hint at
+ * equal trees, while different digests prove that two trees differ.
+ */
+final class TreeDigest {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private TreeDigest() {}
+
+    /**
+     * Compute the digest of a node.
+     *
+     * @param leftChild leftChild subtree
+     * @param data data of the node
+     * @param rightChild rightChild subtree
+     * @return digest of the tree with this node as root
+     */
+    static long of(Tree<?> leftChild, Object data, Tree<?> rightChild) {
+        return leftChild.digest() + of(data) + rightChild.digest();
+    }
+
+    /**
+     * Compute the digest of a single data object.
+     *
+     * @param data object to digest
+     * @return well-mixed 64 bits derived from {@code data.hashCode()}
+     */
+    static long of(Object data) {
+        // the finalizer of MurmurHash3, offset so that a hashCode of 0 still counts
+        long h = data.hashCode() + GOLDEN_GAMMA;
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Do two trees hold equal data in the same order?
+     *
+     * <p>Both trees are walked in order with explicit stacks, skipping subtrees which are the very
+     * same object in both trees. Two subtrees at the same position with the same size but
+     * different digests prove that the trees differ, without looking into them.
+     *
+     * @param a first tree
+     * @param b second tree
+     * @param <T> parametric type of the node data
+     * @return {@code true} if the data of both trees is pairwise {@code equals}
+     */
+    static <T extends Comparable<T>> boolean sameData(Tree<T> a, Tree<T> b) {
+        if (a == b) return true;
+        if (a.size() != b.size() || a.digest() != b.digest()) return false;
+
+        TreeWalk<T> walkA = new TreeWalk<>(a);
+        TreeWalk<T> walkB = new TreeWalk<>(b);
+        while (!walkA.isEmpty() && !walkB.isEmpty()) {
+            Tree<T> topA = walkA.top();
+            Tree<T> topB = walkB.top();
+            if (walkA.isWhole() && walkB.isWhole()) {
+                if (topA == topB) {
+                    walkA.pop();
+                    walkB.pop();
+                    continue;
+                }
+                // both cover the same positions: different digests mean different data
+                if (topA.size() == topB.size() && topA.digest() != topB.digest()) return false;
+            }
+
+            if (!walkA.isWhole() && !walkB.isWhole()) {
+                if (!walkA.popData().equals(walkB.popData())) return false;
+            } else if (!walkB.isWhole()
+                    || (walkA.isWhole() && topA.size() >= topB.size())) {
+                walkA.expand();
+            } else {
+                walkB.expand();
+            }
+        }
+        return walkA.isEmpty() && walkB.isEmpty();
+    }
+
+    /**
+     * Do two trees have the same structure and equal data?
+     *
+     * <p>This is the equality of {@link Node} and {@link AvlNode}. The trees are compared with an
+     * explicit stack of node pairs, so even degenerate trees cannot overflow the call stack.
+     * Subtrees which are the very same object in both trees are skipped, and nodes with different
+     * sizes or digests prove that the trees differ without looking into them.
+     *
+     * @param a first tree
+     * @param b second tree
+     * @return {@code true} if both trees have the same nodes with {@code equals} data
+     */
+    static boolean sameShape(Tree<?> a, Tree<?> b) {
+        Deque<Tree<?>> pending = new ArrayDeque<>();
+        pending.push(b);
+        pending.push(a);
+        while (!pending.isEmpty()) {
+            Tree<?> nodeA = pending.pop();
+            Tree<?> nodeB = pending.pop();
+            if (nodeA == nodeB) continue;
+            if (!isNode(nodeA) || !isNode(nodeB)) {
+                // empty trees, or a node and an empty tree: no recursion into nodes
+                if (!nodeA.equals(nodeB)) return false;
+                continue;
+            }
+
+            if (nodeA.getClass() != nodeB.getClass()
+                    || nodeA.size() != nodeB.size()
+                    || nodeA.digest() != nodeB.digest()
+                    || height(nodeA) != height(nodeB)
+                    || !nodeA.data().equals(nodeB.data())) {
+                return false;
+            }
+            pending.push(nodeB.rightChild());
+            pending.push(nodeA.rightChild());
+            pending.push(nodeB.leftChild());
+            pending.push(nodeA.leftChild());
+        }
+        return true;
+    }
+
+    private static boolean isNode(Tree<?> tree) {
+        return tree instanceof Node<?> || tree instanceof AvlNode<?>;
+    }
+
+    private static int height(Tree<?> node) {
+        return node instanceof AvlNode<?> avl ? avl.height() : 0;
+    }
+}
@@ -0,0 +1,23 @@
+package tree;
+
+/**
+ * Combines the results for the children of a node with the data of the node.
+ *
+ * <p>This is the typed, non-recursive alternative to a {@link TreeVisitor}: see {@link
+ * Tree#fold(Object, TreeFolder)}.
+ *
+ * @param <T> parametric type of the node data
+ * @param <R> type of the result
+ */
+@FunctionalInterface
+public interface TreeFolder<T extends Comparable<T>, R> {
+    /**
+     * Compute the result for a node.
+     *
+     * @param left result for the leftChild subtree
+     * @param data data of the node
+     * @param right result for the rightChild subtree
+     * @return the result for the node
+     */
+    R fold(R left, T data, R right);
+}
@@ -2,9 +2,10 @@ package tree;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Stack;
+import java.util.function.Consumer;
 
 /**
  * Iterator for our binary search trees {@link Tree}.
@@ -12,7 +13,15 @@ import java.util.Stack;
  * @param <T> parametric type of the node data
  */
 public class TreeIterator<T extends Comparable<T>> implements Iterator<T> {
-    private final Stack<Tree<T>> stack;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // nodes on the path to the next node, which is on top of the stack (at index size - 1)
+    private Tree<T>[] stack;
+    private int size;
+    private final T from;
+    private final boolean fromInclusive;
+    private final T to;
+    private final boolean toInclusive;
 
     /**
      * Create a new Iterator for a given tree.
@@ -20,21 +29,42 @@ public class TreeIterator<T extends Comparable<T>> implements Iterator<T> {
      * @param root top-level node of the tree
      */
     public TreeIterator(Tree<T> root) {
+        this(requireNonNull(root), null, false, null, false);
+    }
+
+    /**
+     * Create a new Iterator for the data within the given bounds of a tree.
+     *
+     * <p>Subtrees outside the bounds are skipped without visiting them, so iterating over {@code k}
+     * data objects takes O(height + k) steps.
+     *
+     * @param root top-level node of the tree
+     * @param from lower bound of the range
+     * @param fromInclusive {@code true} if the lower bound belongs to the range
+     * @param to upper bound of the range
+     * @param toInclusive {@code true} if the upper bound belongs to the range
+     */
+    public TreeIterator(Tree<T> root, T from, boolean fromInclusive, T to, boolean toInclusive) {
         requireNonNull(root);
 
-        stack = new Stack<>();
+        this.stack = newStack(root);
+        this.from = from;
+        this.fromInclusive = fromInclusive;
+        this.to = to;
+        this.toInclusive = toInclusive;
         pushAllLeftNodes(root);
     }
 
     @Override
     public boolean hasNext() {
-        return !stack.isEmpty();
+        return size > 0 && !isAboveRange(stack[size - 1].data());
     }
 
     @Override
     public T next() {
         if (hasNext()) {
-            Tree<T> node = stack.pop();
+            Tree<T> node = stack[--size];
+            stack[size] = null;
             pushAllLeftNodes(node.rightChild());
             return node.data();
         } else {
@@ -42,12 +72,77 @@ public class TreeIterator<T extends Comparable<T>> implements Iterator<T> {
         }
     }
 
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        requireNonNull(action);
+
+        while (size > 0) {
+            Tree<T> node = stack[--size];
+            stack[size] = null;
+            T data = node.data();
+            if (isAboveRange(data)) {
+                size = 0;
+                return;
+            }
+
+            pushAllLeftNodes(node.rightChild());
+            action.accept(data);
+        }
+    }
+
     private void pushAllLeftNodes(Tree<T> node) {
         requireNonNull(node);
 
         while (!node.isEmpty()) {
-            stack.push(node);
-            node = node.leftChild();
+            TreeMetrics.visited();
+            if (isBelowRange(node.data())) {
+                // node and its leftChild subtree are too small
+                node = node.rightChild();
+            } else {
+                if (size == stack.length) stack = Arrays.copyOf(stack, 2 * size);
+                stack[size++] = node;
+                node = node.leftChild();
+            }
         }
     }
+
+    /**
+     * Create an array for a stack of nodes on paths from the root of a tree.
+     *
+     * @param root top-level node of the tree
+     * @param <T> parametric type of the node data
+     * @return new array, long enough for every path unless the tree is not balanced
+     */
+    static <T extends Comparable<T>> Tree<T>[] newStack(Tree<T> root) {
+        // the height of a balanced tree is known, and the stack never gets deeper than that
+        return newStack(root instanceof AvlNode<T> node ? node.height() : DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an array for a stack of nodes.
+     *
+     * @param capacity length of the array
+     * @param <T> parametric type of the node data
+     * @return new array of the given length
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Comparable<T>> Tree<T>[] newStack(int capacity) {
+        return (Tree<T>[]) new Tree<?>[capacity];
+    }
+
+    private boolean isBelowRange(T data) {
+        if (from == null) return false;
+
+        TreeMetrics.compared();
+        int compareVal = data.compareTo(from);
+        return compareVal < 0 || (compareVal == 0 && !fromInclusive);
+    }
+
+    private boolean isAboveRange(T data) {
+        if (to == null) return false;
+
+        TreeMetrics.compared();
+        int compareVal = data.compareTo(to);
+        return compareVal > 0 || (compareVal == 0 && !toInclusive);
+    }
 }
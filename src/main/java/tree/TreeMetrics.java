@@ -0,0 +1,137 @@
+package tree;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in counters for the work done by our binary search trees {@link Tree}.
+ *
+ * <p>When enabled, the trees count the calls of {@link Comparable#compareTo} while searching,
+ * inserting and removing, the nodes allocated (including the copied paths and rotations), and the
+ * nodes visited by {@link TreeIterator}, {@link TreeCursor} and streams. The counters are kept both
+ * in total and per thread, so the work of a single operation can be measured with two {@link
+ * #sample()}s even while other threads use trees as well.
+ *
+ * <p>The counters are disabled by default, or enabled from the start with the system property
+ * {@code tree.metrics=true}. While disabled, each counting point only reads a single flag.
+ */
+public final class TreeMetrics {
+    private static volatile boolean enabled = Boolean.getBoolean("tree.metrics");
+
+    private static final LongAdder COMPARISONS = new LongAdder();
+    private static final LongAdder ALLOCATIONS = new LongAdder();
+    private static final LongAdder VISITS = new LongAdder();
+    private static final ThreadLocal<long[]> LOCAL = ThreadLocal.withInitial(() -> new long[3]);
+
+    private TreeMetrics() {}
+
+    /**
+     * Are the counters enabled?
+     *
+     * @return {@code true} if the trees count their work
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable the counters; the counts so far are kept.
+     *
+     * @param enabled {@code true} to start counting, {@code false} to stop
+     */
+    public static void setEnabled(boolean enabled) {
+        TreeMetrics.enabled = enabled;
+    }
+
+    /**
+     * Take a sample of the counts of the current thread.
+     *
+     * @return counts of this thread since it started
+     */
+    public static Sample sample() {
+        long[] local = LOCAL.get();
+        return new Sample(local[0], local[1], local[2]);
+    }
+
+    /**
+     * How often has {@code compareTo} been called by all threads?
+     *
+     * @return total number of comparisons
+     */
+    public static long comparisons() {
+        return COMPARISONS.sum();
+    }
+
+    /**
+     * How many nodes have been allocated by all threads?
+     *
+     * @return total number of nodes
+     */
+    public static long allocations() {
+        return ALLOCATIONS.sum();
+    }
+
+    /**
+     * How many nodes have iterators, cursors and streams of all threads visited?
+     *
+     * @return total number of nodes
+     */
+    public static long visits() {
+        return VISITS.sum();
+    }
+
+    /** Set the total counts back to zero, the counts per thread are not changed. */
+    public static void reset() {
+        COMPARISONS.reset();
+        ALLOCATIONS.reset();
+        VISITS.reset();
+    }
+
+    static void compared() {
+        if (enabled) count(COMPARISONS, 0);
+    }
+
+    static void allocated() {
+        if (enabled) count(ALLOCATIONS, 1);
+    }
+
+    /** Take back the count of a node which only stands in for another one, see {@link Node}. */
+    static void discarded() {
+        if (enabled) uncount(ALLOCATIONS, 1);
+    }
+
+    static void visited() {
+        if (enabled) count(VISITS, 2);
+    }
+
+    private static void count(LongAdder total, int index) {
+        total.increment();
+        LOCAL.get()[index]++;
+    }
+
+    private static void uncount(LongAdder total, int index) {
+        total.decrement();
+        LOCAL.get()[index]--;
+    }
+
+    /**
+     * Counts of a single thread at some point in time.
+     *
+     * @param comparisons calls of {@code compareTo}
+     * @param allocations nodes allocated
+     * @param visits nodes visited by iterators, cursors and streams
+     */
+    public record Sample(long comparisons, long allocations, long visits) {
+        /**
+         * Compute the work done between an earlier sample and this one.
+         *
+         * @param earlier sample taken before (must not be {@code null})
+         * @return difference of the counts
+         */
+        public Sample minus(Sample earlier) {
+            return new Sample(
+                    comparisons - earlier.comparisons,
+                    allocations - earlier.allocations,
+                    visits - earlier.visits);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package tree;
+
+import java.io.IOException;
+
+/**
+ * Renders a tree piece by piece into an {@link Appendable}.
+ *
+ * <p>This is the streaming counterpart to a {@link TreeVisitor} returning a string: instead of
+ * building and concatenating strings for all subtrees, the renderer is called back at each
+ * position of the traversal and writes its output directly, see {@link Tree#render(TreeRenderer,
+ * Appendable)}. For every node, {@link #beforeNode} is called first (pre-order position), then the
+ * leftChild subtree is rendered, then {@link #betweenChildren} is called (in-order position), then
+ * the rightChild subtree is rendered, and finally {@link #afterNode} is called (post-order
+ * position). All callbacks do nothing by default.
+ *
+ * @param <T> parametric type of the node data
+ */
+public interface TreeRenderer<T extends Comparable<T>> {
+    /**
+     * Render an empty node.
+     *
+     * @param out destination of the output
+     * @throws IOException if writing to out fails
+     */
+    default void renderEmpty(Appendable out) throws IOException {}
+
+    /**
+     * Render a node before its children.
+     *
+     * @param data data of the node
+     * @param out destination of the output
+     * @throws IOException if writing to out fails
+     */
+    default void beforeNode(T data, Appendable out) throws IOException {}
+
+    /**
+     * Render a node between its leftChild and its rightChild.
+     *
+     * @param data data of the node
+     * @param out destination of the output
+     * @throws IOException if writing to out fails
+     */
+    default void betweenChildren(T data, Appendable out) throws IOException {}
+
+    /**
+     * Render a node after its children.
+     *
+     * @param data data of the node
+     * @param out destination of the output
+     * @throws IOException if writing to out fails
+     */
+    default void afterNode(T data, Appendable out) throws IOException {}
+}
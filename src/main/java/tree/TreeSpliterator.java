@@ -0,0 +1,157 @@
+package tree;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator for our binary search trees {@link Tree}.
+ *
+ * <p>The remaining part of the traversal is kept as a stack of entries. Each entry stands for an
+ * optional single data object followed by a whole subtree, which is only descended into when
+ * needed. Splitting hands out the first part of the traversal at a subtree boundary, so both
+ * halves know their exact size in constant time (given that {@link Tree#size()} is cached) and can
+ * be split further without copying any data.
+ *
+ * @param <T> parametric type of the node data
+ */
+public class TreeSpliterator<T extends Comparable<T>> implements Spliterator<T> {
+    private static final int CHARACTERISTICS =
+            ORDERED | SORTED | DISTINCT | NONNULL | IMMUTABLE | SIZED | SUBSIZED;
+
+    // entry i: data[i] followed by subtrees[i] (both may be null); the top entry comes first
+    private Object[] data;
+    private Tree<T>[] subtrees;
+    private int top;
+    private long remaining;
+
+    /**
+     * Create a new Spliterator for a given tree.
+     *
+     * @param root top-level node of the tree
+     */
+    public TreeSpliterator(Tree<T> root) {
+        this(new Object[] {null}, new Tree<?>[] {requireNonNull(root)}, 0, root.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private TreeSpliterator(Object[] data, Tree<?>[] subtrees, int top, long remaining) {
+        this.data = data;
+        this.subtrees = (Tree<T>[]) subtrees;
+        this.top = top;
+        this.remaining = remaining;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        requireNonNull(action);
+
+        T next = advance();
+        if (next == null) return false;
+
+        action.accept(next);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        requireNonNull(action);
+
+        for (T next = advance(); next != null; next = advance()) {
+            action.accept(next);
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (remaining < 2) return null;
+
+        Spliterator<T> prefix;
+        if (top > 0) {
+            // hand out all entries but the bottom one (i.e. everything up to the last entry)
+            long suffixSize = sizeOf(0);
+            prefix =
+                    new TreeSpliterator<>(
+                            Arrays.copyOfRange(data, 1, top + 1),
+                            Arrays.copyOfRange(subtrees, 1, top + 1),
+                            top - 1,
+                            remaining - suffixSize);
+            Arrays.fill(data, 1, top + 1, null);
+            Arrays.fill(subtrees, 1, top + 1, null);
+            top = 0;
+            remaining = suffixSize;
+        } else {
+            // single entry (d, S): split into (d, S.leftChild), S.data and S.rightChild
+            Tree<T> subtree = subtrees[0];
+            if (subtree == null || subtree.isEmpty()) return null;
+
+            TreeMetrics.visited();
+            Tree<T> right = subtree.rightChild();
+            prefix =
+                    new TreeSpliterator<>(
+                            new Object[] {subtree.data(), data[0]},
+                            new Tree<?>[] {null, subtree.leftChild()},
+                            1,
+                            remaining - right.size());
+            data[0] = null;
+            subtrees[0] = right;
+            remaining = right.size();
+        }
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        // the tree is sorted by the natural order of its elements
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T advance() {
+        while (top >= 0) {
+            Object next = data[top];
+            if (next != null) {
+                data[top] = null;
+                --remaining;
+                return (T) next;
+            }
+
+            // descend into the subtree of the top entry along its leftmost path
+            Tree<T> node = subtrees[top];
+            subtrees[top--] = null;
+            while (node != null && !node.isEmpty()) {
+                push(node.data(), node.rightChild());
+                node = node.leftChild();
+            }
+        }
+        return null;
+    }
+
+    private void push(T next, Tree<T> subtree) {
+        TreeMetrics.visited();
+        if (++top == data.length) {
+            data = Arrays.copyOf(data, 2 * top);
+            subtrees = Arrays.copyOf(subtrees, 2 * top);
+        }
+        data[top] = next;
+        subtrees[top] = subtree;
+    }
+
+    private long sizeOf(int entry) {
+        return (data[entry] != null ? 1 : 0)
+                + (subtrees[entry] != null ? subtrees[entry].size() : 0);
+    }
+}
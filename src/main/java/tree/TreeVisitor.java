@@ -22,4 +22,31 @@ public interface TreeVisitor<T extends Comparable<T>> {
      * @return the result of visiting the node (recursively)
      */
     String visit(Node<T> node);
+
+    /**
+     * Visit an empty node of a balanced tree.
+     *
+     * <p>By default, the node is visited like an {@link Empty} node, so existing visitors work on
+     * balanced trees without any changes.
+     *
+     * @param node to visit
+     * @return the result of visiting the node (recursively)
+     */
+    default String visit(AvlEmpty<T> node) {
+        return visit(new Empty<T>());
+    }
+
+    /**
+     * Visit a node of a balanced tree.
+     *
+     * <p>By default, the node is visited like a {@link Node} with the same data and children, so
+     * existing visitors work on balanced trees without any changes. This adapter node is not
+     * counted as allocated by {@link TreeMetrics}.
+     *
+     * @param node to visit
+     * @return the result of visiting the node (recursively)
+     */
+    default String visit(AvlNode<T> node) {
+        return visit(Node.adapt(node));
+    }
 }
@@ -0,0 +1,125 @@
+package tree;
+
+import java.util.Arrays;
+
+/**
+ * In-order walk of a single tree, expanding subtrees on demand.
+ *
+ * <p>The stack holds the remaining part of the tree in sorted order, the smallest on top. Each
+ * entry is either a whole (unexpanded) subtree or just the data of a node whose leftChild subtree
+ * has been pushed above it already. Walking two trees side by side, subtrees which need not be
+ * compared can be dropped as a whole, see {@link TreeDiffIterator} and {@link TreeDigest}.
+ *
+ * @param <T> parametric type of the node data
+ */
+final class TreeWalk<T extends Comparable<T>> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Tree<T>[] nodes;
+    private boolean[] whole;
+    // smallest data object of each entry, computed on demand
+    private Object[] low;
+    private int size;
+
+    /**
+     * Start a walk with the whole tree on the stack.
+     *
+     * @param root top-level node of the tree
+     */
+    TreeWalk(Tree<T> root) {
+        int capacity = 2 * (root instanceof AvlNode<T> node ? node.height() : DEFAULT_CAPACITY);
+        this.nodes = TreeIterator.newStack(capacity + 1);
+        this.whole = new boolean[capacity + 1];
+        this.low = new Object[capacity + 1];
+        push(root, true, null);
+    }
+
+    /**
+     * Has the whole tree been walked?
+     *
+     * @return {@code true} if the stack is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Is the top entry a whole subtree, or just the data of its root?
+     *
+     * @return {@code true} for a whole subtree
+     */
+    boolean isWhole() {
+        return whole[size - 1];
+    }
+
+    /**
+     * Look at the top entry.
+     *
+     * @return subtree, or node whose data is the next one, of the top entry
+     */
+    Tree<T> top() {
+        return nodes[size - 1];
+    }
+
+    /**
+     * Find the smallest data object of the top entry, descending into a whole subtree once.
+     *
+     * @return next data object of the walk
+     */
+    @SuppressWarnings("unchecked")
+    T low() {
+        if (low[size - 1] == null) {
+            Tree<T> node = top();
+            while (!node.leftChild().isEmpty()) {
+                TreeMetrics.visited();
+                node = node.leftChild();
+            }
+            low[size - 1] = node.data();
+        }
+        return (T) low[size - 1];
+    }
+
+    /** Drop the top entry. */
+    void pop() {
+        --size;
+        nodes[size] = null;
+        low[size] = null;
+    }
+
+    /**
+     * Take the data of the top entry, which must not be a whole subtree.
+     *
+     * @return data of the top entry
+     */
+    T popData() {
+        T data = top().data();
+        pop();
+        return data;
+    }
+
+    /** Replace the whole subtree on top by its leftChild subtree, its data and rightChild one. */
+    void expand() {
+        TreeMetrics.visited();
+        Tree<T> node = top();
+        Object smallest = low[size - 1];
+        pop();
+        // push in reverse order, so the leftChild subtree ends up on top
+        push(node.rightChild(), true, null);
+        push(node, false, node.data());
+        push(node.leftChild(), true, smallest);
+    }
+
+    private void push(Tree<T> node, boolean subtree, Object smallest) {
+        if (node.isEmpty()) return;
+
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * size);
+            whole = Arrays.copyOf(whole, 2 * size);
+            low = Arrays.copyOf(low, 2 * size);
+        }
+        nodes[size] = node;
+        whole[size] = subtree;
+        low[size] = smallest;
+        ++size;
+    }
+}
@@ -0,0 +1,68 @@
+package catcafe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/** Testing the {@link CafeMetrics} class. */
+public class CafeMetricsTest {
+    private static final int WRITERS = 4;
+    private static final int CATS = 500;
+
+    /** Each published change should be counted once, changes without effect not at all. */
+    @Test
+    public void testUpdates() {
+        CafeMetrics metrics = CafeMetrics.get();
+        CatCafe cafe = new CatCafe();
+
+        metrics.setEnabled(true);
+        try {
+            long before = metrics.getUpdates();
+            cafe.addCat(new FelineOverLord("a", 1));
+            cafe.addCat(new FelineOverLord("a", 1));
+            cafe.removeCat(new FelineOverLord("b", 2));
+            cafe.addCats(List.of(new FelineOverLord("b", 2), new FelineOverLord("c", 3)));
+
+            assertEquals(2, metrics.getUpdates() - before);
+            assertTrue(metrics.getCurrentHeight() >= 2);
+        } finally {
+            metrics.setEnabled(false);
+        }
+    }
+
+    /** Attempts of concurrent writers which lost the race should not be counted. */
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        CafeMetrics metrics = CafeMetrics.get();
+        ConcurrentCatCafe cafe = new ConcurrentCatCafe();
+        ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+
+        metrics.setEnabled(true);
+        try {
+            long before = metrics.getUpdates();
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                int writer = i;
+                writes.add(
+                        writers.submit(
+                                () -> {
+                                    for (int cat = 0; cat < CATS; cat++) {
+                                        cafe.addCat(new FelineOverLord("w" + writer, cat));
+                                    }
+                                }));
+            }
+            for (Future<?> write : writes) write.get(1, TimeUnit.MINUTES);
+
+            assertEquals(WRITERS * CATS, metrics.getUpdates() - before);
+        } finally {
+            metrics.setEnabled(false);
+            writers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package catcafe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+/** Testing the {@link ConcurrentCatCafe} class. */
+public class ConcurrentCatCafeTest {
+    private static final int WRITERS = 4;
+    private static final int READERS = 2;
+    private static final int PAIRS = 1000;
+
+    /** Changes of concurrent writers should all be kept, none may be lost by a retried update. */
+    @Test
+    public void testNoLostUpdates() throws Exception {
+        ConcurrentCatCafe cafe = new ConcurrentCatCafe();
+
+        runWriters(
+                writer -> {
+                    for (int i = 0; i < PAIRS; i++) {
+                        cafe.addCat(new FelineOverLord("cat" + writer + "_" + i, i));
+                    }
+                    // every writer removes a part of its own cats again
+                    for (int i = 0; i < PAIRS; i += 4) {
+                        cafe.removeCat(new FelineOverLord("cat" + writer + "_" + i, i));
+                    }
+                });
+
+        assertEquals(WRITERS * (PAIRS - PAIRS / 4), cafe.getCatCount());
+        for (int writer = 0; writer < WRITERS; writer++) {
+            assertTrue(cafe.getCatByName("cat" + writer + "_1").isPresent());
+            assertTrue(cafe.getCatByName("cat" + writer + "_4").isEmpty());
+        }
+    }
+
+    /** Readers should only ever see whole changes, never half of a batch. */
+    @Test
+    public void testConsistentSnapshots() throws Exception {
+        ConcurrentCatCafe cafe = new ConcurrentCatCafe();
+        AtomicBoolean done = new AtomicBoolean();
+        List<String> errors = new ArrayList<>();
+
+        ExecutorService readers = Executors.newFixedThreadPool(READERS);
+        List<Future<?>> reads = new ArrayList<>();
+        for (int reader = 0; reader < READERS; reader++) {
+            reads.add(readers.submit(() -> readSnapshots(cafe, done, errors)));
+        }
+        try {
+            runWriters(
+                    writer -> {
+                        for (int i = 0; i < PAIRS / WRITERS; i++) {
+                            int weight = writer * (PAIRS / WRITERS) + i;
+                            cafe.addCats(
+                                    List.of(
+                                            new FelineOverLord("light" + weight, weight),
+                                            new FelineOverLord("heavy" + weight, PAIRS + weight)));
+                        }
+                    });
+        } finally {
+            done.set(true);
+            for (Future<?> read : reads) read.get(1, TimeUnit.MINUTES);
+            readers.shutdown();
+        }
+
+        assertEquals(List.of(), errors);
+        assertEquals(2 * PAIRS, cafe.getCatCount());
+        assertEquals(PAIRS, cafe.getCatsByWeight(0, PAIRS).count());
+    }
+
+    /** Every change of concurrent writers should be recorded as a version of its own. */
+    @Test
+    public void testVersions() throws Exception {
+        ConcurrentCatCafe cafe = new ConcurrentCatCafe();
+        cafe.setVersionRetention(WRITERS * PAIRS + 1);
+
+        runWriters(
+                writer -> {
+                    for (int i = 0; i < PAIRS; i++) {
+                        cafe.addCat(new FelineOverLord("cat" + writer + "_" + i, i));
+                    }
+                });
+
+        List<CafeVersion> versions = cafe.getVersions();
+        assertEquals(WRITERS * PAIRS + 1, versions.size());
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(i, versions.get(i).catCount());
+            assertEquals(i, cafe.getState(versions.get(i).version()).getCatCount());
+        }
+    }
+
+    /** A change racing with enabling the versions should still end up in the latest version. */
+    @Test
+    public void testEnableVersions() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            ConcurrentCatCafe cafe = new ConcurrentCatCafe();
+            runWriters(
+                    writer -> {
+                        for (int i = 0; i < PAIRS / 10; i++) {
+                            if (writer == 0 && i == PAIRS / 20) cafe.setVersionRetention(PAIRS);
+                            cafe.addCat(new FelineOverLord("cat" + writer + "_" + i, i));
+                        }
+                    });
+
+            assertEquals(cafe.getCatCount(), cafe.getCatCount(cafe.getVersion()));
+            List<CafeVersion> versions = cafe.getVersions();
+            for (int i = 1; i < versions.size(); i++) {
+                assertTrue(versions.get(i - 1).catCount() < versions.get(i).catCount());
+            }
+        }
+    }
+
+    private static void readSnapshots(CatCafe cafe, AtomicBoolean done, List<String> errors) {
+        while (!done.get()) {
+            // each batch adds a light and a heavy cat, and the cafe only grows
+            long light = cafe.getCatsByWeight(0, PAIRS).count();
+            long all = cafe.getState().getCatCount();
+            boolean heavy = cafe.getCatByWeight(PAIRS, 2 * PAIRS).isPresent();
+            if (all % 2 != 0) add(errors, "half batch: " + all);
+            if (light > all / 2) add(errors, "light " + light + " of " + all);
+            if (all > 0 && !heavy) add(errors, "no heavy cat in " + all);
+        }
+    }
+
+    private static void add(List<String> errors, String error) {
+        synchronized (errors) {
+            errors.add(error);
+        }
+    }
+
+    private static void runWriters(Writer writer) throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writes = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            int index = i;
+            writes.add(
+                    writers.submit(
+                            () -> {
+                                start.await();
+                                writer.write(index);
+                                return null;
+                            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> write : writes) write.get(1, TimeUnit.MINUTES);
+        } finally {
+            writers.shutdown();
+        }
+    }
+
+    /** Work of a single writer thread. */
+    private interface Writer {
+        /**
+         * Change the cafe.
+         *
+         * @param index number of the writer
+         */
+        void write(int index);
+    }
+}
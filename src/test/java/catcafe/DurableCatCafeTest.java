@@ -0,0 +1,229 @@
+package catcafe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Testing the {@link DurableCatCafe} class. */
+public class DurableCatCafeTest {
+    private static final int THREADS = 4;
+
+    @TempDir Path dir;
+
+    /** A reopened cafe should hold the same cats as the cafe which wrote the log. */
+    @Test
+    public void testReopen() throws IOException {
+        CatCafe expected = new CatCafe();
+        try (DurableCatCafe cafe = open(dir)) {
+            for (int i = 0; i < 100; i++) {
+                FelineOverLord cat = new FelineOverLord("c" + i % 30, i % 17);
+                if (i % 5 == 0) {
+                    cafe.removeCat(cat);
+                    expected.removeCat(cat);
+                } else {
+                    cafe.addCat(cat);
+                    expected.addCat(cat);
+                }
+            }
+            CatCafe other = new CatCafe();
+            other.addCats(List.of(new FelineOverLord("x", 3), new FelineOverLord("c1", 1)));
+            cafe.addCats(other);
+            expected.addCats(other);
+            assertEquals(expected.getState(), cafe.getState());
+        }
+
+        try (DurableCatCafe reopened = open(dir)) {
+            assertEquals(expected.getState(), reopened.getState());
+            assertEquals(expected.getCatByName("c1"), reopened.getCatByName("c1"));
+        }
+    }
+
+    /** A record which was cut off by a crash should be dropped, and writing continue behind it. */
+    @Test
+    public void testTornRecord() throws IOException {
+        try (DurableCatCafe cafe = open(dir)) {
+            cafe.addCat(new FelineOverLord("a", 1));
+            cafe.addCat(new FelineOverLord("b", 2));
+        }
+        Path log = dir.resolve("log-0");
+        truncate(log, Files.size(log) - 1);
+
+        try (DurableCatCafe cafe = open(dir)) {
+            assertEquals(
+                    List.of(new FelineOverLord("a", 1)), cafe.getCatsByWeight(0, 10).toList());
+            cafe.addCat(new FelineOverLord("c", 3));
+        }
+        try (DurableCatCafe cafe = open(dir)) {
+            assertEquals(
+                    List.of(new FelineOverLord("a", 1), new FelineOverLord("c", 3)),
+                    cafe.getCatsByWeight(0, 10).toList());
+        }
+    }
+
+    /** A record with a wrong checksum should be dropped like a torn one. */
+    @Test
+    public void testCorruptRecord() throws IOException {
+        try (DurableCatCafe cafe = open(dir)) {
+            cafe.addCat(new FelineOverLord("a", 1));
+            cafe.addCat(new FelineOverLord("b", 2));
+        }
+        Path log = dir.resolve("log-0");
+        byte[] content = Files.readAllBytes(log);
+        content[content.length - 1] ^= 1;
+        Files.write(log, content);
+
+        try (DurableCatCafe cafe = open(dir)) {
+            assertEquals(1, cafe.getCatCount());
+            assertEquals(Optional.empty(), cafe.getCatByName("b"));
+        }
+        assertTrue(Files.size(log) < content.length);
+    }
+
+    /** A corrupt record followed by complete ones was durable, so it must not be cut off. */
+    @Test
+    public void testCorruptFirstRecord() throws IOException {
+        try (DurableCatCafe cafe = open(dir)) {
+            cafe.addCat(new FelineOverLord("a", 1));
+            cafe.addCat(new FelineOverLord("b", 2));
+            cafe.addCat(new FelineOverLord("c", 3));
+        }
+        Path log = dir.resolve("log-0");
+        byte[] content = Files.readAllBytes(log);
+        // lowest byte of the weight of the first record, behind length, checksum and type
+        content[2 * Integer.BYTES + Integer.BYTES] ^= 1;
+        Files.write(log, content);
+
+        assertThrows(IOException.class, () -> open(dir));
+        assertArrayEquals(content, Files.readAllBytes(log));
+    }
+
+    /** A checkpoint should replace the older logs by a snapshot holding all their cats. */
+    @Test
+    public void testCheckpoint() throws IOException {
+        List<FelineOverLord> cats =
+                IntStream.range(0, 50).mapToObj(i -> new FelineOverLord("c" + i, i)).toList();
+        try (DurableCatCafe cafe = new DurableCatCafe(dir, Duration.ZERO, 1, 200)) {
+            for (FelineOverLord cat : cats) {
+                cafe.addCat(cat);
+            }
+            cafe.removeCat(cats.get(7));
+        }
+
+        List<String> files = files(dir);
+        assertTrue(files.stream().anyMatch(name -> name.startsWith("snapshot-")), files.toString());
+        assertFalse(files.contains("log-0"), files.toString());
+        assertEquals(1, files.stream().filter(name -> name.startsWith("snapshot-")).count());
+
+        try (DurableCatCafe reopened = open(dir)) {
+            assertEquals(cats.size() - 1, reopened.getCatCount());
+            assertEquals(Optional.empty(), reopened.getCatByName("c7"));
+            assertEquals(Optional.of(cats.get(49)), reopened.getCatByName("c49"));
+        }
+    }
+
+    /** A corrupt record followed by further logs is no torn write, and must not be dropped. */
+    @Test
+    public void testCorruptOlderLog() throws IOException {
+        Path other = Files.createDirectory(dir.resolve("other"));
+        Path cafeDir = Files.createDirectory(dir.resolve("cafe"));
+        try (DurableCatCafe cafe = open(other)) {
+            cafe.addCat(new FelineOverLord("b", 2));
+        }
+        try (DurableCatCafe cafe = open(cafeDir)) {
+            cafe.addCat(new FelineOverLord("a", 1));
+            cafe.addCat(new FelineOverLord("c", 3));
+        }
+        Path log = cafeDir.resolve("log-0");
+        truncate(log, Files.size(log) - 1);
+        long size = Files.size(log);
+
+        Files.copy(other.resolve("log-0"), cafeDir.resolve("log-1"));
+        assertThrows(IOException.class, () -> open(cafeDir));
+        assertEquals(size, Files.size(log));
+
+        // an empty later log, as created by a checkpoint right before a crash, is fine
+        Files.write(cafeDir.resolve("log-1"), new byte[0]);
+        try (DurableCatCafe cafe = open(cafeDir)) {
+            assertEquals(
+                    List.of(new FelineOverLord("a", 1)), cafe.getCatsByWeight(0, 10).toList());
+        }
+    }
+
+    /** The cats of concurrent writers should all be durable. */
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(THREADS);
+        try (DurableCatCafe cafe = new DurableCatCafe(dir, Duration.ofMillis(1), 16, 4096)) {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int writer = i;
+                writes.add(
+                        writers.submit(
+                                () -> {
+                                    for (int cat = 0; cat < 200; cat++) {
+                                        cafe.addCat(new FelineOverLord("w" + writer, cat));
+                                    }
+                                    return null;
+                                }));
+            }
+            for (Future<?> write : writes) write.get(1, TimeUnit.MINUTES);
+            assertEquals(THREADS * 200, cafe.getCatCount());
+        } finally {
+            writers.shutdown();
+        }
+
+        try (DurableCatCafe reopened = open(dir)) {
+            assertEquals(THREADS * 200, reopened.getCatCount());
+            assertEquals(THREADS, reopened.getCatsWithWeight(199).size());
+        }
+    }
+
+    /** A change should only be visible once it is durable. */
+    @Test
+    public void testPublishDurable() throws Exception {
+        try (DurableCatCafe cafe = new DurableCatCafe(dir, Duration.ofSeconds(1), 2, 1 << 20)) {
+            ExecutorService writer = Executors.newSingleThreadExecutor();
+            try {
+                Future<?> write = writer.submit(() -> cafe.addCat(new FelineOverLord("a", 1)));
+                // the flush waits for a second cat, or up to a second
+                Thread.sleep(100);
+                assertEquals(0, cafe.getCatCount());
+                write.get(1, TimeUnit.MINUTES);
+                assertEquals(1, cafe.getCatCount());
+            } finally {
+                writer.shutdown();
+            }
+        }
+    }
+
+    private static DurableCatCafe open(Path directory) throws IOException {
+        return new DurableCatCafe(directory, Duration.ZERO, 1, 1 << 20);
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(size);
+        }
+    }
+
+    private static List<String> files(Path directory) throws IOException {
+        try (Stream<Path> list = Files.list(directory)) {
+            return list.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package catcafe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Testing the {@link OffHeapCatCafe} class. */
+public class OffHeapCatCafeTest {
+    @TempDir Path dir;
+
+    /** New cats should be merged behind the stored cats of the same weight, without duplicates. */
+    @Test
+    public void testMerge() {
+        OffHeapCatCafe cafe = new OffHeapCatCafe();
+        cafe.addCats(List.of(new FelineOverLord("b", 5), new FelineOverLord("d", 9)));
+        assertEquals(2, cafe.getCatCount());
+
+        cafe.addCats(
+                List.of(
+                        new FelineOverLord("e", 5),
+                        new FelineOverLord("a", 1),
+                        new FelineOverLord("b", 5),
+                        new FelineOverLord("f", 12),
+                        new FelineOverLord("a", 1)));
+
+        assertEquals(
+                List.of(
+                        new FelineOverLord("a", 1),
+                        new FelineOverLord("b", 5),
+                        new FelineOverLord("e", 5),
+                        new FelineOverLord("d", 9),
+                        new FelineOverLord("f", 12)),
+                cafe.getCatsByWeight(0, 100).toList());
+        assertEquals(Optional.of(new FelineOverLord("e", 5)), cafe.getCatByRank(2));
+        assertEquals(
+                List.of(new FelineOverLord("b", 5), new FelineOverLord("e", 5)),
+                cafe.getCatsWithWeight(5));
+    }
+
+    /** Merging single cats between queries should give the same cats as a single batch. */
+    @Test
+    public void testMergeAlternating() {
+        Random random = new Random(42);
+        List<FelineOverLord> cats =
+                IntStream.range(0, 2000)
+                        .mapToObj(i -> new FelineOverLord("c" + i, random.nextInt(300)))
+                        .toList();
+        OffHeapCatCafe cafe = new OffHeapCatCafe();
+        CatCafe expected = new CatCafe();
+        expected.addCats(cats);
+
+        for (FelineOverLord cat : cats) {
+            cafe.addCat(cat);
+            assertTrue(cafe.getCatByWeight(cat.weight(), cat.weight() + 1).isPresent());
+        }
+
+        assertEquals(
+                expected.getCatsByWeight(0, 300).toList(), cafe.getCatsByWeight(0, 300).toList());
+    }
+
+    /** A stream should keep the cats of the cafe at the time of the query. */
+    @Test
+    public void testStreamAfterChanges() {
+        OffHeapCatCafe cafe = new OffHeapCatCafe();
+        cafe.addCats(List.of(new FelineOverLord("a", 1), new FelineOverLord("c", 3)));
+
+        Stream<FelineOverLord> before = cafe.getCatsByWeight(0, 10);
+        cafe.addCat(new FelineOverLord("b", 2));
+        cafe.removeCat(new FelineOverLord("a", 1));
+
+        assertEquals(
+                List.of(new FelineOverLord("a", 1), new FelineOverLord("c", 3)), before.toList());
+        assertEquals(
+                List.of(new FelineOverLord("b", 2), new FelineOverLord("c", 3)),
+                cafe.getCatsByWeight(0, 10).toList());
+    }
+
+    /** A name should find the lightest cat with this name. */
+    @Test
+    public void testGetCatByName() {
+        OffHeapCatCafe cafe = new OffHeapCatCafe();
+        cafe.addCat(new FelineOverLord("tom", 7));
+        cafe.addCat(new FelineOverLord("tom", 3));
+        cafe.addCat(new FelineOverLord("tom", 5));
+        cafe.addCat(new FelineOverLord("kitty", 4));
+
+        assertEquals(Optional.of(new FelineOverLord("tom", 3)), cafe.getCatByName("tom"));
+        assertEquals(Optional.of(new FelineOverLord("kitty", 4)), cafe.getCatByName("kitty"));
+        assertEquals(Optional.empty(), cafe.getCatByName("garfield"));
+        assertEquals(Optional.empty(), cafe.getCatByName(null));
+    }
+
+    /** Removing the lightest cat with a name should find the next one with this name. */
+    @Test
+    public void testRemoveCat() {
+        OffHeapCatCafe cafe = new OffHeapCatCafe();
+        cafe.addCats(
+                List.of(
+                        new FelineOverLord("tom", 7),
+                        new FelineOverLord("tom", 3),
+                        new FelineOverLord("kitty", 3),
+                        new FelineOverLord("tom", 5)));
+
+        cafe.removeCat(new FelineOverLord("tom", 4));
+        cafe.removeCat(new FelineOverLord("garfield", 3));
+        assertEquals(4, cafe.getCatCount());
+
+        cafe.removeCat(new FelineOverLord("tom", 3));
+        assertEquals(3, cafe.getCatCount());
+        assertEquals(Optional.of(new FelineOverLord("tom", 5)), cafe.getCatByName("tom"));
+        assertEquals(List.of(new FelineOverLord("kitty", 3)), cafe.getCatsWithWeight(3));
+
+        cafe.removeCat(new FelineOverLord("kitty", 3));
+        cafe.removeCat(new FelineOverLord("tom", 5));
+        assertEquals(Optional.empty(), cafe.getCatByName("kitty"));
+        assertEquals(Optional.of(new FelineOverLord("tom", 7)), cafe.getCatByName("tom"));
+        assertEquals(List.of(new FelineOverLord("tom", 7)), cafe.getCatsByWeight(0, 10).toList());
+    }
+
+    /** Random changes should give the same cats and names as a {@link CatCafe}. */
+    @Test
+    public void testRandomChanges() {
+        Random random = new Random(7);
+        CatCafe expected = new CatCafe();
+        OffHeapCatCafe cafe = new OffHeapCatCafe();
+        for (int i = 0; i < 3000; i++) {
+            FelineOverLord cat = new FelineOverLord("c" + random.nextInt(50), random.nextInt(80));
+            if (random.nextInt(3) == 0) {
+                expected.removeCat(cat);
+                cafe.removeCat(cat);
+            } else {
+                expected.addCat(cat);
+                cafe.addCat(cat);
+            }
+        }
+
+        assertEquals(expected.getCatCount(), cafe.getCatCount());
+        assertEquals(
+                expected.getCatsByWeight(0, 80).toList(), cafe.getCatsByWeight(0, 80).toList());
+        List<Optional<FelineOverLord>> names = new ArrayList<>();
+        List<Optional<FelineOverLord>> expectedNames = new ArrayList<>();
+        for (int name = 0; name < 50; name++) {
+            names.add(cafe.getCatByName("c" + name));
+            expectedNames.add(expected.getCatByName("c" + name));
+        }
+        assertEquals(expectedNames, names);
+        assertEquals(expected.getState(), cafe.getState());
+    }
+
+    /** The cats of another off-heap cafe should be merged from its columns. */
+    @Test
+    public void testAddCafe() {
+        OffHeapCatCafe cafe = new OffHeapCatCafe();
+        cafe.addCat(new FelineOverLord("a", 1));
+        OffHeapCatCafe other = new OffHeapCatCafe();
+        other.addCats(List.of(new FelineOverLord("b", 0), new FelineOverLord("a", 1)));
+
+        cafe.addCats(other);
+        cafe.addCats(cafe);
+
+        assertEquals(
+                List.of(new FelineOverLord("b", 0), new FelineOverLord("a", 1)),
+                cafe.getCatsByWeight(0, 10).toList());
+        assertEquals(2, other.getCatCount());
+    }
+
+    /** The cats on the heap should be built once per change. */
+    @Test
+    public void testState() {
+        OffHeapCatCafe cafe = new OffHeapCatCafe();
+        cafe.addCat(new FelineOverLord("a", 1));
+
+        CafeState state = cafe.getState();
+        assertSame(cafe.clowder(), cafe.clowder());
+
+        cafe.addCat(new FelineOverLord("b", 2));
+        assertEquals(1, state.getCatCount());
+        assertEquals(2, cafe.getState().getCatCount());
+    }
+
+    /** Versions should record the same states as the versions of a {@link CatCafe}. */
+    @Test
+    public void testVersions() {
+        OffHeapCatCafe cafe = new OffHeapCatCafe();
+        CatCafe expected = new CatCafe();
+        cafe.addCat(new FelineOverLord("a", 1));
+        expected.addCat(new FelineOverLord("a", 1));
+        cafe.setVersionRetention(10);
+        expected.setVersionRetention(10);
+
+        for (CatCafe c : List.of(cafe, expected)) {
+            c.addCats(List.of(new FelineOverLord("b", 2), new FelineOverLord("c", 0)));
+            c.addCat(new FelineOverLord("b", 2));
+            c.removeCat(new FelineOverLord("a", 1));
+            c.removeCat(new FelineOverLord("x", 1));
+            c.addCats(cafe);
+        }
+
+        assertEquals(expected.getVersion(), cafe.getVersion());
+        assertEquals(
+                expected.getVersions().stream().map(CafeVersion::catCount).toList(),
+                cafe.getVersions().stream().map(CafeVersion::catCount).toList());
+        for (CafeVersion version : expected.getVersions()) {
+            assertEquals(expected.getState(version.version()), cafe.getState(version.version()));
+        }
+        assertEquals(expected.getState(), cafe.getState());
+        assertEquals(
+                List.of(new FelineOverLord("c", 0), new FelineOverLord("b", 2)),
+                cafe.getCatsByWeight(0, 10).toList());
+
+        // without versions, the columns are changed alone again
+        cafe.setVersionRetention(0);
+        cafe.addCat(new FelineOverLord("d", 4));
+        assertEquals(3, cafe.getState().getCatCount());
+    }
+
+    /** A snapshot should hold the same cats and names as the cafe which saved it. */
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        CatCafe cafe = new CatCafe();
+        cafe.addCats(
+                IntStream.range(0, 5000)
+                        .mapToObj(i -> new FelineOverLord("c" + i % 700, i % 300))
+                        .toList());
+        Path path = dir.resolve("cats.snapshot");
+
+        cafe.saveSnapshot(path);
+        OffHeapCatCafe opened = OffHeapCatCafe.openSnapshot(path);
+
+        assertEquals(cafe.getCatCount(), opened.getCatCount());
+        assertEquals(cafe.getState(), opened.getState());
+        assertEquals(cafe.getCatByName("c42"), opened.getCatByName("c42"));
+        assertEquals(cafe.getCatsWithWeight(17), opened.getCatsWithWeight(17));
+
+        // saving the opened cafe again should give the same file
+        Path again = dir.resolve("again.snapshot");
+        opened.saveSnapshot(again);
+        assertArrayEquals(Files.readAllBytes(path), Files.readAllBytes(again));
+    }
+
+    /** Changes of a cafe opened from a snapshot should not be written back to the file. */
+    @Test
+    public void testSnapshotCopyOnWrite() throws IOException {
+        OffHeapCatCafe cafe = new OffHeapCatCafe();
+        cafe.addCats(List.of(new FelineOverLord("a", 1), new FelineOverLord("b", 2)));
+        Path path = dir.resolve("cats.snapshot");
+        cafe.saveSnapshot(path);
+        byte[] saved = Files.readAllBytes(path);
+
+        OffHeapCatCafe opened = OffHeapCatCafe.openSnapshot(path);
+        opened.removeCat(new FelineOverLord("a", 1));
+        opened.addCat(new FelineOverLord("c", 0));
+
+        assertEquals(
+                List.of(new FelineOverLord("c", 0), new FelineOverLord("b", 2)),
+                opened.getCatsByWeight(0, 10).toList());
+        assertArrayEquals(saved, Files.readAllBytes(path));
+        assertEquals(2, OffHeapCatCafe.openSnapshot(path).getCatCount());
+    }
+
+    /** Files which are not a valid snapshot should be rejected before mapping any column. */
+    @Test
+    public void testOpenInvalidSnapshot() throws IOException {
+        OffHeapCatCafe cafe = new OffHeapCatCafe();
+        cafe.addCats(List.of(new FelineOverLord("a", 1), new FelineOverLord("b", 2)));
+        Path path = dir.resolve("cats.snapshot");
+        cafe.saveSnapshot(path);
+        byte[] valid = Files.readAllBytes(path);
+
+        assertInvalid(new byte[16]);
+        assertInvalid(withInt(valid, 0, 0x12345678)); // magic
+        assertInvalid(withInt(valid, 4, 99)); // version
+        assertInvalid(withInt(valid, 8, 3)); // row count
+        assertInvalid(withInt(valid, 8, -1));
+        assertInvalid(withInt(valid, 12, 1)); // size of the names
+        assertInvalid(withInt(valid, 16, 1000)); // slots, not a power of two
+        assertInvalid(withInt(valid, 20, 1 << 20)); // names, more than half of the slots
+        assertInvalid(Arrays.copyOf(valid, valid.length - 1));
+        assertInvalid(Arrays.copyOf(valid, valid.length + 4));
+        assertThrows(IOException.class, () -> OffHeapCatCafe.openSnapshot(dir.resolve("none")));
+    }
+
+    private void assertInvalid(byte[] content) throws IOException {
+        Path path = Files.write(dir.resolve("invalid.snapshot"), content);
+        assertThrows(IOException.class, () -> OffHeapCatCafe.openSnapshot(path));
+    }
+
+    private static byte[] withInt(byte[] content, int position, int value) {
+        byte[] changed = content.clone();
+        ByteBuffer.wrap(changed).order(ByteOrder.LITTLE_ENDIAN).putInt(position, value);
+        return changed;
+    }
+}
@@ -0,0 +1,141 @@
+package catcafe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+/** Testing the {@link QueryCache} class. */
+public class QueryCacheTest {
+    private static final Clowder CLOWDER =
+            new Clowder().addCats(List.of(new FelineOverLord("a", 1), new FelineOverLord("b", 2)));
+
+    /** A repeated query should be answered from the cache without computing it again. */
+    @Test
+    public void testHit() {
+        QueryCache cache = new QueryCache(() -> CLOWDER);
+        cache.setCapacity(4);
+        AtomicInteger computed = new AtomicInteger();
+        Function<Clowder, Long> count = counting(computed);
+
+        assertEquals(2L, cache.get(CLOWDER, "count", count));
+        assertEquals(2L, cache.get(CLOWDER, "count", count));
+
+        assertEquals(1, computed.get());
+        assertEquals(new QueryCacheStats(1, 1, 1, 4), cache.stats());
+        assertEquals(0.5, cache.stats().hitRate());
+    }
+
+    /** The least recently used result should be dropped when the cache is full. */
+    @Test
+    public void testEviction() {
+        QueryCache cache = new QueryCache(() -> CLOWDER);
+        cache.setCapacity(2);
+        AtomicInteger computed = new AtomicInteger();
+        Function<Clowder, Long> count = counting(computed);
+
+        cache.get(CLOWDER, "a", count);
+        cache.get(CLOWDER, "b", count);
+        cache.get(CLOWDER, "a", count); // b is now the least recently used
+        cache.get(CLOWDER, "c", count);
+        assertEquals(3, computed.get());
+
+        cache.get(CLOWDER, "a", count);
+        cache.get(CLOWDER, "c", count);
+        assertEquals(3, computed.get());
+        cache.get(CLOWDER, "b", count);
+        assertEquals(4, computed.get());
+        assertEquals(2, cache.stats().size());
+    }
+
+    /** Results of an older clowder should not be returned for a new one. */
+    @Test
+    public void testNewClowder() {
+        AtomicReference<Clowder> current = new AtomicReference<>(CLOWDER);
+        QueryCache cache = new QueryCache(current::get);
+        cache.setCapacity(4);
+        AtomicInteger computed = new AtomicInteger();
+        Function<Clowder, Long> count = counting(computed);
+        Clowder changed = CLOWDER.addCat(new FelineOverLord("c", 3));
+
+        assertEquals(2L, cache.get(CLOWDER, "count", count));
+        current.set(changed);
+        assertEquals(3L, cache.get(changed, "count", count));
+        assertEquals(2, computed.get());
+        assertEquals(1, cache.stats().size());
+
+        // an unchanged clowder is the same object, so its results stay valid
+        assertEquals(3L, cache.get(changed.removeCat(new FelineOverLord("x", 3)), "count", count));
+        assertEquals(2, computed.get());
+    }
+
+    /** A reader still holding an older clowder should not drop the results of the current one. */
+    @Test
+    public void testOlderClowder() {
+        Clowder changed = CLOWDER.addCat(new FelineOverLord("c", 3));
+        AtomicReference<Clowder> current = new AtomicReference<>(CLOWDER);
+        QueryCache cache = new QueryCache(current::get);
+        cache.setCapacity(4);
+        AtomicInteger computed = new AtomicInteger();
+        Function<Clowder, Long> count = counting(computed);
+
+        assertEquals(2L, cache.get(CLOWDER, "count", count));
+        current.set(changed);
+        assertEquals(3L, cache.get(changed, "count", count));
+        assertEquals(2, computed.get());
+
+        // interleaved lookups of the old and the new clowder
+        for (int i = 0; i < 3; i++) {
+            assertEquals(2L, cache.get(CLOWDER, "count", count));
+            assertEquals(3L, cache.get(changed, "count", count));
+        }
+        assertEquals(5, computed.get());
+        assertEquals(new QueryCacheStats(3, 5, 1, 4), cache.stats());
+    }
+
+    /** A disabled cache should compute every query and count nothing. */
+    @Test
+    public void testDisabled() {
+        QueryCache cache = new QueryCache(() -> CLOWDER);
+        AtomicInteger computed = new AtomicInteger();
+        Function<Clowder, Long> count = counting(computed);
+
+        cache.get(CLOWDER, "count", count);
+        cache.get(CLOWDER, "count", count);
+
+        assertEquals(2, computed.get());
+        assertEquals(new QueryCacheStats(0, 0, 0, 0), cache.stats());
+        assertThrows(IllegalArgumentException.class, () -> cache.setCapacity(-1));
+    }
+
+    /** Cached queries of a cafe should see every change of its cats. */
+    @Test
+    public void testCafeQueries() {
+        CatCafe cafe = new CatCafe();
+        cafe.setQueryCacheCapacity(8);
+        cafe.addCats(List.of(new FelineOverLord("tom", 5), new FelineOverLord("kitty", 3)));
+
+        assertEquals(Optional.of(new FelineOverLord("tom", 5)), cafe.getCatByName("tom"));
+        assertEquals(Optional.of(new FelineOverLord("tom", 5)), cafe.getCatByName("tom"));
+        assertEquals(List.of(new FelineOverLord("kitty", 3)), cafe.getCatsWithWeight(3));
+        assertEquals(1, cafe.getQueryCacheStats().hits());
+
+        cafe.addCat(new FelineOverLord("tom", 1));
+        cafe.removeCat(new FelineOverLord("kitty", 3));
+        assertEquals(Optional.of(new FelineOverLord("tom", 1)), cafe.getCatByName("tom"));
+        assertEquals(List.of(), cafe.getCatsWithWeight(3));
+        assertEquals(Optional.of(new FelineOverLord("tom", 1)), cafe.getCatByWeight(0, 10));
+        assertEquals(new QueryCacheStats(1, 5, 3, 8), cafe.getQueryCacheStats());
+    }
+
+    private static Function<Clowder, Long> counting(AtomicInteger computed) {
+        return clowder -> {
+            computed.incrementAndGet();
+            return clowder.size();
+        };
+    }
+}
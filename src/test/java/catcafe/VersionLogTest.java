@@ -0,0 +1,126 @@
+package catcafe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Testing the {@link VersionLog} class. */
+public class VersionLogTest {
+    private static final Duration FOREVER = ChronoUnit.FOREVER.getDuration();
+    private static final Duration AGE = Duration.ofMillis(50);
+
+    /** Only the given number of versions should be kept, the oldest ones are dropped. */
+    @Test
+    public void testRetentionByCount() {
+        VersionLog log = new VersionLog();
+        Clowder clowder = new Clowder();
+        log.setRetention(3, FOREVER, () -> clowder);
+        Clowder changed = clowder;
+        for (int i = 0; i < 5; i++) {
+            changed = changed.addCat(new FelineOverLord("c" + i, i));
+            log.append(changed);
+        }
+
+        assertEquals(6, log.latest());
+        assertEquals(List.of(4L, 5L, 6L), versions(log));
+        assertEquals(5, log.get(6).size());
+        assertEquals(3, log.get(4).size());
+        assertThrows(IllegalArgumentException.class, () -> log.get(3));
+        assertThrows(IllegalArgumentException.class, () -> log.get(7));
+
+        // fewer versions drop the oldest ones at once
+        log.setRetention(1, FOREVER, () -> clowder);
+        assertEquals(List.of(6L), versions(log));
+    }
+
+    /** Versions older than the maximum age should not be readable, even without new versions. */
+    @Test
+    public void testRetentionByAge() throws InterruptedException {
+        VersionLog log = new VersionLog();
+        Clowder clowder = new Clowder();
+        log.setRetention(10, AGE, () -> clowder);
+        Clowder changed = clowder.addCat(new FelineOverLord("a", 1));
+        log.append(changed);
+        assertEquals(List.of(1L, 2L), versions(log));
+
+        Thread.sleep(2 * AGE.toMillis());
+
+        // the newest version is kept whatever its age
+        assertEquals(List.of(2L), versions(log));
+        assertThrows(IllegalArgumentException.class, () -> log.get(1));
+        assertSame(changed, log.get(2));
+        assertEquals(2, log.latest());
+
+        // appending drops the expired versions for good
+        log.append(changed.addCat(new FelineOverLord("b", 2)));
+        assertEquals(List.of(3L), versions(log));
+        assertThrows(IllegalArgumentException.class, () -> log.get(2));
+    }
+
+    /** Appending the newest state again should not create another version. */
+    @Test
+    public void testAppendSameState() {
+        VersionLog log = new VersionLog();
+        Clowder clowder = new Clowder();
+        log.setRetention(10, FOREVER, () -> clowder);
+
+        log.append(clowder);
+        assertEquals(1, log.latest());
+        log.append(clowder.addCat(new FelineOverLord("a", 1)));
+        log.append(clowder);
+        assertEquals(3, log.latest());
+    }
+
+    /** A disabled log should neither record nor return versions. */
+    @Test
+    public void testDisabled() {
+        VersionLog log = new VersionLog();
+        Clowder clowder = new Clowder();
+        assertFalse(log.isEnabled());
+        log.append(clowder);
+        assertThrows(IllegalStateException.class, log::latest);
+        assertEquals(List.of(), log.list());
+
+        log.setRetention(2, FOREVER, () -> clowder);
+        log.append(clowder.addCat(new FelineOverLord("a", 1)));
+        log.setRetention(0, FOREVER, () -> clowder);
+        assertThrows(IllegalArgumentException.class, () -> log.get(2));
+        assertThrows(IllegalStateException.class, log::latest);
+
+        // numbers continue after the dropped versions
+        log.setRetention(2, FOREVER, () -> clowder);
+        assertEquals(3, log.latest());
+        assertThrows(IllegalArgumentException.class, () -> log.setRetention(-1, FOREVER, null));
+        assertThrows(
+                IllegalArgumentException.class, () -> log.setRetention(1, AGE.negated(), null));
+    }
+
+    /** Cafes should record each change as a version and query old versions. */
+    @Test
+    public void testCafeVersions() {
+        CatCafe cafe = new CatCafe();
+        cafe.addCat(new FelineOverLord("a", 1));
+        cafe.setVersionRetention(10);
+        long first = cafe.getVersion();
+
+        cafe.addCats(List.of(new FelineOverLord("b", 2), new FelineOverLord("c", 3)));
+        cafe.removeCat(new FelineOverLord("a", 1));
+        cafe.removeCat(new FelineOverLord("x", 1));
+
+        assertEquals(first + 2, cafe.getVersion());
+        assertEquals(1, cafe.getCatCount(first));
+        assertEquals(3, cafe.getCatCount(first + 1));
+        assertTrue(cafe.getCatByName("a", first + 1).isPresent());
+        assertTrue(cafe.getCatByName("a", first + 2).isEmpty());
+        assertEquals(
+                List.of(1L, 3L, 2L),
+                cafe.getVersions().stream().map(CafeVersion::catCount).toList());
+    }
+
+    private static List<Long> versions(VersionLog log) {
+        return log.list().stream().map(CafeVersion::version).toList();
+    }
+}
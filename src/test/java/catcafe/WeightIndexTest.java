@@ -0,0 +1,91 @@
+package catcafe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/** Testing the {@link WeightIndex} class. */
+public class WeightIndexTest {
+    private static final FelineOverLord A = new FelineOverLord("a", 3);
+    private static final FelineOverLord B = new FelineOverLord("b", 5);
+    private static final FelineOverLord C = new FelineOverLord("c", 5);
+    private static final FelineOverLord D = new FelineOverLord("d", 9);
+
+    /** Cats with the same weight should be flattened in the order they were added. */
+    @Test
+    public void testGet() {
+        Clowder clowder = new Clowder().addCats(List.of(D, B, A, C));
+        WeightIndex index = WeightIndex.of(clowder.cats(), clowder.size());
+
+        assertSame(clowder.cats(), index.cats());
+        assertEquals(A, index.get(0));
+        assertEquals(B, index.get(1));
+        assertEquals(C, index.get(2));
+        assertEquals(D, index.get(3));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> index.get(4));
+    }
+
+    /** The lower bound should be inclusive, the upper one exclusive. */
+    @Test
+    public void testFirst() {
+        Clowder clowder = new Clowder().addCats(List.of(A, B, C, D));
+        WeightIndex index = WeightIndex.of(clowder.cats(), clowder.size());
+
+        assertEquals(A, index.first(0, 100));
+        assertEquals(A, index.first(3, 4));
+        assertEquals(B, index.first(4, 6));
+        assertEquals(D, index.first(6, 10));
+        assertNull(index.first(3, 3));
+        assertNull(index.first(6, 9));
+        assertNull(index.first(10, 100));
+    }
+
+    /** Ranges should hold all cats of their weights, and may be empty. */
+    @Test
+    public void testRange() {
+        Clowder clowder = new Clowder().addCats(List.of(A, B, C, D));
+        WeightIndex index = WeightIndex.of(clowder.cats(), clowder.size());
+
+        assertEquals(List.of(A, B, C, D), index.range(0, 100).toList());
+        assertEquals(List.of(B, C), index.range(5, 9).toList());
+        assertEquals(List.of(), index.range(6, 9).toList());
+        assertEquals(List.of(), index.range(10, 100).toList());
+    }
+
+    /** An index of an empty cafe should not find anything. */
+    @Test
+    public void testEmpty() {
+        Clowder clowder = new Clowder();
+        WeightIndex index = WeightIndex.of(clowder.cats(), clowder.size());
+
+        assertNull(index.first(0, 100));
+        assertEquals(List.of(), index.range(0, 100).toList());
+    }
+
+    /** Queries should give the same results before and after the cafe builds its index. */
+    @Test
+    public void testCafeQueries() {
+        CatCafe cafe = new CatCafe();
+        cafe.addCats(
+                IntStream.range(0, 1000).mapToObj(i -> new FelineOverLord("c" + i, i)).toList());
+
+        // enough queries to build the index, then some more which use it
+        for (int round = 0; round < 200; round++) {
+            int weight = round * 5;
+            assertEquals(
+                    Optional.of(new FelineOverLord("c" + weight, weight)),
+                    cafe.getCatByWeight(weight, weight + 5));
+            assertEquals(
+                    Optional.of(new FelineOverLord("c" + weight, weight)),
+                    cafe.getCatByRank(weight));
+        }
+        assertEquals(10, cafe.getCatsByWeight(500, 510).count());
+
+        cafe.removeCat(new FelineOverLord("c500", 500));
+        assertEquals(Optional.of(new FelineOverLord("c501", 501)), cafe.getCatByWeight(500, 510));
+        assertEquals(9, cafe.getCatsByWeight(500, 510).count());
+    }
+}
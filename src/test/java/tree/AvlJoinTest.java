@@ -0,0 +1,113 @@
+package tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/** Testing the set operations of {@link Tree} implemented by {@link AvlJoin}. */
+public class AvlJoinTest {
+
+    /**
+     * Dummy class for parameterisation of the {@link Tree} classes in test.
+     *
+     * @param name dummy name
+     * @param number dummy number (used for comparison)
+     */
+    private record Dummy(String name, int number) implements Comparable<Dummy> {
+        @Override
+        public int compareTo(Dummy o) {
+            return number - o.number;
+        }
+    }
+
+    /** The other tree and the merge function must not be {@code null}. */
+    @Test
+    public void testNull() {
+        Tree<Integer> n = Tree.of(List.of(1, 2, 3));
+
+        assertThrows(NullPointerException.class, () -> n.union(null));
+        assertThrows(NullPointerException.class, () -> n.union(n, null));
+        assertThrows(NullPointerException.class, () -> n.intersection(null));
+        assertThrows(NullPointerException.class, () -> n.difference(null));
+    }
+
+    /** Objects comparing equal should be kept from this tree, or merged. */
+    @Test
+    public void testUnionMerge() {
+        Dummy c1 = new Dummy("wuppie", 1);
+        Dummy c2 = new Dummy("fluppie", 2);
+        Dummy c2b = new Dummy("foo", 2);
+        Tree<Dummy> n = Tree.of(List.of(c1, c2));
+        Tree<Dummy> n2 = Tree.of(List.of(c2b));
+
+        assertEquals(List.of(c1, c2), n.union(n2).stream().toList());
+        assertEquals(List.of(c1, c2b), n2.union(n).stream().toList());
+        assertEquals(
+                List.of(c1, new Dummy("fluppiefoo", 2)),
+                n.union(n2, (s, d) -> new Dummy(s.name() + d.name(), 2)).stream().toList());
+        assertThrows(IllegalArgumentException.class, () -> n.union(n2, (s, d) -> c1));
+        assertThrows(NullPointerException.class, () -> n.union(n2, (s, d) -> null));
+    }
+
+    /** The results should be balanced and hold the right data, whatever the inputs. */
+    @Test
+    public void testRandom() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            TreeSet<Integer> set = new TreeSet<>();
+            TreeSet<Integer> set2 = new TreeSet<>();
+            Tree<Integer> n = new AvlEmpty<>();
+            // the other tree is not balanced every other round
+            Tree<Integer> n2 = round % 2 == 0 ? new AvlEmpty<>() : new Empty<>();
+            int range = 1 + random.nextInt(500);
+            for (int i = random.nextInt(200); i > 0; i--) {
+                int x = random.nextInt(range);
+                set.add(x);
+                n = n.addData(x);
+            }
+            for (int i = random.nextInt(200); i > 0; i--) {
+                int x = random.nextInt(range);
+                set2.add(x);
+                n2 = n2.addData(x);
+            }
+
+            TreeSet<Integer> union = new TreeSet<>(set);
+            union.addAll(set2);
+            TreeSet<Integer> intersection = new TreeSet<>(set);
+            intersection.retainAll(set2);
+            TreeSet<Integer> difference = new TreeSet<>(set);
+            difference.removeAll(set2);
+            assertBalanced(union, n.union(n2));
+            assertBalanced(union, n2.union(n));
+            assertBalanced(intersection, n.intersection(n2));
+            assertBalanced(difference, n.difference(n2));
+        }
+    }
+
+    /** Large trees should be merged in parallel, with the same result. */
+    @Test
+    public void testLargeTrees() {
+        Tree<Integer> even = Tree.of(IntStream.range(0, 50_000).map(i -> 2 * i).boxed().toList());
+        Tree<Integer> odd = Tree.of(even.stream().map(i -> i + 1).toList());
+
+        Tree<Integer> all = even.union(odd);
+
+        assertEquals(100_000, all.size());
+        assertEquals(IntStream.range(0, 100_000).boxed().toList(), all.stream().toList());
+        assertTrue(all.height() <= 18);
+        assertEquals(even.stream().toList(), all.intersection(even).stream().toList());
+        assertEquals(odd.stream().toList(), all.difference(even).stream().toList());
+        assertTrue(even.intersection(odd).isEmpty());
+    }
+
+    private static void assertBalanced(TreeSet<Integer> expected, Tree<Integer> n) {
+        assertTrue(n instanceof AvlNode<Integer> || n instanceof AvlEmpty<Integer>);
+        assertEquals(List.copyOf(expected), n.stream().toList());
+        assertEquals(expected.size(), n.size());
+        assertTrue(n.height() <= 1.45 * Math.log(expected.size() + 2) / Math.log(2));
+    }
+}
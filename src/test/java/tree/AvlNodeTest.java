@@ -0,0 +1,408 @@
+package tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/** Testing the {@link AvlNode} and {@link AvlEmpty} classes. */
+public class AvlNodeTest {
+
+    /**
+     * Dummy class for parameterisation of the {@link Tree} class in test.
+     *
+     * @param name dummy name
+     * @param number dummy number (used for comparison)
+     */
+    private record Dummy(String name, int number) implements Comparable<Dummy> {
+        @Override
+        public int compareTo(Dummy o) {
+            return number - o.number;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /** Ctor should not allow {@code null} data. */
+    @Test
+    public void testNodeCtorDataNull() {
+        AvlEmpty<Dummy> e = new AvlEmpty<>();
+
+        assertThrows(NullPointerException.class, () -> new AvlNode<Dummy>(e, null, e));
+    }
+
+    /** Ctor should not allow {@code null} children. */
+    @Test
+    public void testNodeCtorChildNull() {
+        AvlEmpty<Dummy> e = new AvlEmpty<>();
+        Dummy c = new Dummy("wuppie", 3);
+
+        assertThrows(NullPointerException.class, () -> new AvlNode<>(null, c, e));
+        assertThrows(NullPointerException.class, () -> new AvlNode<>(e, c, null));
+    }
+
+    /** Ctor should only accept balanced children. */
+    @Test
+    public void testNodeCtorUnbalanced() {
+        AvlEmpty<Dummy> e = new AvlEmpty<>();
+        Tree<Dummy> n = e.addData(new Dummy("wuppie", 1)).addData(new Dummy("fluppie", 2));
+        Dummy c = new Dummy("foo", 3);
+
+        assertThrows(IllegalArgumentException.class, () -> new AvlNode<>(n, c, e));
+        assertThrows(IllegalArgumentException.class, () -> new AvlNode<>(e, c, e, 2, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AvlNode<>(e, c, e, 1, 2));
+        assertThrows(
+                IllegalArgumentException.class, () -> new AvlNode<>(new Empty<>(), c, e));
+    }
+
+    /** Adding data to an {@link AvlEmpty} should build a new {@link AvlNode}. */
+    @Test
+    public void testEmptyAddData() {
+        Dummy c = new Dummy("wuppie", 3);
+        Tree<Dummy> e = new AvlEmpty<>();
+
+        Tree<Dummy> n = e.addData(c);
+        // A(,)
+
+        assertTrue(e.isEmpty());
+        assertEquals(0, e.height());
+        assertInstanceOf(AvlNode.class, n);
+        assertEquals(c, n.data());
+        assertEquals(1, n.height());
+        assertTrue(n.leftChild().isEmpty());
+        assertTrue(n.rightChild().isEmpty());
+    }
+
+    /** Adding data existing in the tree should return the very same tree. */
+    @Test
+    public void testAddDataDuplicate() {
+        Tree<Dummy> n = new AvlEmpty<Dummy>().addData(new Dummy("wuppie", 3));
+        n = n.addData(new Dummy("fluppie", 2));
+
+        assertSame(n, n.addData(new Dummy("foo", 2)));
+        assertSame(n, n.addData(new Dummy("bar", 3)));
+    }
+
+    /** Ascending data should be rotated to the left (right-right case). */
+    @Test
+    public void testAddDataRR() {
+        Dummy c1 = new Dummy("wuppie", 1);
+        Dummy c2 = new Dummy("fluppie", 2);
+        Dummy c3 = new Dummy("foo", 3);
+
+        Tree<Dummy> n = new AvlEmpty<Dummy>().addData(c1).addData(c2).addData(c3);
+        // B(A(,), C(,))
+
+        assertEquals(2, n.height());
+        assertEquals(c2, n.data());
+        assertEquals(c1, n.leftChild().data());
+        assertEquals(c3, n.rightChild().data());
+    }
+
+    /** Descending data should be rotated to the right (left-left case). */
+    @Test
+    public void testAddDataLL() {
+        Dummy c1 = new Dummy("wuppie", 3);
+        Dummy c2 = new Dummy("fluppie", 2);
+        Dummy c3 = new Dummy("foo", 1);
+
+        Tree<Dummy> n = new AvlEmpty<Dummy>().addData(c1).addData(c2).addData(c3);
+        // B(C(,), A(,))
+
+        assertEquals(2, n.height());
+        assertEquals(c2, n.data());
+        assertEquals(c3, n.leftChild().data());
+        assertEquals(c1, n.rightChild().data());
+    }
+
+    /** A zig-zag on the left should be fixed by a double rotation (left-right case). */
+    @Test
+    public void testAddDataLR() {
+        Dummy c1 = new Dummy("wuppie", 3);
+        Dummy c2 = new Dummy("fluppie", 1);
+        Dummy c3 = new Dummy("foo", 2);
+
+        Tree<Dummy> n = new AvlEmpty<Dummy>().addData(c1).addData(c2).addData(c3);
+        // C(B(,), A(,))
+
+        assertEquals(2, n.height());
+        assertEquals(c3, n.data());
+        assertEquals(c2, n.leftChild().data());
+        assertEquals(c1, n.rightChild().data());
+    }
+
+    /** A zig-zag on the right should be fixed by a double rotation (right-left case). */
+    @Test
+    public void testAddDataRL() {
+        Dummy c1 = new Dummy("wuppie", 1);
+        Dummy c2 = new Dummy("fluppie", 3);
+        Dummy c3 = new Dummy("foo", 2);
+
+        Tree<Dummy> n = new AvlEmpty<Dummy>().addData(c1).addData(c2).addData(c3);
+        // C(A(,), B(,))
+
+        assertEquals(2, n.height());
+        assertEquals(c3, n.data());
+        assertEquals(c1, n.leftChild().data());
+        assertEquals(c2, n.rightChild().data());
+    }
+
+    /** Sorted input must not degenerate the tree into a list. */
+    @Test
+    public void testAddDataSortedStaysLogarithmic() {
+        Tree<Dummy> n = new AvlEmpty<>();
+        for (int i = 0; i < 100_000; i++) {
+            n = n.addData(new Dummy("cat" + i, i));
+        }
+
+        assertEquals(100_000, n.size());
+        assertTrue(n.height() <= 25); // 1.44 * log2(100_000) ~ 24
+        assertEquals(0, n.stream().findFirst().orElseThrow().number());
+    }
+
+    /** Adding data must not modify the old tree (path copying). */
+    @Test
+    public void testAddDataIsPersistent() {
+        Tree<Dummy> n = new AvlEmpty<>();
+        for (int i = 0; i < 10; i++) {
+            n = n.addData(new Dummy("cat" + i, i));
+        }
+
+        Tree<Dummy> m = n.addData(new Dummy("cat10", 10));
+
+        assertEquals(10, n.size());
+        assertEquals(11, m.size());
+        assertSame(n.leftChild(), m.leftChild()); // untouched subtree is shared
+    }
+
+    /** Rank and select should be inverse to each other on a balanced tree. */
+    @Test
+    public void testRankSelect() {
+        Tree<Dummy> n = new AvlEmpty<>();
+        for (int i = 0; i < 1000; i++) {
+            n = n.addData(new Dummy("cat" + i, 2 * i));
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(2 * i, n.select(i).number());
+            assertEquals(i, n.rank(new Dummy("probe", 2 * i)));
+            assertEquals(i + 1, n.rank(new Dummy("probe", 2 * i + 1)));
+        }
+        Tree<Dummy> t = n;
+        assertThrows(IndexOutOfBoundsException.class, () -> t.select(1000));
+    }
+
+    /** Bulk loading should build a perfectly balanced tree without duplicates. */
+    @Test
+    public void testOf() {
+        List<Dummy> data = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            data.add(new Dummy("cat" + i, (i * 7919) % 1000));
+        }
+        data.add(new Dummy("duplicate", 500));
+
+        Tree<Dummy> n = Tree.of(data);
+
+        assertEquals(1000, n.size());
+        assertEquals(10, n.height()); // ceil(log2(1001))
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, n.select(i).number());
+        }
+        assertNotEquals("duplicate", n.select(500).name()); // the first one wins
+        assertTrue(Tree.<Dummy>of(List.of()).isEmpty());
+        assertThrows(NullPointerException.class, () -> Tree.of(Arrays.asList(data.get(0), null)));
+    }
+
+    /** Sorted data should be built into a balanced tree, unsorted data should be rejected. */
+    @Test
+    public void testFromSorted() {
+        Dummy c1 = new Dummy("wuppie", 1);
+        Dummy c2 = new Dummy("fluppie", 2);
+        Dummy c3 = new Dummy("foo", 3);
+
+        Tree<Dummy> n = Tree.fromSorted(List.of(c1, c2, c3));
+        // B(A(,), C(,))
+
+        assertEquals(c2, n.data());
+        assertEquals(c1, n.leftChild().data());
+        assertEquals(c3, n.rightChild().data());
+        assertEquals(2, n.height());
+        assertThrows(IllegalArgumentException.class, () -> Tree.fromSorted(List.of(c2, c1)));
+        assertThrows(IllegalArgumentException.class, () -> Tree.fromSorted(List.of(c1, c1)));
+    }
+
+    /** Iterating should visit the data in ascending order. */
+    @Test
+    public void testStream() {
+        Tree<Dummy> n = new AvlEmpty<>();
+        n = n.addData(new Dummy("wuppie", 1));
+        n = n.addData(new Dummy("fluppie", 3));
+        n = n.addData(new Dummy("foo", 2));
+
+        assertEquals("wuppiefoofluppie", n.stream().map(Dummy::name).collect(Collectors.joining()));
+    }
+
+    /** Existing visitors should work on balanced trees as well. */
+    @Test
+    public void testAcceptVisitor() {
+        Tree<Dummy> n = new AvlEmpty<>();
+        n = n.addData(new Dummy("wuppie", 1));
+        n = n.addData(new Dummy("fluppie", 3));
+        n = n.addData(new Dummy("foo", 2));
+
+        assertEquals(
+                "(wuppie)foo(fluppie)",
+                n.accept(
+                        new TreeVisitor<Dummy>() {
+                            @Override
+                            public String visit(Empty<Dummy> node) {
+                                return "";
+                            }
+
+                            @Override
+                            public String visit(Node<Dummy> node) {
+                                String left = node.leftChild().accept(this);
+                                String right = node.rightChild().accept(this);
+                                return (left.isEmpty() ? "" : "(" + left + ")")
+                                        + node.data()
+                                        + (right.isEmpty() ? "" : "(" + right + ")");
+                            }
+                        }));
+    }
+
+    /** Removing data should keep the tree balanced and sorted. */
+    @Test
+    public void testRemoveData() {
+        Tree<Dummy> n = new AvlEmpty<>();
+        for (int i = 0; i < 1000; i++) {
+            n = n.addData(new Dummy("cat" + i, i));
+        }
+
+        // every node is checked for balance on construction, so rebalancing failures would throw
+        for (int i = 0; i < 1000; i += 2) {
+            n = n.removeData(new Dummy("probe", i));
+        }
+        for (int i = 999; i > 900; i -= 2) {
+            n = n.removeData(new Dummy("probe", i));
+        }
+
+        assertEquals(450, n.size());
+        assertTrue(n.height() <= 13); // 1.44 * log2(450) ~ 13
+        assertEquals(
+                IntStream.range(0, 450).map(i -> 2 * i + 1).boxed().toList(),
+                n.stream().map(Dummy::number).toList());
+        assertSame(n, n.removeData(new Dummy("probe", 0)));
+    }
+
+    /** Removing all data should leave an empty tree. */
+    @Test
+    public void testRemoveDataAll() {
+        Tree<Dummy> n =
+                Tree.of(IntStream.range(0, 100).mapToObj(i -> new Dummy("cat" + i, i)).toList());
+
+        for (int i = 0; i < 100; i++) {
+            n = n.removeData(new Dummy("probe", (i * 37) % 100));
+        }
+
+        assertTrue(n.isEmpty());
+        assertInstanceOf(AvlEmpty.class, n);
+    }
+
+    /** Removing data must not modify the old tree (path copying). */
+    @Test
+    public void testRemoveDataIsPersistent() {
+        Tree<Dummy> n = new AvlEmpty<>();
+        for (int i = 0; i < 15; i++) {
+            n = n.addData(new Dummy("cat" + i, i));
+        }
+
+        Tree<Dummy> m = n.removeData(new Dummy("probe", 14));
+
+        assertEquals(15, n.size());
+        assertEquals(14, m.size());
+        assertSame(n.leftChild(), m.leftChild()); // untouched subtree is shared
+    }
+
+    /** Merging should keep the tree balanced when inserting, and its shape when replacing. */
+    @Test
+    public void testMergeData() {
+        Tree<Dummy> n = new AvlEmpty<>();
+        for (int i = 0; i < 100; i++) {
+            n = n.mergeData(new Dummy("cat" + i, i), (a, b) -> a);
+        }
+
+        Tree<Dummy> m = n;
+        for (int i = 0; i < 100; i++) {
+            m = m.mergeData(new Dummy("kitten", i), (a, b) -> new Dummy(a + "+" + b, a.number()));
+        }
+
+        assertEquals(100, m.size());
+        assertEquals(n.height(), m.height());
+        assertEquals(
+                IntStream.range(0, 100).mapToObj(i -> "cat" + i + "+kitten").toList(),
+                m.stream().map(Dummy::name).toList());
+        assertEquals("cat0", n.select(0).name()); // old tree is not changed
+    }
+
+    /** Navigation should find the nearest data on the requested side. */
+    @Test
+    public void testCeilingFloorHigherLower() {
+        Tree<Dummy> n =
+                Tree.of(IntStream.range(0, 50).mapToObj(i -> new Dummy("cat" + i, 2 * i)).toList());
+
+        assertEquals(10, n.ceiling(new Dummy("probe", 10)).number());
+        assertEquals(12, n.ceiling(new Dummy("probe", 11)).number());
+        assertEquals(10, n.floor(new Dummy("probe", 10)).number());
+        assertEquals(10, n.floor(new Dummy("probe", 11)).number());
+        assertEquals(12, n.higher(new Dummy("probe", 10)).number());
+        assertEquals(8, n.lower(new Dummy("probe", 10)).number());
+        assertEquals(0, n.ceiling(new Dummy("probe", -5)).number());
+        assertEquals(98, n.floor(new Dummy("probe", 500)).number());
+        assertNull(n.ceiling(new Dummy("probe", 99)));
+        assertNull(n.higher(new Dummy("probe", 98)));
+        assertNull(n.floor(new Dummy("probe", -1)));
+        assertNull(n.lower(new Dummy("probe", 0)));
+        assertThrows(NullPointerException.class, () -> n.ceiling(null));
+    }
+
+    /** Balanced trees should hold the same data, whatever the order of insertion. */
+    @Test
+    public void testSameData() {
+        List<Integer> data = IntStream.range(0, 1000).map(i -> (i * 7919) % 1000).boxed().toList();
+        Tree<Integer> n = new AvlEmpty<>();
+        for (int x : data) {
+            n = n.addData(x);
+        }
+        Tree<Integer> m = Tree.of(data);
+
+        assertTrue(n.sameData(m));
+        assertEquals(n.hashCode(), m.hashCode());
+        assertFalse(n.sameData(m.removeData(500)));
+        assertFalse(n.sameData(m.removeData(500).addData(1000)));
+        Tree<Integer> unbalanced = new Empty<Integer>().addData(1).addData(0);
+        assertEquals(Tree.of(List.of(0, 1)).digest(), unbalanced.digest());
+        assertTrue(unbalanced.sameData(Tree.of(List.of(0, 1))));
+        assertThrows(NullPointerException.class, () -> m.sameData(null));
+    }
+
+    /** Balanced trees should only be equal if they also have the same shape. */
+    @Test
+    public void testEqualsHashCode() {
+        Tree<Integer> n = new AvlEmpty<Integer>().addData(1).addData(2).addData(3).addData(4);
+        Tree<Integer> m = new AvlEmpty<Integer>().addData(1).addData(2).addData(3).addData(4);
+        Tree<Integer> other = new AvlEmpty<Integer>().addData(4).addData(3).addData(2).addData(1);
+
+        assertEquals(n, m);
+        assertEquals(n.hashCode(), m.hashCode());
+        assertTrue(n.sameData(other));
+        assertNotEquals(n, other);
+        assertEquals(n.hashCode(), other.hashCode());
+    }
+}
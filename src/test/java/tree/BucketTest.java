@@ -0,0 +1,130 @@
+package tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/** Testing the {@link Bucket} class. */
+public class BucketTest {
+
+    /**
+     * Dummy class for parameterisation of the {@link Bucket} class in test.
+     *
+     * @param name dummy name
+     * @param number dummy number (used for comparison)
+     */
+    private record Dummy(String name, int number) implements Comparable<Dummy> {
+        @Override
+        public int compareTo(Dummy o) {
+            return number - o.number;
+        }
+    }
+
+    /** Factories should not allow {@code null} or empty data. */
+    @Test
+    public void testOfNull() {
+        assertThrows(NullPointerException.class, () -> Bucket.of((Dummy) null));
+        assertThrows(NullPointerException.class, () -> Bucket.of((List<Dummy>) null));
+        assertThrows(IllegalArgumentException.class, () -> Bucket.of(List.<Dummy>of()));
+    }
+
+    /** A bucket should keep distinct objects in the order they were added. */
+    @Test
+    public void testOf() {
+        Dummy c1 = new Dummy("wuppie", 1);
+        Dummy c2 = new Dummy("fluppie", 1);
+
+        Bucket<Dummy> b = Bucket.of(List.of(c1, c2, new Dummy("wuppie", 1)));
+
+        assertEquals(2, b.size());
+        assertEquals(c1, b.key());
+        assertEquals(List.of(c1, c2), b.toList());
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> Bucket.of(List.of(c1, new Dummy("foo", 2))));
+    }
+
+    /** Adding an object should copy the bucket, unless it is already contained. */
+    @Test
+    public void testWith() {
+        Dummy c1 = new Dummy("wuppie", 1);
+        Dummy c2 = new Dummy("fluppie", 1);
+        Bucket<Dummy> b = Bucket.of(c1);
+
+        Bucket<Dummy> b2 = b.with(c2);
+
+        assertEquals(List.of(c1), b.toList()); // old bucket is not changed
+        assertEquals(List.of(c1, c2), b2.toList());
+        assertSame(b2, b2.with(new Dummy("fluppie", 1)));
+        assertThrows(NullPointerException.class, () -> b.with(null));
+        assertThrows(IllegalArgumentException.class, () -> b.with(new Dummy("foo", 2)));
+    }
+
+    /** Adding a whole bucket should append the new objects only. */
+    @Test
+    public void testWithAll() {
+        Bucket<Dummy> b =
+                Bucket.of(IntStream.range(0, 1000).mapToObj(i -> new Dummy("cat" + i, 7)).toList());
+        Bucket<Dummy> other =
+                Bucket.of(List.of(new Dummy("cat999", 7), new Dummy("kitten", 7)));
+
+        Bucket<Dummy> merged = b.withAll(other);
+
+        assertEquals(1001, merged.size());
+        assertEquals(new Dummy("cat0", 7), merged.key());
+        assertEquals(new Dummy("kitten", 7), merged.get(1000));
+        assertSame(merged, merged.withAll(other));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> b.withAll(Bucket.of(List.of(new Dummy("cat0", 7), new Dummy("foo", 8)))));
+    }
+
+    /** Removing an object should copy the bucket, or report that it is empty now. */
+    @Test
+    public void testWithout() {
+        Dummy c1 = new Dummy("wuppie", 1);
+        Dummy c2 = new Dummy("fluppie", 1);
+        Bucket<Dummy> b = Bucket.of(List.of(c1, c2));
+
+        assertEquals(List.of(c2), b.without(c1).toList());
+        assertEquals(List.of(c1), b.without(c2).toList());
+        assertSame(b, b.without(new Dummy("foo", 1)));
+        assertNull(b.without(c1).without(c2));
+        assertThrows(NullPointerException.class, () -> b.without(null));
+    }
+
+    /** Buckets compare by key, but are only equal with the same objects. */
+    @Test
+    public void testCompareToEquals() {
+        Bucket<Dummy> b1 = Bucket.of(new Dummy("wuppie", 1));
+        Bucket<Dummy> b2 = Bucket.of(new Dummy("fluppie", 1));
+        Bucket<Dummy> b3 = Bucket.of(new Dummy("foo", 2));
+
+        assertEquals(0, b1.compareTo(b2));
+        assertTrue(b1.compareTo(b3) < 0);
+        assertNotEquals(b1, b2);
+        assertEquals(b1, Bucket.of(new Dummy("wuppie", 1)));
+        assertEquals(b1.hashCode(), Bucket.of(new Dummy("wuppie", 1)).hashCode());
+    }
+
+    /** A tree of buckets should keep all objects comparing equal in a single node. */
+    @Test
+    public void testTreeOfBuckets() {
+        Tree<Bucket<Dummy>> n = new AvlEmpty<>();
+        for (int i = 0; i < 1000; i++) {
+            n = n.mergeData(Bucket.of(new Dummy("cat" + i, i % 10)), Bucket::withAll);
+        }
+
+        assertEquals(10, n.size());
+        assertTrue(n.height() <= 4);
+        assertEquals(100, n.select(3).size());
+        assertEquals(new Dummy("cat3", 3), n.select(3).key());
+        assertEquals(
+                IntStream.range(0, 1000).map(i -> i % 10).sorted().boxed().toList(),
+                n.stream().flatMap(Bucket::stream).map(Dummy::number).toList());
+        List<Dummy> first = n.select(0).toList();
+        assertThrows(UnsupportedOperationException.class, () -> first.clear());
+    }
+}
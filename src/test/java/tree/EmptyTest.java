@@ -90,6 +90,15 @@ public class EmptyTest {
         assertTrue(e.rightChild().isEmpty());
     }
 
+    /** Removing data from an {@link Empty} should not change anything. */
+    @Test
+    public void testRemoveData() {
+        Tree<Dummy> e = new Empty<>();
+
+        assertThrows(NullPointerException.class, () -> e.removeData(null));
+        assertSame(e, e.removeData(new Dummy()));
+    }
+
     /** Accepting a {@code null} visitor should not be allowed. */
     @Test
     public void testAcceptNullVisitor() {
@@ -164,4 +173,27 @@ public class EmptyTest {
         assertNotNull(s);
         assertEquals(0, c);
     }
+
+    /** Merging into an empty tree should simply add the data. */
+    @Test
+    public void testMergeData() {
+        Tree<Dummy> e = new Empty<>();
+
+        assertThrows(NullPointerException.class, () -> e.mergeData(null, (a, b) -> a));
+        assertThrows(NullPointerException.class, () -> e.mergeData(new Dummy(), null));
+        assertEquals(new Dummy(), e.mergeData(new Dummy(), (a, b) -> a).data());
+    }
+
+    /** An empty tree has no nearest data. */
+    @Test
+    public void testCeilingFloorHigherLower() {
+        Tree<Dummy> e = new Empty<>();
+
+        assertNull(e.ceiling(new Dummy()));
+        assertNull(e.floor(new Dummy()));
+        assertNull(e.higher(new Dummy()));
+        assertNull(e.lower(new Dummy()));
+        assertFalse(e.cursor().hasNext());
+        assertFalse(e.cursor().hasPrevious());
+    }
 }
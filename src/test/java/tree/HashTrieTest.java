@@ -0,0 +1,153 @@
+package tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/** Testing the {@link HashTrie} class. */
+public class HashTrieTest {
+
+    /** The empty map should not contain anything. */
+    @Test
+    public void testEmpty() {
+        HashTrie<String, Integer> m = HashTrie.empty();
+
+        assertTrue(m.isEmpty());
+        assertEquals(0, m.size());
+        assertNull(m.get("wuppie"));
+        assertEquals(42, m.getOrDefault("wuppie", 42));
+    }
+
+    /** {@code null} keys and values should not be allowed. */
+    @Test
+    public void testNull() {
+        HashTrie<String, Integer> m = HashTrie.empty();
+
+        assertThrows(NullPointerException.class, () -> m.get(null));
+        assertThrows(NullPointerException.class, () -> m.put(null, 1));
+        assertThrows(NullPointerException.class, () -> m.put("wuppie", null));
+        assertThrows(NullPointerException.class, () -> m.remove(null));
+    }
+
+    /** Putting should add new entries and replace existing ones. */
+    @Test
+    public void testPut() {
+        HashTrie<String, Integer> m = HashTrie.empty();
+
+        m = m.put("wuppie", 1);
+        m = m.put("fluppie", 2);
+        m = m.put("wuppie", 3);
+
+        assertEquals(2, m.size());
+        assertEquals(3, m.get("wuppie"));
+        assertEquals(2, m.get("fluppie"));
+        assertNull(m.get("foo"));
+    }
+
+    /** Putting the very same entry again should not change the map. */
+    @Test
+    public void testPutSame() {
+        Integer one = 1;
+        HashTrie<String, Integer> m = HashTrie.<String, Integer>empty().put("wuppie", one);
+
+        assertSame(m, m.put("wuppie", one));
+    }
+
+    /** Keys with identical hash codes should be kept apart. */
+    @Test
+    public void testHashCollision() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        HashTrie<String, Integer> m = HashTrie.empty();
+
+        m = m.put("Aa", 1);
+        m = m.put("BB", 2);
+        m = m.put("C#", 3); // same hash code again
+        m = m.put("Aa", 4);
+
+        assertEquals(3, m.size());
+        assertEquals(4, m.get("Aa"));
+        assertEquals(2, m.get("BB"));
+        assertEquals(3, m.get("C#"));
+    }
+
+    /** Putting must not modify the old map. */
+    @Test
+    public void testPutIsPersistent() {
+        HashTrie<String, Integer> m1 = HashTrie.<String, Integer>empty().put("wuppie", 1);
+
+        HashTrie<String, Integer> m2 = m1.put("wuppie", 2).put("fluppie", 3);
+
+        assertEquals(1, m1.size());
+        assertEquals(1, m1.get("wuppie"));
+        assertNull(m1.get("fluppie"));
+        assertEquals(2, m2.size());
+        assertEquals(2, m2.get("wuppie"));
+    }
+
+    /** Many entries should spread over several levels of the trie. */
+    @Test
+    public void testManyEntries() {
+        HashTrie<Integer, String> m = HashTrie.empty();
+        for (int i = 0; i < 100_000; i++) {
+            m = m.put(i * 31, "cat" + i);
+        }
+
+        assertEquals(100_000, m.size());
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals("cat" + i, m.get(i * 31));
+        }
+        assertNull(m.get(1));
+    }
+
+    /** Removing should drop the entry and leave all others. */
+    @Test
+    public void testRemove() {
+        HashTrie<String, Integer> m1 = HashTrie.<String, Integer>empty().put("wuppie", 1);
+        HashTrie<String, Integer> m2 = m1.put("fluppie", 2);
+
+        HashTrie<String, Integer> m3 = m2.remove("wuppie");
+
+        assertEquals(1, m3.size());
+        assertNull(m3.get("wuppie"));
+        assertEquals(2, m3.get("fluppie"));
+        assertSame(m3, m3.remove("foo"));
+        assertTrue(m3.remove("fluppie").isEmpty());
+        assertEquals(1, m2.get("wuppie")); // old map is not changed
+    }
+
+    /** Removing keys with identical hash codes should keep the other keys. */
+    @Test
+    public void testRemoveHashCollision() {
+        HashTrie<String, Integer> m =
+                HashTrie.<String, Integer>empty().put("Aa", 1).put("BB", 2).put("C#", 3);
+
+        m = m.remove("BB");
+
+        assertEquals(2, m.size());
+        assertEquals(1, m.get("Aa"));
+        assertNull(m.get("BB"));
+        assertEquals(3, m.get("C#"));
+
+        m = m.remove("Aa").remove("C#");
+
+        assertTrue(m.isEmpty());
+    }
+
+    /** Removing many entries should keep all remaining ones reachable. */
+    @Test
+    public void testRemoveManyEntries() {
+        HashTrie<Integer, String> m = HashTrie.empty();
+        for (int i = 0; i < 100_000; i++) {
+            m = m.put(i * 31, "cat" + i);
+        }
+
+        for (int i = 0; i < 100_000; i += 3) {
+            m = m.remove(i * 31);
+        }
+
+        assertEquals(66_666, m.size());
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals(i % 3 == 0 ? null : "cat" + i, m.get(i * 31));
+        }
+    }
+}
@@ -2,6 +2,8 @@ package tree;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Iterator;
 import java.util.Spliterator;
 import java.util.stream.Collectors;
@@ -157,6 +159,74 @@ public class NodeTest {
         assertEquals(1, n.size());
     }
 
+    /** Ctor should not allow a size which does not match the children. */
+    @Test
+    public void testNodeCtorSizeMismatch() {
+        Dummy c1 = new Dummy("wuppie", 3);
+        Empty<Dummy> e = new Empty<>();
+
+        assertThrows(IllegalArgumentException.class, () -> new Node<>(e, c1, e, 2));
+    }
+
+    /** The size should be cached in the node and maintained by {@code addData}. */
+    @Test
+    public void testSizeCached() {
+        Dummy c1 = new Dummy("wuppie", 3);
+        Dummy c2 = new Dummy("fluppie", 1);
+        Dummy c3 = new Dummy("foo", 2);
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, c1, e);
+
+        n = n.addData(c2);
+        n = n.addData(c3);
+        // A(B(, C(,)), )
+
+        assertEquals(3, ((Node<Dummy>) n).size());
+        assertEquals(2, ((Node<Dummy>) n.leftChild()).size());
+    }
+
+    /** Rank should count the smaller data objects in the tree. */
+    @Test
+    public void testRank() {
+        Dummy c1 = new Dummy("wuppie", 3);
+        Dummy c2 = new Dummy("fluppie", 1);
+        Dummy c3 = new Dummy("foo", 5);
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, c1, e);
+
+        n = n.addData(c2);
+        n = n.addData(c3);
+        // A(B(,), C(,))
+
+        assertEquals(0, n.rank(new Dummy("probe", 0)));
+        assertEquals(0, n.rank(c2));
+        assertEquals(1, n.rank(new Dummy("probe", 2)));
+        assertEquals(1, n.rank(c1));
+        assertEquals(2, n.rank(c3));
+        assertEquals(3, n.rank(new Dummy("probe", 6)));
+    }
+
+    /** Select should return the data at the given position in sorted order. */
+    @Test
+    public void testSelect() {
+        Dummy c1 = new Dummy("wuppie", 3);
+        Dummy c2 = new Dummy("fluppie", 1);
+        Dummy c3 = new Dummy("foo", 5);
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, c1, e);
+
+        n = n.addData(c2);
+        n = n.addData(c3);
+        // A(B(,), C(,))
+
+        assertEquals(c2, n.select(0));
+        assertEquals(c1, n.select(1));
+        assertEquals(c3, n.select(2));
+        Tree<Dummy> t = n;
+        assertThrows(IndexOutOfBoundsException.class, () -> t.select(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> t.select(3));
+    }
+
     /** Adding {@code null} as data should not be allowed. */
     @Test
     public void testAddDataNull() {
@@ -484,7 +554,16 @@ public class NodeTest {
         Spliterator<Dummy> s = n.spliterator();
 
         assertNotNull(s);
-        assertNotNull(s.trySplit());
+        assertEquals(3, s.getExactSizeIfKnown());
+
+        Spliterator<Dummy> p = s.trySplit(); // split at a subtree boundary: prefix is A
+        assertNotNull(p);
+        assertEquals(1, p.getExactSizeIfKnown());
+        assertEquals(2, s.getExactSizeIfKnown());
+        assertTrue(p.tryAdvance(d -> assertEquals(c1, d)));
+        assertFalse(p.tryAdvance(Dummy::toString));
+        assertTrue(s.tryAdvance(d -> assertEquals(c3, d)));
+        assertTrue(s.tryAdvance(d -> assertEquals(c2, d)));
         assertFalse(s.tryAdvance(Dummy::toString));
     }
 
@@ -509,4 +588,271 @@ public class NodeTest {
         assertEquals(6, number);
         assertEquals("wuppiefoofluppie", string);
     }
+
+    /** Folding should combine the results of the children bottom-up. */
+    @Test
+    public void testFold() {
+        Dummy c1 = new Dummy("wuppie", 1);
+        Dummy c2 = new Dummy("fluppie", 3);
+        Dummy c3 = new Dummy("foo", 2);
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, c1, e);
+
+        n = n.addData(c2); // c1 < c2: add c2 as new rightChild child
+        n = n.addData(c3); // c1 < c3 < c2: add c3 as new rightChild-leftChild child
+        // A(, B(C(,),))
+
+        assertEquals(6, n.fold(0, (l, d, r) -> l + d.number + r));
+        assertEquals("(wuppie((foo)fluppie))", n.fold("", (l, d, r) -> "(" + l + d + r + ")"));
+        assertEquals(3, n.height());
+    }
+
+    /** Folding should not overflow the call stack on degenerated trees. */
+    @Test
+    public void testFoldDeepTree() {
+        Tree<Dummy> n = new Empty<>();
+        for (int i = 100_000; i > 0; i--) {
+            n = new Node<>(new Empty<>(), new Dummy("cat" + i, i), n); // list of depth 100_000
+        }
+
+        assertEquals(100_000, n.fold(0, (l, d, r) -> l + 1 + r));
+        assertEquals(100_000, n.height());
+    }
+
+    /** Rendering should call the renderer in pre-, in- and post-order positions. */
+    @Test
+    public void testRender() throws IOException {
+        Dummy c1 = new Dummy("wuppie", 1);
+        Dummy c2 = new Dummy("fluppie", 3);
+        Dummy c3 = new Dummy("foo", 2);
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, c1, e);
+
+        n = n.addData(c2); // c1 < c2: add c2 as new rightChild child
+        n = n.addData(c3); // c1 < c3 < c2: add c3 as new rightChild-leftChild child
+        // A(, B(C(,),))
+
+        StringBuilder out = new StringBuilder();
+        n.render(
+                new TreeRenderer<>() {
+                    @Override
+                    public void renderEmpty(Appendable out) throws IOException {
+                        out.append('.');
+                    }
+
+                    @Override
+                    public void beforeNode(Dummy data, Appendable out) throws IOException {
+                        out.append('(');
+                    }
+
+                    @Override
+                    public void betweenChildren(Dummy data, Appendable out) throws IOException {
+                        out.append(data.name);
+                    }
+
+                    @Override
+                    public void afterNode(Dummy data, Appendable out) throws IOException {
+                        out.append(')');
+                    }
+                },
+                out);
+
+        assertEquals("(.wuppie((.foo.)fluppie.))", out.toString());
+    }
+
+    /** Rendering should not allow {@code null} renderers or destinations. */
+    @Test
+    public void testRenderNull() {
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, new Dummy("wuppie", 1), e);
+
+        assertThrows(NullPointerException.class, () -> n.render(null, new StringBuilder()));
+        assertThrows(NullPointerException.class, () -> n.render(new TreeRenderer<>() {}, null));
+    }
+
+    /** Rendering should not overflow the call stack on degenerated trees. */
+    @Test
+    public void testRenderDeepTree() throws IOException {
+        Tree<Dummy> n = new Empty<>();
+        for (int i = 100_000; i > 0; i--) {
+            n = new Node<>(new Empty<>(), new Dummy("cat" + i, i), n); // list of depth 100_000
+        }
+
+        StringWriter out = new StringWriter();
+        n.render(
+                new TreeRenderer<>() {
+                    @Override
+                    public void betweenChildren(Dummy data, Appendable out) throws IOException {
+                        out.append(data.name).append('\n');
+                    }
+                },
+                out);
+
+        assertEquals(100_000, out.toString().lines().count());
+        assertTrue(out.toString().startsWith("cat1\ncat2\n"));
+    }
+
+    /** Removing {@code null} as data should not be allowed. */
+    @Test
+    public void testRemoveDataNull() {
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, new Dummy("wuppie", 1), e);
+
+        assertThrows(NullPointerException.class, () -> n.removeData(null));
+    }
+
+    /** Removing data which is not stored should not change the tree. */
+    @Test
+    public void testRemoveDataMissing() {
+        Dummy c1 = new Dummy("wuppie", 1);
+        Dummy c2 = new Dummy("fluppie", 3);
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, c1, e).addData(c2);
+        // A(, B(,))
+
+        assertSame(n, n.removeData(new Dummy("foo", 2)));
+    }
+
+    /** Removing a leaf or a node with one child should replace it by the child. */
+    @Test
+    public void testRemoveDataOneChild() {
+        Dummy c1 = new Dummy("wuppie", 1);
+        Dummy c2 = new Dummy("fluppie", 3);
+        Dummy c3 = new Dummy("foo", 2);
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, c1, e);
+
+        n = n.addData(c2); // c1 < c2: add c2 as new rightChild child
+        n = n.addData(c3); // c1 < c3 < c2: add c3 as new rightChild-leftChild child
+        // A(, B(C(,),))
+
+        Tree<Dummy> m = n.removeData(c2);
+        // A(, C(,))
+
+        assertEquals(2, m.size());
+        assertEquals(c1, m.data());
+        assertEquals(c3, m.rightChild().data());
+        assertTrue(m.rightChild().rightChild().isEmpty());
+        assertEquals(3, n.size()); // old tree is not changed
+
+        m = m.removeData(c1);
+        // C(,)
+
+        assertEquals(1, m.size());
+        assertEquals(c3, m.data());
+    }
+
+    /** Removing a node with two children should replace its data by the successor. */
+    @Test
+    public void testRemoveDataTwoChildren() {
+        Dummy c1 = new Dummy("wuppie", 2);
+        Dummy c2 = new Dummy("fluppie", 1);
+        Dummy c3 = new Dummy("foo", 4);
+        Dummy c4 = new Dummy("bar", 3);
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, c1, e).addData(c2).addData(c3).addData(c4);
+        // A(B(,), C(D(,),))
+
+        Tree<Dummy> m = n.removeData(new Dummy("wuppie", 2));
+        // D(B(,), C(,))
+
+        assertEquals(3, m.size());
+        assertEquals(c4, m.data());
+        assertSame(n.leftChild(), m.leftChild()); // untouched subtree is shared
+        assertEquals(c3, m.rightChild().data());
+        assertEquals(
+                "fluppiebarfoo", m.stream().map(Dummy::toString).collect(Collectors.joining()));
+    }
+
+    /** Merging {@code null} as data or with a {@code null} function should not be allowed. */
+    @Test
+    public void testMergeDataNull() {
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, new Dummy("wuppie", 1), e);
+
+        assertThrows(NullPointerException.class, () -> n.mergeData(null, (a, b) -> a));
+        assertThrows(NullPointerException.class, () -> n.mergeData(new Dummy("foo", 2), null));
+        assertThrows(
+                NullPointerException.class, () -> n.mergeData(new Dummy("foo", 1), (a, b) -> null));
+    }
+
+    /** Merging should insert new data, and replace the stored data comparing equal to it. */
+    @Test
+    public void testMergeData() {
+        Dummy c1 = new Dummy("wuppie", 2);
+        Dummy c2 = new Dummy("fluppie", 1);
+        Dummy c3 = new Dummy("foo", 3);
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, c1, e).mergeData(c2, (a, b) -> a).mergeData(c3, (a, b) -> a);
+        // A(B(,), C(,))
+
+        Tree<Dummy> m =
+                n.mergeData(new Dummy("bar", 3), (a, b) -> new Dummy(a.name() + b.name(), 3));
+        // A(B(,), C'(,))
+
+        assertEquals(3, m.size());
+        assertEquals("foobar", m.rightChild().data().name());
+        assertSame(n.leftChild(), m.leftChild()); // untouched subtree is shared
+        assertEquals("foo", n.rightChild().data().name()); // old tree is not changed
+        assertSame(n, n.mergeData(new Dummy("bar", 3), (a, b) -> a));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> n.mergeData(new Dummy("bar", 3), (a, b) -> new Dummy("bar", 4)));
+    }
+
+    /** Nodes should hold the same data, whatever their shape, but only be equal in one shape. */
+    @Test
+    public void testSameData() {
+        Dummy c1 = new Dummy("wuppie", 2);
+        Dummy c2 = new Dummy("fluppie", 1);
+        Dummy c3 = new Dummy("foo", 3);
+        Empty<Dummy> e = new Empty<>();
+        Tree<Dummy> n = new Node<>(e, c1, e).addData(c2).addData(c3); // A(B(,), C(,))
+        Tree<Dummy> m = new Node<>(e, c3, e).addData(c2).addData(c1); // C(B(, A(,)),)
+
+        assertTrue(n.sameData(m));
+        assertNotEquals(n, m);
+        assertEquals(n.hashCode(), m.hashCode());
+        assertEquals(n.digest(), m.digest());
+        assertEquals(n, new Node<>(e, c1, e).addData(c2).addData(c3));
+        assertFalse(n.sameData(m.removeData(c1).addData(new Dummy("bar", 2))));
+        assertFalse(n.sameData(n.removeData(c3)));
+        assertTrue(n.sameData(new AvlEmpty<Dummy>().addData(c1).addData(c2).addData(c3)));
+    }
+
+    /** Comparing the data and hashing should not overflow the stack for degenerated trees. */
+    @Test
+    public void testSameDataDeepTree() {
+        Tree<Integer> n = new Empty<>();
+        Tree<Integer> m = new Empty<>();
+        for (int i = 0; i < 100_000; i++) {
+            n = new Node<>(n, i, new Empty<>());
+            m = new Node<>(m, i, new Empty<>());
+        }
+
+        assertTrue(n.sameData(m));
+        assertFalse(n.sameData(new Node<>(new Empty<>(), -1, m)));
+        assertEquals(n.hashCode(), m.hashCode());
+    }
+
+    /** Equality of very deep trees should not overflow the stack. */
+    @Test
+    public void testEqualsDeepTree() {
+        Tree<Integer> n = new Node<>(new Node<>(new Empty<>(), 0, new Empty<>()), 1, new Empty<>());
+        Tree<Integer> m = new Node<>(new Node<>(new Empty<>(), 0, new Empty<>()), 1, new Empty<>());
+        // same data and digest, but the bottom of the tree has another shape
+        Tree<Integer> other =
+                new Node<>(new Empty<>(), 0, new Node<>(new Empty<>(), 1, new Empty<>()));
+        for (int i = 2; i < 200_000; i++) {
+            n = new Node<>(n, i, new Empty<>());
+            m = new Node<>(m, i, new Empty<>());
+            other = new Node<>(other, i, new Empty<>());
+        }
+
+        assertEquals(n, m);
+        assertEquals(m, n);
+        assertNotEquals(n, other);
+        assertTrue(n.sameData(other));
+        assertNotEquals(n, new Node<>(new Empty<>(), -1, m));
+    }
 }
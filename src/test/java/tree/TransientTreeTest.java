@@ -0,0 +1,131 @@
+package tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/** Testing the {@link TransientTree} class. */
+public class TransientTreeTest {
+
+    /** Ctor should not allow {@code null} data. */
+    @Test
+    public void testCtorTreeNull() {
+        assertThrows(NullPointerException.class, () -> new TransientTree<Integer>(null));
+    }
+
+    /** Adding {@code null} as data should not be allowed. */
+    @Test
+    public void testAddDataNull() {
+        TransientTree<Integer> t = new AvlEmpty<Integer>().asTransient();
+
+        assertThrows(NullPointerException.class, () -> t.addData(null));
+    }
+
+    /** Adding should report whether the data was new. */
+    @Test
+    public void testAddData() {
+        TransientTree<Integer> t = new AvlEmpty<Integer>().asTransient();
+
+        assertTrue(t.addData(2));
+        assertTrue(t.addData(1));
+        assertFalse(t.addData(2));
+        assertEquals(2, t.size());
+    }
+
+    /** A batch of sorted insertions should result in a balanced, immutable tree. */
+    @Test
+    public void testFreezeBalanced() {
+        TransientTree<Integer> t = new AvlEmpty<Integer>().asTransient();
+        for (int i = 0; i < 100_000; i++) {
+            t.addData(i);
+        }
+
+        Tree<Integer> n = t.freeze();
+
+        assertInstanceOf(AvlNode.class, n);
+        assertEquals(100_000, n.size());
+        assertTrue(n.height() <= 25);
+        assertEquals(IntStream.range(0, 100_000).boxed().toList(), n.stream().toList());
+    }
+
+    /** The original tree must not change, and untouched subtrees should be shared. */
+    @Test
+    public void testFreezeSharesUntouchedSubtrees() {
+        Tree<Integer> n = new AvlEmpty<>();
+        for (int i = 0; i < 1000; i += 2) {
+            n = n.addData(i);
+        }
+        TransientTree<Integer> t = n.asTransient();
+
+        t.addData(999);
+        t.addData(997);
+        Tree<Integer> m = t.freeze();
+
+        assertEquals(500, n.size());
+        assertEquals(502, m.size());
+        assertSame(n.leftChild(), m.leftChild());
+    }
+
+    /** Without any changes, freezing should return the original tree. */
+    @Test
+    public void testFreezeUnchanged() {
+        Tree<Integer> n = new AvlEmpty<Integer>().addData(1).addData(2);
+        TransientTree<Integer> t = n.asTransient();
+
+        t.addData(2);
+
+        assertSame(n, t.freeze());
+    }
+
+    /** A frozen transient cannot be used any more. */
+    @Test
+    public void testFrozen() {
+        TransientTree<Integer> t = new AvlEmpty<Integer>().asTransient();
+        t.freeze();
+
+        assertThrows(IllegalStateException.class, () -> t.addData(1));
+        assertThrows(IllegalStateException.class, () -> t.size());
+        assertThrows(IllegalStateException.class, () -> t.freeze());
+    }
+
+    /** An unbalanced tree should be converted into a balanced one. */
+    @Test
+    public void testFromUnbalancedTree() {
+        Tree<Integer> n = new Empty<>();
+        for (int i = 0; i < 100; i++) {
+            n = n.addData(i);
+        }
+        TransientTree<Integer> t = n.asTransient();
+
+        t.addData(100);
+        Tree<Integer> m = t.freeze();
+
+        assertEquals(101, m.size());
+        assertTrue(m.height() <= 8);
+        assertEquals(100, n.size());
+    }
+
+    /** Merging should report whether the tree has changed, and replace data in place. */
+    @Test
+    public void testMergeData() {
+        Tree<String> n = Tree.of(List.of("a", "b", "c"));
+        String stored = n.select(1);
+        TransientTree<String> t = n.asTransient();
+
+        assertThrows(NullPointerException.class, () -> t.mergeData(null, (a, b) -> a));
+        assertThrows(NullPointerException.class, () -> t.mergeData("d", null));
+        assertTrue(t.mergeData("d", (a, b) -> a));
+        assertFalse(t.mergeData("b", (a, b) -> a));
+        assertTrue(t.mergeData("b", (a, b) -> new String(a)));
+        assertThrows(IllegalArgumentException.class, () -> t.mergeData("c", (a, b) -> "e"));
+
+        Tree<String> m = t.freeze();
+
+        assertEquals(List.of("a", "b", "c", "d"), m.stream().toList());
+        assertNotSame(stored, m.select(1));
+        assertSame(stored, n.select(1)); // old tree is not changed
+        assertEquals(3, n.size());
+    }
+}
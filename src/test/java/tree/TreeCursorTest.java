@@ -0,0 +1,104 @@
+package tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/** Testing the {@link TreeCursor} class. */
+public class TreeCursorTest {
+
+    /** Ctor should not allow {@code null} data. */
+    @Test
+    public void testCtorRootNull() {
+        assertThrows(NullPointerException.class, () -> new TreeCursor<Integer>(null));
+    }
+
+    /** A new cursor should walk forward over all data and back again. */
+    @Test
+    public void testForwardBackward() {
+        Tree<Integer> n = Tree.of(IntStream.range(0, 100).boxed().toList());
+        TreeCursor<Integer> c = n.cursor();
+
+        assertFalse(c.hasPrevious());
+        assertThrows(NoSuchElementException.class, () -> c.previous());
+
+        List<Integer> forward = new ArrayList<>();
+        c.forEachRemaining(forward::add);
+        List<Integer> backward = new ArrayList<>();
+        while (c.hasPrevious()) {
+            backward.add(c.previous());
+        }
+
+        assertEquals(IntStream.range(0, 100).boxed().toList(), forward);
+        assertEquals(IntStream.range(0, 100).map(i -> 99 - i).boxed().toList(), backward);
+        assertThrows(NoSuchElementException.class, () -> c.previous());
+    }
+
+    /** Alternating directions should return the same data again, like a list iterator. */
+    @Test
+    public void testAlternate() {
+        TreeCursor<Integer> c = Tree.of(List.of(1, 2, 3)).cursor();
+
+        assertEquals(1, c.next());
+        assertEquals(2, c.next());
+        assertEquals(2, c.previous());
+        assertEquals(1, c.previous());
+        assertEquals(1, c.next());
+    }
+
+    /** Seeking should position the cursor around the key. */
+    @Test
+    public void testSeek() {
+        Tree<Integer> n = Tree.of(IntStream.range(0, 50).map(i -> 2 * i).boxed().toList());
+        TreeCursor<Integer> c = n.cursor(10);
+
+        assertEquals(10, c.next());
+        assertEquals(12, c.next());
+
+        c.seek(11);
+        assertEquals(10, c.previous());
+        assertEquals(8, c.previous());
+
+        c.seekAfter(10);
+        assertEquals(10, c.previous());
+
+        c.seekAfter(11);
+        assertEquals(12, c.next());
+
+        c.seek(99);
+        assertFalse(c.hasNext());
+        assertEquals(98, c.previous());
+
+        c.seek(-1);
+        assertFalse(c.hasPrevious());
+        assertEquals(0, c.next());
+
+        c.seekLast();
+        assertEquals(98, c.previous());
+
+        c.seekFirst();
+        assertEquals(0, c.next());
+        assertThrows(NullPointerException.class, () -> c.seek(null));
+    }
+
+    /** Every position of an unbalanced tree should be reachable in both directions. */
+    @Test
+    public void testUnbalancedTree() {
+        Tree<Integer> n = new Empty<>();
+        for (int i : List.of(5, 2, 8, 1, 3, 7, 9, 4, 6)) {
+            n = n.addData(i);
+        }
+
+        for (int key = 0; key <= 10; key++) {
+            TreeCursor<Integer> c = n.cursor(key);
+            TreeCursor<Integer> d = n.cursor(key);
+
+            assertEquals(n.ceiling(key), c.hasNext() ? c.next() : null);
+            assertEquals(n.lower(key), d.hasPrevious() ? d.previous() : null);
+        }
+    }
+}
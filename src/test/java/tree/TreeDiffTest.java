@@ -0,0 +1,150 @@
+package tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/** Testing {@link Tree#diff(Tree)} and the {@link TreeDiffIterator} class. */
+public class TreeDiffTest {
+
+    /**
+     * Dummy class for parameterisation of the {@link Tree} classes in test.
+     *
+     * @param name dummy name
+     * @param number dummy number (used for comparison)
+     */
+    private record Dummy(String name, int number) implements Comparable<Dummy> {
+        @Override
+        public int compareTo(Dummy o) {
+            return number - o.number;
+        }
+    }
+
+    /** The other tree must not be {@code null}, and a change must not be empty. */
+    @Test
+    public void testDiffNull() {
+        assertThrows(NullPointerException.class, () -> new AvlEmpty<Integer>().diff(null));
+        assertThrows(IllegalArgumentException.class, () -> new TreeChange<Integer>(null, null));
+    }
+
+    /** Equal trees have no differences, empty trees differ in all objects. */
+    @Test
+    public void testDiffEmpty() {
+        Tree<Integer> n = Tree.of(List.of(1, 2, 3));
+
+        assertEquals(List.of(), n.diff(n).toList());
+        assertEquals(List.of(), n.diff(Tree.of(List.of(3, 2, 1))).toList());
+        assertEquals(
+                List.of(TreeChange.added(1), TreeChange.added(2), TreeChange.added(3)),
+                new AvlEmpty<Integer>().diff(n).toList());
+        assertEquals(
+                List.of(TreeChange.removed(1), TreeChange.removed(2), TreeChange.removed(3)),
+                n.diff(new Empty<>()).toList());
+    }
+
+    /** Added, removed and replaced objects should be reported in sorted order. */
+    @Test
+    public void testDiff() {
+        Dummy c1 = new Dummy("wuppie", 1);
+        Dummy c2 = new Dummy("fluppie", 2);
+        Dummy c3 = new Dummy("foo", 3);
+        Dummy c3b = new Dummy("bar", 3);
+        Tree<Dummy> n = new Empty<Dummy>().addData(c2).addData(c3);
+        Tree<Dummy> n2 = n.removeData(c2).addData(c1).mergeData(c3b, (s, d) -> d);
+
+        List<TreeChange<Dummy>> changes = n.diff(n2).toList();
+
+        assertEquals(
+                List.of(TreeChange.added(c1), TreeChange.removed(c2), new TreeChange<>(c3, c3b)),
+                changes);
+        assertTrue(changes.get(0).isAdded());
+        assertTrue(changes.get(1).isRemoved());
+        assertTrue(changes.get(2).isReplaced());
+    }
+
+    /** The diff should match the differences of the sorted data, whatever the shapes. */
+    @Test
+    public void testDiffRandom() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            Tree<Integer> n = new AvlEmpty<>();
+            TreeSet<Integer> set = new TreeSet<>();
+            for (int i = 0; i < 200; i++) {
+                int x = random.nextInt(300);
+                n = n.addData(x);
+                set.add(x);
+            }
+            Tree<Integer> n2 = n;
+            TreeSet<Integer> set2 = new TreeSet<>(set);
+            for (int i = 0; i < random.nextInt(50); i++) {
+                int x = random.nextInt(300);
+                if (random.nextBoolean()) {
+                    n2 = n2.addData(x);
+                    set2.add(x);
+                } else {
+                    n2 = n2.removeData(x);
+                    set2.remove(x);
+                }
+            }
+
+            List<TreeChange<Integer>> expected =
+                    IntStream.range(0, 300)
+                            .filter(x -> set.contains(x) != set2.contains(x))
+                            .mapToObj(
+                                    x ->
+                                            set.contains(x)
+                                                    ? TreeChange.removed(x)
+                                                    : TreeChange.added(x))
+                            .toList();
+            assertEquals(expected, n.diff(n2).toList());
+            assertEquals(expected.size(), n.diff(Tree.of(set2)).count());
+        }
+    }
+
+    /** Shared subtrees should be skipped, so a small change visits only a few nodes. */
+    @Test
+    public void testDiffSkipsSharedSubtrees() {
+        Tree<Integer> n = Tree.of(IntStream.range(0, 100_000).boxed().toList());
+        Tree<Integer> n2 = n.removeData(4711).addData(100_000);
+
+        TreeMetrics.setEnabled(true);
+        try {
+            TreeMetrics.Sample start = TreeMetrics.sample();
+            assertEquals(
+                    List.of(TreeChange.removed(4711), TreeChange.added(100_000)),
+                    n.diff(n2).toList());
+            TreeMetrics.Sample work = TreeMetrics.sample().minus(start);
+
+            assertTrue(work.visits() < 1_000);
+            assertTrue(work.comparisons() < 1_000);
+        } finally {
+            TreeMetrics.setEnabled(false);
+        }
+    }
+
+    /** Replicas share no nodes, but should still be compared by their digests only. */
+    @Test
+    public void testReconcile() {
+        List<Integer> data = IntStream.range(0, 100_000).boxed().toList();
+        Tree<Integer> n = Tree.of(data);
+        Tree<Integer> replica = Tree.of(data).removeData(4711).addData(100_000);
+
+        TreeMetrics.setEnabled(true);
+        try {
+            TreeMetrics.Sample start = TreeMetrics.sample();
+            assertEquals(
+                    List.of(TreeChange.removed(4711), TreeChange.added(100_000)),
+                    n.reconcile(replica).toList());
+            TreeMetrics.Sample work = TreeMetrics.sample().minus(start);
+
+            assertTrue(work.visits() < 1_000);
+            assertEquals(n.diff(replica).toList(), n.reconcile(replica).toList());
+        } finally {
+            TreeMetrics.setEnabled(false);
+        }
+    }
+}
@@ -2,7 +2,9 @@ package tree;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import org.junit.jupiter.api.Test;
 
@@ -172,4 +174,78 @@ public class TreeIteratorTest {
         assertFalse(i.hasNext());
         assertThrows(NoSuchElementException.class, () -> i.next());
     }
+
+    /** Iterating over a range should only return the data within the bounds. */
+    @Test
+    public void testIteratorRange() {
+        Tree<Dummy> n = new AvlEmpty<>();
+        for (int i = 0; i < 10; i++) {
+            n = n.addData(new Dummy("cat" + i, i));
+        }
+
+        Dummy from = new Dummy("from", 3);
+        Dummy to = new Dummy("to", 6);
+
+        Iterator<Dummy> i = new TreeIterator<>(n, from, true, to, false);
+
+        assertEquals(3, i.next().number());
+        assertEquals(4, i.next().number());
+        assertEquals(5, i.next().number());
+        assertFalse(i.hasNext());
+        assertThrows(NoSuchElementException.class, () -> i.next());
+    }
+
+    /** Exclusive and inclusive bounds should be respected. */
+    @Test
+    public void testTreeRange() {
+        Tree<Dummy> n = new Empty<>();
+        for (int i : new int[] {5, 2, 8, 1, 3, 7, 9}) {
+            n = n.addData(new Dummy("cat" + i, i));
+        }
+        Dummy from = new Dummy("from", 2);
+        Dummy to = new Dummy("to", 8);
+
+        assertEquals(List.of(2, 3, 5, 7), n.range(from, to).map(Dummy::number).toList());
+        assertEquals(
+                List.of(3, 5, 7, 8),
+                n.range(from, false, to, true).map(Dummy::number).toList());
+        assertEquals(0, n.range(new Dummy("from", 10), new Dummy("to", 12)).count());
+        Tree<Dummy> t = n;
+        assertThrows(IllegalArgumentException.class, () -> t.range(to, from));
+    }
+
+    /** The stack should grow beyond its initial capacity for deep trees. */
+    @Test
+    public void testIteratorDeepTree() {
+        Tree<Dummy> n = new Empty<>();
+        for (int i = 100; i > 0; i--) {
+            n = n.addData(new Dummy("cat" + i, i)); // degenerated into a list of depth 100
+        }
+
+        Iterator<Dummy> i = new TreeIterator<>(n);
+
+        for (int k = 1; k <= 100; k++) {
+            assertEquals(k, i.next().number());
+        }
+        assertFalse(i.hasNext());
+    }
+
+    /** Internal iteration should visit the remaining data within the range. */
+    @Test
+    public void testForEachRemaining() {
+        Tree<Dummy> n = new AvlEmpty<>();
+        for (int i = 0; i < 10; i++) {
+            n = n.addData(new Dummy("cat" + i, i));
+        }
+        Dummy from = new Dummy("from", 2);
+        Dummy to = new Dummy("to", 7);
+        Iterator<Dummy> i = new TreeIterator<>(n, from, false, to, true);
+        List<Integer> numbers = new ArrayList<>();
+
+        assertEquals(3, i.next().number());
+        i.forEachRemaining(d -> numbers.add(d.number()));
+
+        assertEquals(List.of(4, 5, 6, 7), numbers);
+        assertFalse(i.hasNext());
+    }
 }
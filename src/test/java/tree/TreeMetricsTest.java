@@ -0,0 +1,113 @@
+package tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/** Testing the {@link TreeMetrics} class. */
+public class TreeMetricsTest {
+
+    /** Nothing should be counted while the metrics are disabled. */
+    @Test
+    public void testDisabled() {
+        TreeMetrics.setEnabled(false);
+        TreeMetrics.Sample before = TreeMetrics.sample();
+
+        Tree<Integer> n = Tree.of(IntStream.range(0, 100).boxed().toList()).addData(100);
+        n.stream().forEach(i -> {});
+
+        assertEquals(new TreeMetrics.Sample(0, 0, 0), TreeMetrics.sample().minus(before));
+    }
+
+    /** Adding data should count one comparison and at least one node per level of the path. */
+    @Test
+    public void testAddData() {
+        Tree<Integer> n = Tree.of(IntStream.range(0, 1023).boxed().toList());
+        // perfectly balanced tree of height 10
+
+        TreeMetrics.setEnabled(true);
+        try {
+            TreeMetrics.Sample before = TreeMetrics.sample();
+            n.addData(2000);
+            TreeMetrics.Sample work = TreeMetrics.sample().minus(before);
+
+            assertEquals(10, work.comparisons());
+            assertTrue(work.allocations() >= 11);
+            assertTrue(TreeMetrics.comparisons() >= 10);
+        } finally {
+            TreeMetrics.setEnabled(false);
+        }
+    }
+
+    /** Iterators should count the visited nodes, skipping subtrees outside the range. */
+    @Test
+    public void testVisits() {
+        Tree<Integer> n = Tree.of(IntStream.range(0, 1023).boxed().toList());
+
+        TreeMetrics.setEnabled(true);
+        try {
+            TreeMetrics.Sample before = TreeMetrics.sample();
+            n.stream().forEach(i -> {});
+            TreeMetrics.Sample all = TreeMetrics.sample().minus(before);
+
+            before = TreeMetrics.sample();
+            n.range(500, 510).forEach(i -> {});
+            TreeMetrics.Sample range = TreeMetrics.sample().minus(before);
+
+            assertEquals(1023, all.visits());
+            assertTrue(range.visits() <= 10 + 2 * 10);
+        } finally {
+            TreeMetrics.setEnabled(false);
+        }
+    }
+
+    /** Visiting a balanced tree should not count the nodes standing in for its nodes. */
+    @Test
+    public void testVisitBalanced() {
+        Tree<Integer> n = Tree.of(IntStream.range(0, 100).boxed().toList());
+        TreeVisitor<Integer> inOrder =
+                new TreeVisitor<>() {
+                    @Override
+                    public String visit(Empty<Integer> node) {
+                        return "";
+                    }
+
+                    @Override
+                    public String visit(Node<Integer> node) {
+                        return node.leftChild().accept(this)
+                                + node.data()
+                                + node.rightChild().accept(this);
+                    }
+                };
+
+        TreeMetrics.setEnabled(true);
+        try {
+            TreeMetrics.Sample before = TreeMetrics.sample();
+            String visited = n.accept(inOrder);
+            TreeMetrics.Sample work = TreeMetrics.sample().minus(before);
+
+            assertTrue(visited.startsWith("0123"), visited);
+            assertEquals(0, work.allocations());
+        } finally {
+            TreeMetrics.setEnabled(false);
+        }
+    }
+
+    /** Resetting should only clear the totals. */
+    @Test
+    public void testReset() {
+        TreeMetrics.setEnabled(true);
+        try {
+            new AvlEmpty<Integer>().addData(1).addData(2);
+            TreeMetrics.Sample sample = TreeMetrics.sample();
+            TreeMetrics.reset();
+
+            assertEquals(0, TreeMetrics.comparisons());
+            assertEquals(0, TreeMetrics.allocations());
+            assertEquals(sample, TreeMetrics.sample());
+        } finally {
+            TreeMetrics.setEnabled(false);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/** Testing the {@link TreeSpliterator} class. */
+public class TreeSpliteratorTest {
+
+    /** Ctor should not allow {@code null} data. */
+    @Test
+    public void testCtorRootNull() {
+        assertThrows(NullPointerException.class, () -> new TreeSpliterator<Integer>(null));
+    }
+
+    /** The spliterator should report the characteristics of a sorted set of known size. */
+    @Test
+    public void testCharacteristics() {
+        Spliterator<Integer> s = new AvlEmpty<Integer>().addData(1).spliterator();
+
+        assertTrue(s.hasCharacteristics(Spliterator.SIZED));
+        assertTrue(s.hasCharacteristics(Spliterator.SUBSIZED));
+        assertTrue(s.hasCharacteristics(Spliterator.SORTED));
+        assertTrue(s.hasCharacteristics(Spliterator.ORDERED));
+        assertTrue(s.hasCharacteristics(Spliterator.DISTINCT));
+        assertTrue(s.hasCharacteristics(Spliterator.NONNULL));
+        assertTrue(s.hasCharacteristics(Spliterator.IMMUTABLE));
+        assertNull(s.getComparator()); // natural order
+    }
+
+    /** Recursive splitting should partition the tree into ordered chunks of exact size. */
+    @Test
+    public void testSplitRecursively() {
+        Tree<Integer> n = new AvlEmpty<>();
+        for (int i = 0; i < 1000; i++) {
+            n = n.addData(i);
+        }
+
+        List<Integer> result = new ArrayList<>();
+        split(n.spliterator(), result);
+
+        assertEquals(IntStream.range(0, 1000).boxed().toList(), result);
+    }
+
+    /** Splitting should also work on a degenerated (unbalanced) tree. */
+    @Test
+    public void testSplitDegenerated() {
+        Tree<Integer> n = new Empty<>();
+        for (int i = 0; i < 100; i++) {
+            n = n.addData(i);
+        }
+
+        List<Integer> result = new ArrayList<>();
+        split(n.spliterator(), result);
+
+        assertEquals(IntStream.range(0, 100).boxed().toList(), result);
+    }
+
+    /** Splitting after partial traversal should only cover the remaining data. */
+    @Test
+    public void testSplitAfterAdvance() {
+        Tree<Integer> n = new AvlEmpty<>();
+        for (int i = 0; i < 100; i++) {
+            n = n.addData(i);
+        }
+        Spliterator<Integer> s = n.spliterator();
+        for (int i = 0; i < 10; i++) {
+            s.tryAdvance(x -> {});
+        }
+
+        List<Integer> result = new ArrayList<>();
+        split(s, result);
+
+        assertEquals(IntStream.range(10, 100).boxed().toList(), result);
+    }
+
+    /** A parallel stream should keep the encounter order of the tree. */
+    @Test
+    public void testParallelStream() {
+        Tree<Integer> n = new AvlEmpty<>();
+        for (int i = 0; i < 10_000; i++) {
+            n = n.addData(i);
+        }
+
+        assertEquals(
+                IntStream.range(0, 10_000).boxed().toList(),
+                n.parallelStream().collect(Collectors.toList()));
+        assertEquals(49_995_000L, n.parallelStream().mapToLong(x -> x).sum());
+    }
+
+    private static void split(Spliterator<Integer> s, List<Integer> result) {
+        long size = s.getExactSizeIfKnown();
+        Spliterator<Integer> prefix = s.trySplit();
+        if (prefix == null) {
+            int before = result.size();
+            s.forEachRemaining(result::add);
+            assertEquals(size, result.size() - before);
+            return;
+        }
+
+        assertEquals(size, prefix.getExactSizeIfKnown() + s.getExactSizeIfKnown());
+        split(prefix, result);
+        split(s, result);
+    }
+}